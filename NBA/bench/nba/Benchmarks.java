@@ -0,0 +1,190 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+/*
+ * Benchmarks for the methods run on every row of every play-by-play, driven by saved play-by-play pages.
+ *
+ * Pass it any number of saved play-by-play pages. Every miss, made shot, free throw and offensive rebound in them is
+ * collected as input, and each method is called on those inputs in turn.
+ * For each benchmark it prints calls per second and the bytes allocated per call, measured on this thread.
+ * The last benchmark parses one whole game end to end, from html to both parsers' data.
+ *
+ * Run it before and after changing one of these methods to see what the change did.
+ */
+public class Benchmarks {
+
+	private static final long WARMUP_NANOS = 2000000000L;
+	private static final long MEASURE_NANOS = 3000000000L;
+
+	// one benchmarked call. Returns something derived from the result so the call can't be optimized away
+	private interface Operation {
+		long call(int i);
+	}
+
+	private static long _sink;
+
+	// the keywords PlayByPlay looks for in every row's text, for comparing a contains call for each with one KeywordMatcher scan
+	private static final String[] ROW_KEYWORDS = { "misses", "blocks", "makes", "rebound", "offensive", "defensive", "offensive rebound",
+		"End of the", "enters the game", "timeout", "vs", "delay", "technical", "technical foul", "technical free throw", "ejected", "free",
+		"foul", "shooting foul", "turnover", "traveling", "pass", "bad pass", "violation", "3-seconds", "of 1", "of 2", "of 3" };
+
+	public static void main(String[] args) throws IOException {
+		final List<String> htmlPages = new ArrayList<String>();
+		final List<PlayByPlay> games = new ArrayList<PlayByPlay>();
+		final List<String> shotTexts = new ArrayList<String>();
+		final List<String> rowTexts = new ArrayList<String>();
+		final List<int[]> offensiveRebounds = new ArrayList<int[]>();
+		final List<int[]> madeShots = new ArrayList<int[]>();
+		final List<int[]> freeThrows = new ArrayList<int[]>();
+
+		for (String fileName: args) {
+			Document page = Jsoup.parse(new File(fileName), "UTF-8", "http://espn.go.com/nba/playbyplay");
+			htmlPages.add(page.outerHtml());
+
+			for (Element cell: page.getElementsByClass("mod-data").select("td:contains(misses), td:contains(makes)")) {
+				shotTexts.add(cell.text());
+			}
+			for (Element row: page.getElementsByClass("mod-data").select("tr")) {
+				rowTexts.add(row.text());
+			}
+
+			PlayByPlay game = new PlayByPlay(page);
+			int g = games.size();
+			games.add(game);
+			for (int row = 0; row < game.getNumRows(); row++) {
+				if (row > 0 && game.has(row - 1, PlayByPlay.MISS_WITH_REBOUND) && game.has(row, PlayByPlay.OFFENSIVE_REBOUND)) {
+					offensiveRebounds.add(new int[] { g, row });
+				}
+				if (game.has(row, PlayByPlay.MAKES) && game.hasNextRow(row)) {
+					madeShots.add(new int[] { g, row });
+				}
+				if (game.getFreeThrowNumber(row) == 1) {
+					freeThrows.add(new int[] { g, row });
+				}
+			}
+		}
+
+		final PointsPerOffensiveReboundParser parser = new PointsPerOffensiveReboundParser();
+		KeywordMatcher.Builder keywords = new KeywordMatcher.Builder();
+		for (int k = 0; k < ROW_KEYWORDS.length; k++) {
+			keywords.add(ROW_KEYWORDS[k], 1L << k);
+		}
+		final KeywordMatcher rowKeywords = keywords.build();
+
+		measure("classifyShot", new Operation() {
+			public long call(int i) {
+				return DataParser.classifyShot(shotTexts.get(i % shotTexts.size()));
+			}
+		});
+		measure("row keywords contains", new Operation() {
+			public long call(int i) {
+				String rowText = rowTexts.get(i % rowTexts.size());
+				long found = 0;
+				for (int k = 0; k < ROW_KEYWORDS.length; k++) {
+					if (rowText.contains(ROW_KEYWORDS[k])) {
+						found |= 1L << k;
+					}
+				}
+				return found;
+			}
+		});
+		measure("row keywords matcher", new Operation() {
+			public long call(int i) {
+				return rowKeywords.match(rowTexts.get(i % rowTexts.size()));
+			}
+		});
+		measure("getPossession", new Operation() {
+			public long call(int i) {
+				PlayByPlay game = games.get(i % games.size());
+				return game.getPossession(i % game.getNumRows()) == Possession.HOME ? 1 : 0;
+			}
+		});
+		measure("isEspnPutBackBug", new Operation() {
+			public long call(int i) {
+				PlayByPlay game = games.get(i % games.size());
+				return parser.isEspnPutBackBug(game, i % game.getNumRows()) ? 1 : 0;
+			}
+		});
+		measure("pointsOffRebound walk", new Operation() {
+			public long call(int i) {
+				int[] rebound = offensiveRebounds.get(i % offensiveRebounds.size());
+				return SecondChancePointsBenchmark.walkPointsOffRebound(games.get(rebound[0]), rebound[1]);
+			}
+		});
+		measure("makesAndOne walk", new Operation() {
+			public long call(int i) {
+				int[] shot = madeShots.get(i % madeShots.size());
+				return SecondChancePointsBenchmark.walkMakesAndOne(games.get(shot[0]), shot[1]) ? 1 : 0;
+			}
+		});
+		measure("freeThrowsMade walk", new Operation() {
+			public long call(int i) {
+				int[] freeThrow = freeThrows.get(i % freeThrows.size());
+				return SecondChancePointsBenchmark.walkFreeThrowsMade(games.get(freeThrow[0]), freeThrow[1]);
+			}
+		});
+		measure("second chance points", new Operation() {
+			public long call(int i) {
+				return SecondChancePoints.compute(games.get(i % games.size())).length;
+			}
+		});
+		measure("tokenize one game", new Operation() {
+			public long call(int i) {
+				Document page = Jsoup.parse(htmlPages.get(i % htmlPages.size()), "http://espn.go.com/nba/playbyplay");
+				return new PlayByPlay(page).getNumRows();
+			}
+		});
+		measure("parse one game", new Operation() {
+			public long call(int i) {
+				MultiAnalysisParser allParsers = new MultiAnalysisParser();
+				allParsers.addParser(new OffensiveReboundingPercentageParser());
+				allParsers.addParser(new PointsPerOffensiveReboundParser());
+				allParsers.parsePlayByPlay(Jsoup.parse(htmlPages.get(i % htmlPages.size()), "http://espn.go.com/nba/playbyplay"));
+				return i;
+			}
+		});
+
+		System.out.println("(" + _sink + ")");
+	}
+
+	// warms up the operation, then calls it repeatedly for a fixed time and prints its throughput and allocation
+	private static void measure(String name, Operation operation) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		run(operation, WARMUP_NANOS);
+
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long calls = run(operation, MEASURE_NANOS);
+		long time = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		System.out.println(String.format("%-20s %14.1f ops/s %12.1f bytes/op", name, calls / (time / 1e9), allocated / (double) calls));
+	}
+
+	// calls the operation in batches until the time is up, and returns how many calls were made
+	private static long run(Operation operation, long nanos) {
+		long calls = 0;
+		long end = System.nanoTime() + nanos;
+		int batch = 1;
+		while (System.nanoTime() < end) {
+			for (int i = 0; i < batch; i++) {
+				_sink += operation.call((int) ((calls + i) & Integer.MAX_VALUE));
+			}
+			calls += batch;
+			if (batch < 4096) {
+				batch *= 2;
+			}
+		}
+		return calls;
+	}
+}
@@ -0,0 +1,59 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.jsoup.Jsoup;
+/*
+ * Times the confidence intervals of both zone parsers over several seasons of games.
+ *
+ * Pass it the number of seasons and any number of saved play-by-play pages. The pages are parsed once, and their games
+ * are merged in over and over until there are as many as that many seasons of 1230 games, then the parsers' intervals are
+ * worked out with "nba.bootstrapResamples" resamples (10000 by default) on one thread and on every processor.
+ * Prints the time each took, and checks both came out the same.
+ */
+public class BootstrapBenchmark {
+
+	private static final int GAMES_PER_SEASON = 1230;
+	private static final int WARMUP_ROUNDS = 3;
+
+	public static void main(String[] args) throws IOException {
+		int numSeasons = Integer.parseInt(args[0]);
+		MultiAnalysisParser pages = new MultiAnalysisParser();
+		pages.addParser(new OffensiveReboundingPercentageParser());
+		pages.addParser(new PointsPerOffensiveReboundParser());
+		for (int i = 1; i < args.length; i++) {
+			pages.parsePlayByPlay(Jsoup.parse(new File(args[i]), "UTF-8", "http://espn.go.com/nba/playbyplay?gameId=" + i));
+		}
+
+		int numPages = args.length - 1;
+		int copies = (numSeasons * GAMES_PER_SEASON + numPages - 1) / numPages;
+		String[] results = new String[2];
+		int[] parallelism = { 1, Runtime.getRuntime().availableProcessors() };
+		for (int p = 0; p < parallelism.length; p++) {
+			System.setProperty("nba.analysisThreads", Integer.toString(parallelism[p]));
+			OffensiveReboundingPercentageParser offRebPercent = new OffensiveReboundingPercentageParser();
+			PointsPerOffensiveReboundParser ptsPerOffReb = new PointsPerOffensiveReboundParser();
+			for (int c = 0; c < copies; c++) {
+				offRebPercent.merge(pages.getParsers().get(0));
+				ptsPerOffReb.merge(pages.getParsers().get(1));
+			}
+
+			// merging in an empty parser clears the intervals worked out last, so they are worked out again
+			for (int i = 0; i < WARMUP_ROUNDS; i++) {
+				offRebPercent.merge(new OffensiveReboundingPercentageParser());
+				offRebPercent.getIntervals();
+			}
+			offRebPercent.merge(new OffensiveReboundingPercentageParser());
+			long start = System.nanoTime();
+			GameBootstrap.Intervals offRebIntervals = offRebPercent.getIntervals();
+			GameBootstrap.Intervals ptsIntervals = ptsPerOffReb.getIntervals();
+			long time = System.nanoTime() - start;
+
+			results[p] = offRebIntervals.describe(CONSTANTS.NUMCOURTZONES, "%.4f%%") + ptsIntervals.describe(CONSTANTS.NUMCOURTZONES, "%.4f");
+			System.out.println(String.format("%d seasons (%d games), %d thread(s): %.2f s for both parsers %s", numSeasons, copies * numPages,
+					parallelism[p], time / 1e9, results[p]));
+		}
+		System.out.println(results[0].equals(results[1]) ? "same intervals on every thread count" : "intervals differ between thread counts");
+	}
+}
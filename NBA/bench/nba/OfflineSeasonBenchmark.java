@@ -0,0 +1,73 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+/*
+ * Scrapes a recorded season through a local FixtureServer, as a load test of the whole fetching path that never touches espn.com.
+ *
+ * Pass it an archive directory (any run's page_cache, or one recorded on purpose) and optionally the number of runs, 3 by default.
+ * Each run starts from an empty cache and no event store, so every page goes over HTTP through the PageClient's rate limit,
+ * retries and per-host limits. Latency and failures can be injected with the "nba.inject..." properties FaultPlan reads,
+ * and the season scraped is "nba.season" as usual.
+ * For each run it prints the time, the pages per second and the Metrics summary, and checks that the reports written
+ * are byte for byte the same as the first run's.
+ */
+public class OfflineSeasonBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		File archive = new File(args[0]);
+		int runs = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		int threads = Integer.getInteger("nba.fetchThreads", 16);
+		int maxConnectionsPerHost = Integer.getInteger("nba.maxConnectionsPerHost", 8);
+
+		FaultPlan faults = FaultPlan.fromProperties();
+		FixtureServer server = new FixtureServer(archive, faults, 0, threads);
+		server.start();
+		System.out.println("Serving " + archive + " at " + server.getBaseUrl() + (faults == null ? "" : " with " + faults));
+
+		byte[][] firstReports = null;
+		for (int run = 1; run <= runs; run++) {
+			File directory = Files.createTempDirectory("offline").toFile();
+			Metrics.reset();
+			PageFetcher fetcher = new PageFetcher(threads, new PageClient(maxConnectionsPerHost, server.getBaseUrl()),
+					new PageCache(new File(directory, "page_cache")), false);
+			MultiAnalysisParser parser = newParser(directory);
+			parser.setFetcher(fetcher);
+
+			long start = System.nanoTime();
+			parser.parseData();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			fetcher.shutdown();
+
+			long pages = new File(directory, "page_cache/urls").list().length;
+			byte[][] reports = readReports(directory);
+			if (firstReports == null) {
+				firstReports = reports;
+			}
+			boolean identical = Arrays.deepEquals(firstReports, reports);
+			System.out.println(String.format("run %d: %d pages in %.2f s, %.1f pages/s%s", run, pages, seconds, pages / seconds,
+					identical ? "" : "  REPORTS DIFFER"));
+			Metrics.printSummary(System.out);
+		}
+		server.stop();
+	}
+
+	// returns the contents of the reports written by a run
+	private static byte[][] readReports(File directory) throws IOException {
+		return new byte[][] { Files.readAllBytes(new File(directory, "off.txt").toPath()), Files.readAllBytes(new File(directory, "pts.txt").toPath()) };
+	}
+
+	private static MultiAnalysisParser newParser(File directory) {
+		DataParser offRebPercent = new OffensiveReboundingPercentageParser();
+		offRebPercent.setReportFileName(new File(directory, "off.txt").getPath());
+		DataParser ptsPerOffReb = new PointsPerOffensiveReboundParser();
+		ptsPerOffReb.setReportFileName(new File(directory, "pts.txt").getPath());
+		MultiAnalysisParser parser = new MultiAnalysisParser();
+		parser.addParser(offRebPercent);
+		parser.addParser(ptsPerOffReb);
+		parser.setEventStoreDirectory(null);
+		return parser;
+	}
+}
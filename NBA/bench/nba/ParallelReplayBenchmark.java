@@ -0,0 +1,84 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.jsoup.Jsoup;
+/*
+ * Compares replaying a season's EventStore on one thread with replaying it in parallel with fork-join.
+ *
+ * Pass it any number of saved play-by-play pages. They are tokenized and repeated into a store the size of a full season,
+ * which is then replayed through both parsers sequentially and with 1, 2, 4... threads up to the number of cores.
+ * For each run it prints the time and the speedup over the sequential replay, next to the number of cores,
+ * and checks that the reports written are byte for byte the same as the sequential run's.
+ */
+public class ParallelReplayBenchmark {
+
+	private static final int GAMES_PER_SEASON = 1230;
+	private static final int ROUNDS = 10;
+
+	public static void main(String[] args) throws IOException {
+		PlayByPlay[] pages = new PlayByPlay[args.length];
+		for (int i = 0; i < args.length; i++) {
+			pages[i] = new PlayByPlay(Jsoup.parse(new File(args[i]), "UTF-8", "http://espn.go.com/nba/playbyplay?gameId=" + (i + 1)));
+		}
+		EventStoreWriter writer = new EventStoreWriter();
+		for (int g = 0; g < GAMES_PER_SEASON; g++) {
+			writer.addGame(pages[g % pages.length]);
+		}
+		File directory = Files.createTempDirectory("replay").toFile();
+		File storeFile = new File(directory, "season.events");
+		writer.write(storeFile);
+		EventStore store = new EventStore(storeFile);
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		byte[][] sequentialReports = run(store, 0, directory);
+		double sequentialMillis = time(store, 0);
+		System.out.println(String.format("%d games, %d cores", store.getNumGames(), cores));
+		System.out.println(String.format("%-12s %10.1f ms", "sequential", sequentialMillis));
+
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			boolean identical = Arrays.deepEquals(sequentialReports, run(store, threads, directory));
+			double millis = time(store, threads);
+			System.out.println(String.format("%-12s %10.1f ms %6.2fx speedup on %d of %d cores%s", threads + " threads", millis,
+					sequentialMillis / millis, threads, cores, identical ? "" : "  REPORTS DIFFER"));
+		}
+	}
+
+	// returns the fastest of several replays of the store, in milliseconds. 0 threads means the sequential replay
+	private static double time(EventStore store, int threads) {
+		double fastest = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			MultiAnalysisParser parser = newParser(null);
+			long start = System.nanoTime();
+			if (threads == 0) store.replay(parser);
+			else store.replay(parser, threads);
+			fastest = Math.min(fastest, (System.nanoTime() - start) / 1e6);
+		}
+		return fastest;
+	}
+
+	// replays the store once, and returns the contents of the reports written from it
+	private static byte[][] run(EventStore store, int threads, File directory) throws IOException {
+		MultiAnalysisParser parser = newParser(directory);
+		if (threads == 0) store.replay(parser);
+		else store.replay(parser, threads);
+		parser.interpretResults();
+		return new byte[][] { Files.readAllBytes(new File(directory, "off.txt").toPath()), Files.readAllBytes(new File(directory, "pts.txt").toPath()) };
+	}
+
+	private static MultiAnalysisParser newParser(File directory) {
+		DataParser offRebPercent = new OffensiveReboundingPercentageParser();
+		DataParser ptsPerOffReb = new PointsPerOffensiveReboundParser();
+		if (directory != null) {
+			offRebPercent.setReportFileName(new File(directory, "off.txt").getPath());
+			ptsPerOffReb.setReportFileName(new File(directory, "pts.txt").getPath());
+		}
+		MultiAnalysisParser parser = new MultiAnalysisParser();
+		parser.addParser(offRebPercent);
+		parser.addParser(ptsPerOffReb);
+		return parser;
+	}
+}
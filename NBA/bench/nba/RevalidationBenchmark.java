@@ -0,0 +1,106 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+/*
+ * Re-polls a recorded season's schedule and box score pages through a local FixtureServer, the way in-season refreshes do.
+ *
+ * Pass it an archive directory and optionally the number of re-polls, 3 by default. Every page of "nba.season" in the archive
+ * is fetched once into an empty cache, then fetched again that many times as if its cached copy had gone stale:
+ * first unconditionally, the way every refresh went before pages were revalidated, and then conditionally, where the fixture server
+ * answers 304 to every page and the fetcher hands back the Documents it already parsed.
+ * For each pass it prints the time and the Metrics summary, whose MB are the compressed bytes that came over the wire,
+ * and checks that every page came back the same as the first pass.
+ */
+public class RevalidationBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		File archive = new File(args[0]);
+		int polls = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+		int threads = Integer.getInteger("nba.fetchThreads", 16);
+		int maxConnectionsPerHost = Integer.getInteger("nba.maxConnectionsPerHost", 8);
+
+		FixtureServer server = new FixtureServer(archive, null, 0, threads);
+		server.start();
+		List<String> urls = getPageUrls(archive, Season.parse(System.getProperty("nba.season", "2013-14")));
+		long htmlBytes = 0;
+		PageCache archived = new PageCache(archive);
+		for (String url: urls) {
+			htmlBytes += archived.get(url, PageCache.FOREVER).getBytes("UTF-8").length;
+		}
+		System.out.println(String.format("Serving %d pages (%.2f MB of html) from %s at %s", urls.size(), htmlBytes / 1e6, archive, server.getBaseUrl()));
+
+		File directory = Files.createTempDirectory("revalidation").toFile();
+		PageCache cache = new PageCache(new File(directory, "page_cache"));
+		final PageClient client = new PageClient(maxConnectionsPerHost, server.getBaseUrl());
+		PageFetcher fetcher = new PageFetcher(threads, client, cache, false);
+		// the same client, but never sending the validators it is passed, so every stale page is downloaded again
+		PageFetcher unconditional = new PageFetcher(threads, new PageSource() {
+			public String get(String url, Stage stage) throws IOException {
+				return client.get(url, stage);
+			}
+
+			public <T> T stream(String url, Stage stage, PageReader<T> reader) throws IOException {
+				return client.stream(url, stage, reader);
+			}
+
+			public Page getIfChanged(String url, Stage stage, String etag, String lastModified) throws IOException {
+				return client.getIfChanged(url, stage, null, null);
+			}
+		}, cache, false);
+
+		List<String> first = poll("first fetch", fetcher, urls, null);
+		for (int i = 1; i <= polls; i++) {
+			poll("unconditional re-poll " + i, unconditional, urls, first);
+		}
+		for (int i = 1; i <= polls; i++) {
+			poll("conditional re-poll " + i, fetcher, urls, first);
+		}
+		fetcher.shutdown();
+		unconditional.shutdown();
+		server.stop();
+	}
+
+	// helper method for main. Fetches every page as if its cached copy were stale, and returns each page's html
+	private static List<String> poll(String name, PageFetcher fetcher, List<String> urls, List<String> expected) throws IOException {
+		Metrics.reset();
+		List<String> pages = new ArrayList<String>();
+		long start = System.nanoTime();
+		for (String url: urls) {
+			Document page = fetcher.fetch(url, 0);
+			pages.add(page.outerHtml());
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		boolean same = expected == null || expected.equals(pages);
+		System.out.println(String.format("%s: %d pages in %.2f s%s", name, urls.size(), seconds, same ? "" : "  PAGES DIFFER"));
+		Metrics.printSummary(System.out);
+		return pages;
+	}
+
+	// helper method for main. Returns the season's schedule pages and the box scores they link to, for every page in the archive
+	private static List<String> getPageUrls(File archive, Season season) throws IOException {
+		PageCache archived = new PageCache(archive);
+		PageFetcher offline = new PageFetcher(1, new ArchivePageSource(archived), archived, true);
+		List<String> urls = new ArrayList<String>();
+		Schedule schedule = new Schedule(season, season.getStart(), offline, 0);
+		while (!schedule.isEndOfRegularSeason()) {
+			String url = PageSource.ESPN + "/nba/schedule/_/date/" + schedule.getWeek();
+			if (archived.getEntry(url) != null) {
+				urls.add(url);
+			}
+			for (String boxScore: schedule.getBoxScoreLinks()) {
+				if (archived.getEntry(boxScore) != null) {
+					urls.add(boxScore);
+				}
+			}
+			schedule.advanceToNextWeek();
+		}
+		offline.shutdown();
+		return urls;
+	}
+}
@@ -0,0 +1,255 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+/*
+ * Compares the walk pointsOffRebound used to do for each offensive rebound with SecondChancePoints' single pass over the game.
+ *
+ * Pass it any number of saved play-by-play pages. Each game has its putback rows fixed the way parsePlayByPlay fixes them,
+ * then every offensive rebound's second chance points are worked out both ways. It checks the two agree on every rebound,
+ * and prints the average time to do a whole game each way.
+ * The walk is kept here, as it was, as the reference the single pass has to match.
+ */
+public class SecondChancePointsBenchmark {
+
+	private static final int WARMUP_ROUNDS = 2000;
+	private static final int MEASURED_ROUNDS = 1000;
+
+	public static void main(String[] args) throws IOException {
+		List<PlayByPlay> games = new ArrayList<PlayByPlay>();
+		List<int[]> rebounds = new ArrayList<int[]>();
+		DataParser parser = new OffensiveReboundingPercentageParser();
+		for (String fileName: args) {
+			PlayByPlay game = new PlayByPlay(Jsoup.parse(new File(fileName), "UTF-8", "http://espn.go.com/nba/playbyplay"));
+			for (int i = 0; i + 2 < game.getNumRows(); i++) {
+				if (game.has(i, PlayByPlay.MISS_WITH_REBOUND) && game.hasNextRow(i) && !game.has(i + 1, PlayByPlay.ZERO_CLOCK)
+						&& parser.isEspnPutBackBug(game, i + 1)) {
+					game.swapRows(i + 1, i + 2);
+				}
+			}
+			games.add(game);
+			rebounds.add(offensiveRebounds(game));
+		}
+
+		int checked = 0;
+		int differences = 0;
+		for (int g = 0; g < games.size(); g++) {
+			int[] pointsAfter = SecondChancePoints.compute(games.get(g));
+			for (int row: rebounds.get(g)) {
+				checked++;
+				if (pointsAfter[row] != walkPointsOffRebound(games.get(g), row)) {
+					differences++;
+					System.out.println("differs: " + args[g] + " row " + row + ": walk " + walkPointsOffRebound(games.get(g), row) + ", single pass " + pointsAfter[row]);
+				}
+			}
+		}
+		System.out.println(checked + " offensive rebounds in " + games.size() + " games, " + differences + " differences");
+
+		long sink = 0;
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			for (int g = 0; g < games.size(); g++) {
+				sink += walkGame(games.get(g), rebounds.get(g)) + passGame(games.get(g), rebounds.get(g));
+			}
+		}
+
+		// each way is timed over every game at once, since a single game takes microseconds
+		long walkTime = 0;
+		long passTime = 0;
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			long start = System.nanoTime();
+			for (int g = 0; g < games.size(); g++) {
+				sink += walkGame(games.get(g), rebounds.get(g));
+			}
+			long middle = System.nanoTime();
+			for (int g = 0; g < games.size(); g++) {
+				sink += passGame(games.get(g), rebounds.get(g));
+			}
+			long end = System.nanoTime();
+			walkTime += middle - start;
+			passTime += end - middle;
+		}
+
+		double gamesDone = MEASURED_ROUNDS * (double) games.size();
+		System.out.println("walk per rebound: " + (walkTime / gamesDone / 1000) + " us/game");
+		System.out.println("single pass:      " + (passTime / gamesDone / 1000) + " us/game");
+		System.out.println("(" + sink + ")");
+	}
+
+	// returns the rows of every offensive rebound off a miss, the rows parsePlayByPlay works out second chance points for
+	private static int[] offensiveRebounds(PlayByPlay game) {
+		List<Integer> rows = new ArrayList<Integer>();
+		for (int i = 0; i + 1 < game.getNumRows(); i++) {
+			if (game.has(i, PlayByPlay.MISS_WITH_REBOUND) && game.hasNextRow(i) && !game.has(i + 1, PlayByPlay.ZERO_CLOCK)
+					&& game.has(i + 1, PlayByPlay.OFFENSIVE_REBOUND)) {
+				rows.add(i + 1);
+			}
+		}
+		int[] reboundRows = new int[rows.size()];
+		for (int i = 0; i < reboundRows.length; i++) {
+			reboundRows[i] = rows.get(i);
+		}
+		return reboundRows;
+	}
+
+	private static long walkGame(PlayByPlay game, int[] rebounds) {
+		long points = 0;
+		for (int row: rebounds) {
+			points += walkPointsOffRebound(game, row);
+		}
+		return points;
+	}
+
+	private static long passGame(PlayByPlay game, int[] rebounds) {
+		int[] pointsAfter = SecondChancePoints.compute(game);
+		long points = 0;
+		for (int row: rebounds) {
+			points += pointsAfter[row];
+		}
+		return points;
+	}
+
+	/*
+	 * The walk pointsOffRebound used to do, kept as it was: walks forward from the rebound, and again for every and-one and free throw.
+	 * Returns how many points are scored off an offensive rebound
+	 */
+	static int walkPointsOffRebound(PlayByPlay game, int reboundRow) {
+		
+		int pointsScored = 0;
+		boolean calculatedPointsScored = false;
+		
+		// determine who got rebound
+		Possession reboundPossession = game.getPossession(reboundRow);
+		Possession currentPossession = null;
+		int currentRow = reboundRow;
+		
+		while (calculatedPointsScored == false) {
+				// get possession for next row in play-by-play
+				currentRow++;
+				currentPossession = game.getPossession(currentRow);
+				
+				// if quarter over, text says "End of the nth Quarter." Possession over.
+				if (game.has(currentRow, PlayByPlay.END_OF_PERIOD)) {
+					calculatedPointsScored = true;
+				}
+				
+				// if there is a substitution, timeout, jump ball, delay of game violation, ejection, or technical foul continue to next line in play-by-play since possession doesn't change (if possession changes on jump ball, it says turnover in next line)
+				else if (game.hasAny(currentRow, PlayByPlay.ENTERS_GAME | PlayByPlay.TIMEOUT | PlayByPlay.VS | PlayByPlay.DELAY | PlayByPlay.TECHNICAL_FOUL | PlayByPlay.EJECTED)){
+					continue;
+				}
+				
+				// if the team that has possession in the play-by-play is the team that got the offensive rebound
+				else if (currentPossession == reboundPossession) {
+					// if a team makes the shot, return how many points they got (if goaltending, it appears after made shot in play-by-play, so no need to account for it) 
+					if (game.has(currentRow, PlayByPlay.MAKES)) {
+						// classify shot. zone is taken from the shooting side's cell only, because gametime numbers in neighboring play-by-play cells would mess up shot location 
+						int shot = 0;
+						if (currentPossession != null) shot = game.getZone(currentRow);
+						
+						// if he makes an "and one" on the basket (fouled on made basket and makes free throw), increment points scored by one
+						if (walkMakesAndOne(game, currentRow)) pointsScored++;
+						
+						// if offensive team makes a technical free throw, they keep possession so increment by one point and continue
+						if (game.has(currentRow, PlayByPlay.TECHNICAL)) {
+							pointsScored++;
+							continue;
+						}
+						// increment points scored by how much made shot is worth
+						else if (shot == CONSTANTS.FREETHROW) pointsScored += walkFreeThrowsMade(game, currentRow);
+						else if (shot == CONSTANTS.ATRIM || shot == CONSTANTS.THREETONINE || shot == CONSTANTS.TENTOFIFTEEN  || shot == CONSTANTS.SIXTEENTOTWENTYTHREE || shot == CONSTANTS.MISC) pointsScored +=2;
+						else if ((shot > 23 && shot < 94) || shot == CONSTANTS.THREEPOINTER) pointsScored +=3;
+			
+						calculatedPointsScored = true;
+					}
+					// edge case - if someone misses technical free throw, continue since they keep possession
+					else if (game.has(currentRow, PlayByPlay.MISSES | PlayByPlay.TECHNICAL)) {
+						continue;
+					}
+					// edge case - if someone misses first regular free throw, they could still get points (unlike any other shot), so calculate free throws made
+					else if (game.has(currentRow, PlayByPlay.MISSES | PlayByPlay.FREE)) {
+						pointsScored += walkFreeThrowsMade(game, currentRow);
+						calculatedPointsScored = true;
+					}
+					// if team does not score and turns ball over on next possession in any of the following ways, they get 0 points
+					else if (game.hasAny(currentRow, PlayByPlay.MISSES | PlayByPlay.BLOCKS | PlayByPlay.TURNOVER | PlayByPlay.FOUL | PlayByPlay.TRAVELING | PlayByPlay.BAD_PASS | PlayByPlay.VIOLATION | PlayByPlay.THREE_SECONDS)) {
+						calculatedPointsScored = true;
+					}
+					// accidentally credits offensive rebound twice sometimes (player then team), continue to find out whether they score
+					else if (game.has(currentRow, PlayByPlay.REBOUND)) {
+						continue;
+					}
+				}
+				
+				// if the team that has possession in the play-by-play is NOT the team that got the offensive rebound
+				else if (currentPossession != reboundPossession) {
+					// edge case - if offense commits a tech, defensive team shoots tech but offense keeps possession so continue
+					if (game.has(currentRow, PlayByPlay.TECHNICAL_FREE_THROW)) {
+						continue;
+					}
+					// if opposing team gets a rebound, misses/makes/blocks a shot, or makes a bad pass/turns it over, offensive team's possession is over since other team had possession
+					else if (game.hasAny(currentRow, PlayByPlay.REBOUND | PlayByPlay.MISSES | PlayByPlay.MAKES | PlayByPlay.PASS | PlayByPlay.BLOCKS | PlayByPlay.TURNOVER)) {
+						calculatedPointsScored = true;
+					}
+					// if defensive team commits foul, kicked ball/jump ball/lane violation, defensive 3-seconds, continue to next iteration since offense still has possession
+					else if (game.hasAny(currentRow, PlayByPlay.FOUL | PlayByPlay.VIOLATION | PlayByPlay.THREE_SECONDS)) {
+						continue;
+					}
+				}
+		}
+		return pointsScored;
+	}
+	
+	// checks to see if someone gets an "And One" on a basket (gets fouled on a made basket and hits the additional free throw)
+	static boolean walkMakesAndOne(PlayByPlay game, int basketRow) {
+		// first, check to see if the opposing team commits a shooting foul. If not, return false right away
+		Possession tookShotPossession = game.getPossession(basketRow);
+		int nextRow = basketRow + 1;
+		Possession nextActionPossession = game.getPossession(nextRow);
+		boolean isFoulOnBasket = false;
+		if (tookShotPossession != nextActionPossession) {
+			if (game.has(nextRow, PlayByPlay.SHOOTING_FOUL)) {
+				isFoulOnBasket = true;
+			}
+		}
+		if (isFoulOnBasket == false) {
+			return false;
+		}
+		
+		// if there is a foul and they make the free throw, return true. otherwise, return false
+		if (walkFreeThrowsMade(game, nextRow) == 1) {
+			return true;
+		}
+		
+		return false;
+	}
+	
+	// count the number of made free throws
+	static int walkFreeThrowsMade(PlayByPlay game, int freeThrowRow) {
+		
+		// find first shot free throw (sometimes things like timeout are in the next row after the foul)
+		while (game.getFreeThrowsAwarded(freeThrowRow) == 0) { 
+			freeThrowRow++;
+		}
+		// find out number of free throws are being taken
+		int numFreeThrows = game.getFreeThrowsAwarded(freeThrowRow);
+		
+		// count number of free throws made
+		int pointsScored = 0;
+		int freeThrowsCounted = 0;
+		// only increment freeThrowsCounted on make or miss (not on a substitution or something between shots)
+		while (freeThrowsCounted != numFreeThrows) {
+			if (game.has(freeThrowRow, PlayByPlay.MAKES)) {
+				pointsScored++;
+				freeThrowsCounted++;
+			}
+			else if (game.has(freeThrowRow, PlayByPlay.MISSES)) freeThrowsCounted++;
+			
+			freeThrowRow++;
+		}
+		
+		return pointsScored;
+	}
+}
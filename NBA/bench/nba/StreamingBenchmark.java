@@ -0,0 +1,109 @@
+package nba;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+/*
+ * Compares reading a saved play-by-play page into a full Document (the DOM path) with streaming it through
+ * a TableExtractor and parsing only the play-by-play table (the streaming path).
+ * 
+ * Pass it any number of saved play-by-play pages. For each path it prints the bytes allocated per page, the allocation rate,
+ * and the heap still held by the parsed page, which is what stays live while a page waits to be parsed.
+ * It also checks that both paths tokenize every page into the same rows.
+ */
+public class StreamingBenchmark {
+	
+	private static final int ROUNDS = 30;
+	
+	public static void main(String[] args) throws IOException {
+		File[] pages = new File[args.length];
+		for (int i = 0; i < args.length; i++) {
+			pages[i] = new File(args[i]);
+			if (!sameRows(new PlayByPlay(domPath(pages[i])), new PlayByPlay(streamingPath(pages[i])))) {
+				System.out.println("paths disagree on " + pages[i]);
+			}
+		}
+		
+		for (int round = 0; round < ROUNDS; round++) {
+			for (File page: pages) {
+				domPath(page);
+				streamingPath(page);
+			}
+		}
+		
+		report("DOM path", pages, false);
+		report("streaming path", pages, true);
+	}
+	
+	private static void report(String name, File[] pages, boolean streaming) throws IOException {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (File page: pages) {
+				if (streaming) streamingPath(page);
+				else domPath(page);
+			}
+		}
+		long time = System.nanoTime() - start;
+		long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		double pagesRead = ROUNDS * (double) pages.length;
+		
+		// hold every parsed page at once and see how much heap they keep, like pages waiting in the fetch queue
+		Document[] held = new Document[pages.length];
+		long usedBefore = usedHeap();
+		for (int i = 0; i < pages.length; i++) {
+			held[i] = streaming ? streamingPath(pages[i]) : domPath(pages[i]);
+		}
+		long retained = usedHeap() - usedBefore;
+		
+		System.out.println(name + ":");
+		System.out.println("  allocated per page: " + (long) (allocated / pagesRead / 1024) + " KB");
+		System.out.println("  allocation rate:    " + (long) (allocated / (time / 1e9) / (1024 * 1024)) + " MB/s");
+		System.out.println("  heap held per page: " + (retained / held.length / 1024) + " KB");
+	}
+	
+	private static Document domPath(File page) throws IOException {
+		return Jsoup.parse(page, "UTF-8", "http://espn.go.com/nba/playbyplay");
+	}
+	
+	private static Document streamingPath(File page) throws IOException {
+		Reader in = new InputStreamReader(new FileInputStream(page), "UTF-8");
+		try {
+			return Jsoup.parse(new TableExtractor("mod-data").extract(in), "http://espn.go.com/nba/playbyplay");
+		} finally {
+			in.close();
+		}
+	}
+	
+	private static long usedHeap() {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+	
+	// returns true if the two tokenized games have the same rows
+	private static boolean sameRows(PlayByPlay dom, PlayByPlay streamed) {
+		if (dom.getNumRows() != streamed.getNumRows()) {
+			return false;
+		}
+		for (int i = 0; i < dom.getNumRows(); i++) {
+			if (dom.getFlags(i) != streamed.getFlags(i) || dom.getZone(i) != streamed.getZone(i) || dom.getSide(i) != streamed.getSide(i)
+					|| dom.getClock(i) != streamed.getClock(i) || dom.hasNextRow(i) != streamed.hasNextRow(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
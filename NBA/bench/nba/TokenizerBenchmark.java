@@ -0,0 +1,90 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+/*
+ * Compares the old selector-based scan of a play-by-play with the PlayByPlay tokenizer.
+ * 
+ * Pass it any number of saved play-by-play pages. Both paths find every miss that can be rebounded,
+ * check the row after it and work out who has possession in every row, which is the work parsePlayByPlay and pointsOffRebound
+ * used to do with selectors. Prints the average time to scan one game each way.
+ */
+public class TokenizerBenchmark {
+	
+	private static final int WARMUP_ROUNDS = 20;
+	private static final int MEASURED_ROUNDS = 50;
+	
+	public static void main(String[] args) throws IOException {
+		List<Document> games = new ArrayList<Document>();
+		for (String fileName: args) {
+			games.add(Jsoup.parse(new File(fileName), "UTF-8", "http://espn.go.com/nba/playbyplay"));
+		}
+		
+		long sink = 0;
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			for (Document game: games) {
+				sink += selectorScan(game) + tokenizerScan(game);
+			}
+		}
+		
+		long selectorTime = 0;
+		long tokenizerTime = 0;
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			for (Document game: games) {
+				long start = System.nanoTime();
+				sink += selectorScan(game);
+				long middle = System.nanoTime();
+				sink += tokenizerScan(game);
+				long end = System.nanoTime();
+				selectorTime += middle - start;
+				tokenizerTime += end - middle;
+			}
+		}
+		
+		double gamesScanned = MEASURED_ROUNDS * (double) games.size();
+		System.out.println("selector scan:  " + (selectorTime / gamesScanned / 1000000) + " ms/game");
+		System.out.println("tokenizer scan: " + (tokenizerTime / gamesScanned / 1000000) + " ms/game");
+		System.out.println("(" + sink + ")");
+	}
+	
+	// the scan parsePlayByPlay did before the tokenizer: selectors run on every row, and on every row again for possession
+	private static long selectorScan(Document game) {
+		long found = 0;
+		Elements rows = game.getElementsByClass("mod-data").select("tr");
+		for (Element row: rows) {
+			Elements miss = row.select("td:contains(misses), td:contains(blocks)").not("td:contains(1 of 2), td:contains(1 of 3), td:contains(2 of 3), td:contains(technical)");
+			if (!miss.isEmpty()) {
+				Element reboundRow = row.nextElementSibling();
+				if (reboundRow != null && reboundRow.select("td:contains(0:00)").isEmpty()) {
+					found += miss.text().length();
+				}
+			}
+			if (row.select("td:nth-child(2)").text().length() > 1 || row.select("td:nth-child(4)").text().length() > 1) {
+				found++;
+			}
+		}
+		return found;
+	}
+	
+	// the same scan done by tokenizing the game once and reading the arrays
+	private static long tokenizerScan(Document game) {
+		long found = 0;
+		PlayByPlay playByPlay = new PlayByPlay(game);
+		for (int i = 0; i < playByPlay.getNumRows(); i++) {
+			if (playByPlay.has(i, PlayByPlay.MISS_WITH_REBOUND) && playByPlay.hasNextRow(i) && !playByPlay.has(i + 1, PlayByPlay.ZERO_CLOCK)) {
+				found += playByPlay.getZone(i);
+			}
+			if (playByPlay.getSide(i) != PlayByPlay.NO_SIDE) {
+				found++;
+			}
+		}
+		return found;
+	}
+}
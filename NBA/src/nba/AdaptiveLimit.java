@@ -0,0 +1,48 @@
+package nba;
+/*
+ * This class limits how many requests can be open against one host at once, and adapts the limit to how the host is coping.
+ *
+ * The limit grows slowly while requests succeed quickly, and is cut in half as soon as one fails or takes longer than the target latency,
+ * so the scraper settles at about the most concurrent requests the host will answer promptly.
+ * It never goes below one request or above the maximum it was created with.
+ */
+public class AdaptiveLimit {
+
+	private int _maxLimit;
+	private long _targetLatencyNanos;
+
+	private double _limit;
+	private int _inFlight;
+
+	// starts by allowing maxLimit requests at once
+	public AdaptiveLimit(int maxLimit, long targetLatencyMillis) {
+		_maxLimit = Math.max(1, maxLimit);
+		_targetLatencyNanos = targetLatencyMillis * 1000000L;
+		_limit = _maxLimit;
+	}
+
+	// waits until there is room for one more request under the current limit
+	public synchronized void acquire() throws InterruptedException {
+		while (_inFlight >= (int) _limit) {
+			this.wait();
+		}
+		_inFlight++;
+	}
+
+	// releases a request that finished, and adjusts the limit by how it went
+	public synchronized void release(boolean succeeded, long latencyNanos) {
+		_inFlight--;
+		if (!succeeded || latencyNanos > _targetLatencyNanos) {
+			_limit = Math.max(1, _limit / 2);
+		}
+		else {
+			// grows by about one request for every full limit's worth of successes
+			_limit = Math.min(_maxLimit, _limit + 1 / _limit);
+		}
+		this.notifyAll();
+	}
+
+	public synchronized int getLimit() {
+		return (int) _limit;
+	}
+}
@@ -1,7 +1,13 @@
 package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 /*
  * This program is designed to scrape the play-by-play in every box score of every regular season NBA game on espn.com
- * It can parse the play-by-plays in two different ways.
+ * It can parse the play-by-plays in three different ways.
  * 
  * 1.If the parameter passed in "isOffRebPercent", in each play-by-play, it locates every single missed shot, and records the distance the shot was taken from,
  * and whether it led to an offensive or defensive rebound. It then calculates the offensive rebounding percentage off
@@ -11,6 +17,31 @@ package nba;
  * it records the distance the shot was taken from, and how many second chance points the shot resulted in. It then calculates 
  * the average second chance points scored per offensive rebound off misses from each zone of the court.
  * 
+ * 3. If the parameter passed in is "Breakdowns", it counts the rebounds off every miss and the second chance points after them
+ * by shooter, rebounder, team and opponent, and lists the teams and the top players.
+ * 
+ * 4. If the parameter passed in is "All", it does all of the above over a single scrape of the schedule, writing the results
+ * to OffRebPercent.txt, AveragePointsAfterOffRebounds.txt and Breakdowns.txt.
+ * 
+ * Any parameters after the first name the seasons to scrape, either by their years like "2012-13" or as a range of dates like "20131029-20131231".
+ * The seasons are scraped at the same time, and each season's results are written to files ending in its name, like "OffRebPercent_2012-13.txt".
+ * With no seasons named, it scrapes the 2013-14 regular season.
+ * 
+ * The same results are also exported as tables under results/, in CSV, JSON and a compact columnar format, with a row for each
+ * season, zone and team, so other programs don't have to read the text reports. See ResultsExporter.
+ * 
+ * If the first parameter is "Shards", the scrape is split across worker processes by a ShardCoordinator. The second parameter is
+ * "OffRebPercent", "PtsPerOffReb" or "All" (which leaves out the breakdowns), and any after it name the seasons, as above.
+ * It starts "nba.shardWorkers" workers on this machine (4 by default), and more can be started anywhere with ShardWorker.
+ * 
+ * If the first parameter is "Daemon", it keeps the results of one season (the second parameter, or 2013-14) up to date instead,
+ * looking for newly finished games every 15 minutes and serving the results on a local HTTP port. See ScraperDaemon.
+ * 
+ * While it runs, the time spent in each stage of the scrape is written to metrics.txt every 30 seconds, and printed at the end.
+ * 
+ * Every game scraped is saved under events/ as it goes. Running it again resumes a scrape that was stopped part way, and
+ * running it once a day during a season only scrapes the games played since the day before.
+ * 
  * This information can be used to analyze whether missed shots from certain locations on the court are actually 
  * more valuable than missed shots taken from other locations. If shots taken from a certain location lead 
  * to offensive rebounds a higher percent of the time, and if offensive rebounds off certain misses lead to more second chance points,
@@ -21,17 +52,155 @@ package nba;
 public class App {
 
 	public App(ParserType parser) {
+		DataParser seasonParser = createParser(parser, "", false);
+		seasonParser.parseData();
+		this.exportResults(Collections.singletonList(seasonParser));
+	}
+	
+	// scrapes every season it is passed at the same time, writing each season's results to files named after it
+	public App(ParserType parser, List<Season> seasons) {
+		SeasonRunner runner = new SeasonRunner();
+		List<DataParser> seasonParsers = new ArrayList<DataParser>();
+		for (Season season: seasons) {
+			DataParser seasonParser = createParser(parser, "_" + season.getName(), false);
+			seasonParser.setSeason(season);
+			runner.addParser(seasonParser);
+			seasonParsers.add(seasonParser);
+		}
+		runner.run();
+		this.exportResults(seasonParsers);
+	}
+	
+	/*
+	 * scrapes the seasons across worker processes, numWorkers of them started on this machine,
+	 * writing each season's results to files named after it
+	 */
+	public App(ParserType parser, List<Season> seasons, int numWorkers) {
+		if (parser == ParserType.MultiAnalysisParser) {
+			System.out.println("Sharded scrapes skip the breakdowns, so only the zone results are written");
+		}
+		ShardCoordinator coordinator = new ShardCoordinator(parser);
+		List<DataParser> seasonParsers = new ArrayList<DataParser>();
+		for (Season season: seasons) {
+			DataParser seasonParser = createParser(parser, "_" + season.getName(), true);
+			coordinator.addSeason(season, (ShardableParser) seasonParser);
+			seasonParsers.add(seasonParser);
+		}
+		try {
+			coordinator.start();
+			System.out.println("Coordinating workers at " + coordinator.getAddress());
+			coordinator.startLocalWorkers(numWorkers);
+		} catch (IOException e) {
+			e.printStackTrace();
+			coordinator.stop();
+			return;
+		}
+		List<String> leftOut = coordinator.run();
+		if (!leftOut.isEmpty()) {
+			System.err.println(leftOut.size() + " games couldn't be parsed and are left out of the results: " + leftOut);
+		}
+		this.exportResults(seasonParsers);
+	}
+	
+	// exports the results of every season's parser into one set of tables, unless exporting is turned off
+	private void exportResults(List<DataParser> seasonParsers) {
+		ResultsExporter exporter = ResultsExporter.fromProperties();
+		if (exporter == null) {
+			return;
+		}
+		try {
+			exporter.export(seasonParsers);
+			exporter.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/*
+	 * Returns a parser of the type it is passed, whose results go to files ending in suffix.
+	 * Breakdowns are counted by player name, which isn't the same id in different processes, so a parser for a sharded scrape
+	 * leaves them out: All is just the two zone parsers, and Breakdowns can't be sharded at all. A parser for a sharded scrape
+	 * is always a ShardableParser.
+	 */
+	static DataParser createParser(ParserType parser, String suffix, boolean sharded) {
 		if (parser == ParserType.OffensiveReboundingPercentageParser) {
-			new OffensiveReboundingPercentageParser();
+			DataParser offRebPercent = new OffensiveReboundingPercentageParser();
+			offRebPercent.setReportFileName("Data" + suffix + ".txt");
+			return offRebPercent;
 		}
 		else if (parser == ParserType.PointsPerOffensiveReboundParser) {
-			new PointsPerOffensiveReboundParser();
+			DataParser ptsPerOffReb = new PointsPerOffensiveReboundParser();
+			ptsPerOffReb.setReportFileName("Data" + suffix + ".txt");
+			return ptsPerOffReb;
+		}
+		else if (parser == ParserType.SecondChanceBreakdownParser) {
+			if (sharded) {
+				throw new IllegalArgumentException("Breakdowns can't be sent between processes");
+			}
+			DataParser breakdowns = new SecondChanceBreakdownParser();
+			breakdowns.setReportFileName("Data" + suffix + ".txt");
+			return breakdowns;
+		}
+		else if (parser == ParserType.MultiAnalysisParser) {
+			DataParser offRebPercent = new OffensiveReboundingPercentageParser();
+			offRebPercent.setReportFileName("OffRebPercent" + suffix + ".txt");
+			DataParser ptsPerOffReb = new PointsPerOffensiveReboundParser();
+			ptsPerOffReb.setReportFileName("AveragePointsAfterOffRebounds" + suffix + ".txt");
+			DataParser breakdowns = new SecondChanceBreakdownParser();
+			breakdowns.setReportFileName("Breakdowns" + suffix + ".txt");
+			
+			MultiAnalysisParser allParsers = new MultiAnalysisParser();
+			allParsers.addParser(offRebPercent);
+			allParsers.addParser(ptsPerOffReb);
+			if (!sharded) {
+				allParsers.addParser(breakdowns);
+			}
+			return allParsers;
+		}
+		throw new IllegalArgumentException("No parser of type " + parser);
+	}
+
+	// starts a ScraperDaemon for the season, and waits until the program is killed
+	private static void runDaemon(Season season) {
+		final ScraperDaemon daemon = new ScraperDaemon(season);
+		try {
+			daemon.start();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				daemon.stop();
+			}
+		});
+		System.out.println("Serving " + season + " on http://localhost:" + daemon.getPort() + "/status");
+		try {
+			Thread.currentThread().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
 	public static void main(String[] args) {
+		// write the metrics of each stage of the scrape to a file while it runs, and print them when it is done
+		File metricsFile = new File(System.getProperty("nba.metricsFile", "metrics.txt"));
+		Metrics.startExporting(metricsFile, Long.getLong("nba.metricsIntervalSeconds", 30));
+		
 		ParserType parser = null;
-		String program = args[0];
+		String program = (args.length > 0) ? args[0] : "";
+		
+		// the daemon keeps one season up to date and serves it until it is killed
+		if (program.equals("Daemon")) {
+			runDaemon(args.length > 1 ? Season.parse(args[1]) : Season.parse(System.getProperty("nba.season", "2013-14")));
+			return;
+		}
+		
+		// the scrape is split across worker processes, and the name of the results to work out comes second
+		boolean sharded = program.equals("Shards");
+		if (sharded) {
+			program = (args.length > 1) ? args[1] : "";
+		}
 		
 		if(program.equals("OffRebPercent")) {
 			parser = ParserType.OffensiveReboundingPercentageParser;
@@ -39,7 +208,52 @@ public class App {
 		else if (program.equals("PtsPerOffReb")) {
 			parser = ParserType.PointsPerOffensiveReboundParser;
 		}
+		else if (program.equals("Breakdowns")) {
+			parser = ParserType.SecondChanceBreakdownParser;
+		}
+		else if (program.equals("All")) {
+			parser = ParserType.MultiAnalysisParser;
+		}
 		
-		new App(parser);
+		// any parameters after the first name the seasons to scrape
+		if (sharded) {
+			if (parser == null || parser == ParserType.SecondChanceBreakdownParser) {
+				System.err.println("Usage: Shards OffRebPercent|PtsPerOffReb|All [season ...]");
+				System.err.println("Breakdowns can't be sharded, and All leaves them out");
+				return;
+			}
+			List<Season> seasons = new ArrayList<Season>();
+			for (int i = 2; i < args.length; i++) {
+				seasons.add(Season.parse(args[i]));
+			}
+			if (seasons.isEmpty()) {
+				seasons.add(Season.parse(System.getProperty("nba.season", "2013-14")));
+			}
+			new App(parser, seasons, Integer.getInteger("nba.shardWorkers", 4));
+		}
+		else if (parser == null) {
+			System.err.println("Usage: OffRebPercent|PtsPerOffReb|Breakdowns|All [season ...]");
+			System.err.println("   or: Shards OffRebPercent|PtsPerOffReb|All [season ...]");
+			System.err.println("   or: Daemon [season]");
+			return;
+		}
+		else if (args.length > 1) {
+			List<Season> seasons = new ArrayList<Season>();
+			for (int i = 1; i < args.length; i++) {
+				seasons.add(Season.parse(args[i]));
+			}
+			new App(parser, seasons);
+		}
+		else {
+			new App(parser);
+		}
+		
+		Metrics.stopExporting();
+		try {
+			Metrics.export(metricsFile);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		Metrics.printSummary(System.out);
 	}	
 }
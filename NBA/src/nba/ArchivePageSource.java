@@ -0,0 +1,36 @@
+package nba;
+
+import java.io.IOException;
+import java.io.StringReader;
+/*
+ * This class serves pages from a recorded archive instead of the network, so whole seasons can be scraped offline and the same way every time.
+ *
+ * An archive is a PageCache directory. Any run's page_cache records every page it downloaded, so it can be replayed as an archive.
+ * A page missing from the archive fails the way a page missing from espn.com would, with a 404.
+ */
+public class ArchivePageSource implements PageSource {
+
+	private PageCache _archive;
+
+	public ArchivePageSource(PageCache archive) {
+		_archive = archive;
+	}
+
+	public String get(String url, Stage stage) throws IOException {
+		String html = _archive.get(url, PageCache.FOREVER);
+		if (html == null) {
+			throw new HttpStatusException(404, url);
+		}
+		Metrics.recordBytes(stage, html.length());
+		return html;
+	}
+
+	// an archive keeps no validators, so it always returns the whole page
+	public Page getIfChanged(String url, Stage stage, String etag, String lastModified) throws IOException {
+		return new Page(this.get(url, stage), null, null);
+	}
+
+	public <T> T stream(String url, Stage stage, PageReader<T> reader) throws IOException {
+		return reader.read(new StringReader(this.get(url, stage)));
+	}
+}
@@ -0,0 +1,30 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+/*
+ * Helper methods for writing files so that readers only ever see the old contents or the complete new contents, never half a file.
+ * The new contents are written to a temporary file in the same directory, which is then renamed over the target.
+ */
+public final class AtomicFile {
+	
+	private AtomicFile() {}
+	
+	// returns a new, empty temporary file in the same directory as target
+	public static File tempFileFor(File target) throws IOException {
+		File directory = target.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		return File.createTempFile(".tmp", ".part", directory);
+	}
+	
+	// renames temp over target, retrying with a delete on file systems that won't rename over an existing file
+	public static void replace(File temp, File target) throws IOException {
+		if (!temp.renameTo(target)) {
+			target.delete();
+			if (!temp.renameTo(target)) {
+				temp.delete();
+				throw new IOException("Could not write " + target);
+			}
+		}
+	}
+}
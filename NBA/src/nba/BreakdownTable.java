@@ -0,0 +1,303 @@
+package nba;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+/*
+ * This class counts rebounds and second chance points broken down by zone of the court, team and player.
+ *
+ * Each (zone, team, player) key is packed into a long and looked up in an open-addressing hash table of longs,
+ * whose slots index straight into primitive arrays of counts, so recording a rebound never allocates
+ * however many players a season has. Teams and players are Names ids.
+ *
+ * Tables can be merged, rolled up over any of their three parts, filtered, and queried for their top rows by any metric.
+ * ANY stands for every zone, team or player, both in a filter and in the rows of a table that has been rolled up.
+ */
+public class BreakdownTable {
+
+	public static final int ANY = -1;
+
+	// the metrics rows can be ranked by
+	public static final int OFFENSIVE_REBOUNDS = 0;
+	public static final int DEFENSIVE_REBOUNDS = 1;
+	public static final int SECOND_CHANCE_POINTS = 2;
+	public static final int OFFENSIVE_REBOUNDING_PERCENTAGE = 3;
+	public static final int POINTS_PER_OFFENSIVE_REBOUND = 4;
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	private long[] _keys;
+	private int[] _slots;
+	private int _size;
+
+	// the key of each slot and its counts, indexed by slot. Slots are handed out in the order keys are first counted
+	private long[] _slotKeys;
+	private long[] _offensiveRebounds;
+	private long[] _defensiveRebounds;
+	private long[] _secondChancePoints;
+
+	public BreakdownTable() {
+		_keys = new long[INITIAL_CAPACITY];
+		Arrays.fill(_keys, EMPTY);
+		_slots = new int[INITIAL_CAPACITY];
+		_slotKeys = new long[INITIAL_CAPACITY / 2];
+		_offensiveRebounds = new long[INITIAL_CAPACITY / 2];
+		_defensiveRebounds = new long[INITIAL_CAPACITY / 2];
+		_secondChancePoints = new long[INITIAL_CAPACITY / 2];
+	}
+
+	// records an offensive rebound and the second chance points scored after it
+	public void addOffensiveRebound(int zone, int team, int player, int secondChancePoints) {
+		int slot = this.slotFor(key(zone, team, player));
+		_offensiveRebounds[slot]++;
+		_secondChancePoints[slot] += secondChancePoints;
+	}
+
+	public void addDefensiveRebound(int zone, int team, int player) {
+		int slot = this.slotFor(key(zone, team, player));
+		_defensiveRebounds[slot]++;
+	}
+
+	// adds every count in other to this table
+	public void merge(BreakdownTable other) {
+		for (int slot = 0; slot < other._size; slot++) {
+			this.add(other.keyOf(slot), other._offensiveRebounds[slot], other._defensiveRebounds[slot], other._secondChancePoints[slot]);
+		}
+	}
+
+	// returns the number of distinct keys counted
+	public int size() {
+		return _size;
+	}
+
+	/*
+	 * Returns a new table of the rows matching the filter, added up over the parts that aren't kept.
+	 * The filter's parts are a zone, team and player to match, or ANY. Parts that aren't kept become ANY,
+	 * so rollup(ANY, team, ANY, false, true, false) is one row with everything counted for the team.
+	 */
+	public BreakdownTable rollup(int zone, int team, int player, boolean keepZone, boolean keepTeam, boolean keepPlayer) {
+		BreakdownTable rolledUp = new BreakdownTable();
+		for (int slot = 0; slot < _size; slot++) {
+			long key = this.keyOf(slot);
+			if (!matches(key, zone, team, player)) {
+				continue;
+			}
+			rolledUp.add(key(keepZone ? zoneOf(key) : ANY, keepTeam ? teamOf(key) : ANY, keepPlayer ? playerOf(key) : ANY),
+					_offensiveRebounds[slot], _defensiveRebounds[slot], _secondChancePoints[slot]);
+		}
+		return rolledUp;
+	}
+
+	/*
+	 * Returns up to n rows with the highest value of the metric, highest first.
+	 * Rows with fewer than minRebounds rebounds of the kind the metric is about are left out, so percentages and averages
+	 * over a handful of rebounds don't crowd out the rest. Ties keep the order the keys were first counted in.
+	 */
+	public List<Row> top(final int metric, int n, long minRebounds) {
+		List<Row> rows = new ArrayList<Row>();
+		for (int slot = 0; slot < _size; slot++) {
+			Row row = this.rowAt(slot);
+			long rebounds = (metric == POINTS_PER_OFFENSIVE_REBOUND || metric == SECOND_CHANCE_POINTS) ? row.getOffensiveRebounds()
+					: (metric == DEFENSIVE_REBOUNDS) ? row.getDefensiveRebounds() : row.getRebounds();
+			if (rebounds >= minRebounds && rebounds > 0) {
+				rows.add(row);
+			}
+		}
+		Collections.sort(rows, new Comparator<Row>() {
+			public int compare(Row first, Row second) {
+				return Double.compare(second.get(metric), first.get(metric));
+			}
+		});
+		return rows.subList(0, Math.min(n, rows.size()));
+	}
+
+	// returns the counts of the key with the zone, team and player it is passed, which are all zero if it was never counted
+	public Row get(int zone, int team, int player) {
+		int slot = this.find(key(zone, team, player));
+		return (slot == -1) ? new Row(key(zone, team, player), 0, 0, 0) : this.rowAt(slot);
+	}
+
+	// returns every row of the table, in the order the keys were first counted in
+	public List<Row> getRows() {
+		List<Row> rows = new ArrayList<Row>(_size);
+		for (int slot = 0; slot < _size; slot++) {
+			rows.add(this.rowAt(slot));
+		}
+		return rows;
+	}
+
+	// helper method for merge and rollup. Adds counts to the key's slot
+	private void add(long key, long offensiveRebounds, long defensiveRebounds, long secondChancePoints) {
+		int slot = this.slotFor(key);
+		_offensiveRebounds[slot] += offensiveRebounds;
+		_defensiveRebounds[slot] += defensiveRebounds;
+		_secondChancePoints[slot] += secondChancePoints;
+	}
+
+	private Row rowAt(int slot) {
+		return new Row(this.keyOf(slot), _offensiveRebounds[slot], _defensiveRebounds[slot], _secondChancePoints[slot]);
+	}
+
+	private long keyOf(int slot) {
+		return _slotKeys[slot];
+	}
+
+	// returns the slot of the key, or -1 if it has never been counted
+	private int find(long key) {
+		int mask = _keys.length - 1;
+		for (int i = hash(key) & mask; _keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (_keys[i] == key) {
+				return _slots[i];
+			}
+		}
+		return -1;
+	}
+
+	// returns the slot of the key, handing out the next slot if it has never been counted. Linear probing, kept under half full
+	private int slotFor(long key) {
+		int mask = _keys.length - 1;
+		int i = hash(key) & mask;
+		while (_keys[i] != EMPTY) {
+			if (_keys[i] == key) {
+				return _slots[i];
+			}
+			i = (i + 1) & mask;
+		}
+
+		int slot = _size++;
+		_keys[i] = key;
+		_slots[i] = slot;
+		if (slot == _slotKeys.length) {
+			int capacity = _slotKeys.length * 2;
+			_slotKeys = Arrays.copyOf(_slotKeys, capacity);
+			_offensiveRebounds = Arrays.copyOf(_offensiveRebounds, capacity);
+			_defensiveRebounds = Arrays.copyOf(_defensiveRebounds, capacity);
+			_secondChancePoints = Arrays.copyOf(_secondChancePoints, capacity);
+		}
+		_slotKeys[slot] = key;
+		if (_size * 2 > _keys.length) {
+			this.rehash();
+		}
+		return slot;
+	}
+
+	// helper method for slotFor. Doubles the hash table. Slots, and so the counts, stay where they are
+	private void rehash() {
+		long[] keys = new long[_keys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		int[] slots = new int[keys.length];
+		int mask = keys.length - 1;
+		for (int slot = 0; slot < _size; slot++) {
+			int i = hash(_slotKeys[slot]) & mask;
+			while (keys[i] != EMPTY) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = _slotKeys[slot];
+			slots[i] = slot;
+		}
+		_keys = keys;
+		_slots = slots;
+	}
+
+	// spreads the bits of a key, since ids are small and close together
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	// packs a zone (8 bits), team (24 bits) and player (32 bits) into a key. ANY packs to all ones
+	static long key(int zone, int team, int player) {
+		return ((long) (zone & 0xFF) << 56) | ((long) (team & 0xFFFFFF) << 32) | (player & 0xFFFFFFFFL);
+	}
+
+	static int zoneOf(long key) {
+		int zone = (int) (key >>> 56);
+		return (zone == 0xFF) ? ANY : zone;
+	}
+
+	static int teamOf(long key) {
+		int team = (int) (key >>> 32) & 0xFFFFFF;
+		return (team == 0xFFFFFF) ? ANY : team;
+	}
+
+	static int playerOf(long key) {
+		return (int) key;
+	}
+
+	// returns true if the key matches a filter of a zone, team and player, any of which can be ANY
+	private static boolean matches(long key, int zone, int team, int player) {
+		return (zone == ANY || zoneOf(key) == zone) && (team == ANY || teamOf(key) == team) && (player == ANY || playerOf(key) == player);
+	}
+
+	// the counts of one key of a table
+	public static class Row {
+
+		private long _key;
+		private long _offensiveRebounds;
+		private long _defensiveRebounds;
+		private long _secondChancePoints;
+
+		public Row(long key, long offensiveRebounds, long defensiveRebounds, long secondChancePoints) {
+			_key = key;
+			_offensiveRebounds = offensiveRebounds;
+			_defensiveRebounds = defensiveRebounds;
+			_secondChancePoints = secondChancePoints;
+		}
+
+		// returns the zone of the court (a CONSTANTS index), or ANY
+		public int getZone() {
+			return zoneOf(_key);
+		}
+
+		// returns the Names id of the team, or ANY
+		public int getTeam() {
+			return teamOf(_key);
+		}
+
+		// returns the Names id of the player, Names.NONE for a team rebound, or ANY
+		public int getPlayer() {
+			return playerOf(_key);
+		}
+
+		public long getOffensiveRebounds() {
+			return _offensiveRebounds;
+		}
+
+		public long getDefensiveRebounds() {
+			return _defensiveRebounds;
+		}
+
+		public long getRebounds() {
+			return _offensiveRebounds + _defensiveRebounds;
+		}
+
+		public long getSecondChancePoints() {
+			return _secondChancePoints;
+		}
+
+		// returns the percentage of rebounds that were offensive, or NaN if there were none
+		public double getOffensiveReboundingPercentage() {
+			return _offensiveRebounds / (double) this.getRebounds() * 100;
+		}
+
+		// returns the average second chance points after an offensive rebound, or NaN if there were none
+		public double getPointsPerOffensiveRebound() {
+			return _secondChancePoints / (double) _offensiveRebounds;
+		}
+
+		// returns the value of one of the metrics, like OFFENSIVE_REBOUNDING_PERCENTAGE
+		public double get(int metric) {
+			switch (metric) {
+				case OFFENSIVE_REBOUNDS: return _offensiveRebounds;
+				case DEFENSIVE_REBOUNDS: return _defensiveRebounds;
+				case SECOND_CHANCE_POINTS: return _secondChancePoints;
+				case OFFENSIVE_REBOUNDING_PERCENTAGE: return this.getOffensiveReboundingPercentage();
+				case POINTS_PER_OFFENSIVE_REBOUND: return this.getPointsPerOffensiveRebound();
+				default: throw new IllegalArgumentException("Unknown metric: " + metric);
+			}
+		}
+	}
+}
@@ -15,4 +15,14 @@ public final class CONSTANTS {
 	
 	public static final int NUMCOURTZONES = 7;
 	
+	// names of the zones, indexed by zone, as they appear in exported results
+	public static final String[] ZONE_NAMES = { "at_rim", "3_to_9_feet", "10_to_15_feet", "16_to_23_feet", "three_pointer", "free_throw", "misc" };
+	
+	// furthest distance in feet a shot can be taken from and still fall in each zone (anything further is a three).
+	// ShotClassifier uses these unless the system property "nba.zoneBounds" lists other bounds, like "2,9,15,23"
+	public static final int ATRIM_MAX_FEET = 2;
+	public static final int THREETONINE_MAX_FEET = 9;
+	public static final int TENTOFIFTEEN_MAX_FEET = 15;
+	public static final int SIXTEENTOTWENTYTHREE_MAX_FEET = 23;
+	
 }
@@ -0,0 +1,71 @@
+package nba;
+/*
+ * This class is a circuit breaker for one host.
+ *
+ * After too many requests to the host fail in a row, the circuit opens and requests are refused straight away,
+ * instead of every one of them waiting out its own timeout against a host that is down or throttling.
+ * Once the cooldown has passed a single trial request is let through. If it succeeds the circuit closes again,
+ * and if it fails the circuit stays open for another cooldown.
+ */
+public class CircuitBreaker {
+
+	private int _failureThreshold;
+	private long _cooldownMillis;
+
+	private int _consecutiveFailures;
+	private long _openedAt;
+	private boolean _open;
+	private boolean _trialInFlight;
+	// the thread sending the trial request
+	private Thread _trialThread;
+
+	public CircuitBreaker(int failureThreshold, long cooldownMillis) {
+		_failureThreshold = failureThreshold;
+		_cooldownMillis = cooldownMillis;
+	}
+
+	// returns true if a request may be sent. While the circuit is open, only the single trial request after the cooldown is allowed
+	public synchronized boolean allowRequest() {
+		if (!_open) {
+			return true;
+		}
+		if (!_trialInFlight && System.currentTimeMillis() - _openedAt >= _cooldownMillis) {
+			_trialInFlight = true;
+			_trialThread = Thread.currentThread();
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Gives back a request allowRequest allowed on this thread that was never sent,
+	 * so a trial that never went out doesn't keep the circuit open for good.
+	 */
+	public synchronized void cancelRequest() {
+		if (_trialInFlight && _trialThread == Thread.currentThread()) {
+			_trialInFlight = false;
+			_trialThread = null;
+		}
+	}
+
+	public synchronized void recordSuccess() {
+		_consecutiveFailures = 0;
+		_open = false;
+		_trialInFlight = false;
+		_trialThread = null;
+	}
+
+	public synchronized void recordFailure() {
+		_consecutiveFailures++;
+		if (_trialInFlight || _consecutiveFailures >= _failureThreshold) {
+			_open = true;
+			_openedAt = System.currentTimeMillis();
+			_trialInFlight = false;
+			_trialThread = null;
+		}
+	}
+
+	public synchronized boolean isOpen() {
+		return _open;
+	}
+}
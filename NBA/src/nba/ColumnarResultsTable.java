@@ -0,0 +1,118 @@
+package nba;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+/*
+ * This class writes a table of results in a compact columnar binary format, in the spirit of Parquet.
+ *
+ * Rows are gathered into row groups of up to ROWS_PER_GROUP rows. Each group is written column by column, so a reader
+ * that wants one column can skip the others, and only one group is ever held in memory.
+ * The type of each column is taken from the first row: a long for an Integer or Long, a double for any other Number, or text.
+ *
+ * The file is, in big-endian DataOutputStream encoding:
+ *   int MAGIC, int VERSION, int number of columns, then for each column its name (UTF) and type (byte 'L', 'D' or 'S');
+ *   then each row group: int number of rows, then each column's values in turn (8 byte longs, 8 byte doubles, or UTF text);
+ *   then int 0 to end the groups, and a long of the total number of rows.
+ */
+public class ColumnarResultsTable implements ResultsTable {
+
+	static final int MAGIC = 0x4E424143;
+	static final int VERSION = 1;
+	static final int ROWS_PER_GROUP = 4096;
+
+	private File _file;
+	private File _temp;
+	private DataOutputStream _out;
+	private String[] _columns;
+	private byte[] _types;
+	private Object[][] _group;
+	private int _groupRows;
+	private long _totalRows;
+
+	public ColumnarResultsTable(File file, String[] columns) throws IOException {
+		_file = file;
+		_temp = AtomicFile.tempFileFor(file);
+		_out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_temp), 1 << 16));
+		_columns = columns.clone();
+		_group = new Object[columns.length][ROWS_PER_GROUP];
+	}
+
+	public void writeRow(Object... values) throws IOException {
+		if (values.length != _columns.length) {
+			throw new IllegalArgumentException("Expected " + _columns.length + " values but got " + values.length);
+		}
+		if (_types == null) {
+			this.writeHeader(values);
+		}
+		for (int c = 0; c < values.length; c++) {
+			if (typeOf(values[c]) != _types[c]) {
+				throw new IllegalArgumentException("Column " + _columns[c] + " can't hold " + values[c]);
+			}
+			_group[c][_groupRows] = values[c];
+		}
+		_groupRows++;
+		if (_groupRows == ROWS_PER_GROUP) {
+			this.writeGroup();
+		}
+	}
+
+	// helper method for writeRow. Writes the column names and the types of the first row's values
+	private void writeHeader(Object[] firstRow) throws IOException {
+		_types = new byte[_columns.length];
+		_out.writeInt(MAGIC);
+		_out.writeInt(VERSION);
+		_out.writeInt(_columns.length);
+		for (int c = 0; c < _columns.length; c++) {
+			_types[c] = typeOf(firstRow[c]);
+			_out.writeUTF(_columns[c]);
+			_out.writeByte(_types[c]);
+		}
+	}
+
+	// helper method for writeRow and close. Writes the rows gathered so far as one row group
+	private void writeGroup() throws IOException {
+		_out.writeInt(_groupRows);
+		for (int c = 0; c < _columns.length; c++) {
+			Object[] column = _group[c];
+			for (int row = 0; row < _groupRows; row++) {
+				if (_types[c] == 'L') _out.writeLong(((Number) column[row]).longValue());
+				else if (_types[c] == 'D') _out.writeDouble(((Number) column[row]).doubleValue());
+				else _out.writeUTF((String) column[row]);
+				column[row] = null;
+			}
+		}
+		_totalRows += _groupRows;
+		_groupRows = 0;
+	}
+
+	// returns the column type a value is stored as
+	private static byte typeOf(Object value) {
+		if (value instanceof Integer || value instanceof Long) return 'L';
+		if (value instanceof Number) return 'D';
+		if (value instanceof String) return 'S';
+		throw new IllegalArgumentException("Can't store " + value);
+	}
+
+	// writes the last row group and the end of the file, and moves the file into place. A table with no rows only has its column names
+	public void close() throws IOException {
+		if (_types == null) {
+			_out.writeInt(MAGIC);
+			_out.writeInt(VERSION);
+			_out.writeInt(_columns.length);
+			for (String column: _columns) {
+				_out.writeUTF(column);
+				_out.writeByte('S');
+			}
+		}
+		if (_groupRows > 0) {
+			this.writeGroup();
+		}
+		_out.writeInt(0);
+		_out.writeLong(_totalRows);
+		_out.close();
+		AtomicFile.replace(_temp, _file);
+	}
+}
@@ -0,0 +1,59 @@
+package nba;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+/*
+ * This class writes a table of results as CSV: a line naming the columns, then a line for each row.
+ * Text is quoted when it has a comma, quote or line break in it, and a number that isn't a number (NaN) is left empty.
+ */
+public class CsvResultsTable implements ResultsTable {
+
+	private File _file;
+	private File _temp;
+	private Writer _out;
+	private int _numColumns;
+
+	public CsvResultsTable(File file, String[] columns) throws IOException {
+		_file = file;
+		_temp = AtomicFile.tempFileFor(file);
+		_out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(_temp), "UTF-8"), 1 << 16);
+		_numColumns = columns.length;
+		this.writeLine(columns);
+	}
+
+	public void writeRow(Object... values) throws IOException {
+		if (values.length != _numColumns) {
+			throw new IllegalArgumentException("Expected " + _numColumns + " values but got " + values.length);
+		}
+		this.writeLine(values);
+	}
+
+	// helper method for constructor and writeRow
+	private void writeLine(Object[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				_out.write(',');
+			}
+			Object value = values[i];
+			if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+				continue;
+			}
+			String text = String.valueOf(value);
+			if (text.indexOf(',') != -1 || text.indexOf('"') != -1 || text.indexOf('\n') != -1 || text.indexOf('\r') != -1) {
+				text = '"' + text.replace("\"", "\"\"") + '"';
+			}
+			_out.write(text);
+		}
+		_out.write('\n');
+	}
+
+	// finishes the file and moves it into place
+	public void close() throws IOException {
+		_out.close();
+		AtomicFile.replace(_temp, _file);
+	}
+}
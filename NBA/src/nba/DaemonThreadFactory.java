@@ -0,0 +1,22 @@
+package nba;
+
+import java.util.concurrent.ThreadFactory;
+/*
+ * This class makes daemon threads with a name, for the background work of fetchers, servers and exporters,
+ * so one that is never shut down doesn't keep the program from exiting.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+	private String _name;
+
+	// names every thread it makes name
+	public DaemonThreadFactory(String name) {
+		_name = name;
+	}
+
+	public Thread newThread(Runnable task) {
+		Thread thread = new Thread(task, _name);
+		thread.setDaemon(true);
+		return thread;
+	}
+}
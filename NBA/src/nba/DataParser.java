@@ -1,223 +1,411 @@
 package nba;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
-import org.jsoup.Jsoup;
+import org.joda.time.LocalDate;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
 /*
  * This class models a data parser.
  * 
  * It has methods for parsing rebound data on the espn.com NBA schedule, but it leaves the decision for what data to
  * be recorded to its subclasses, OffensiveReboudingPercentageParser and PointsPerOffensiveReboundParser.
+ * 
+ * Every season it scrapes is saved to an EventStore as it goes, and checkpointed after every week with a SeasonCheckpoint.
+ * A run that stops part way picks up from the last checkpoint, a run part way through a season only scrapes the games played since the last run,
+ * and a run after the season is finished replays it from the store without scraping anything.
+ * Stores are kept in the directory set with the system property "nba.eventStoreDir" ("events" by default), one file per season;
+ * setting it to "" turns the store off. Delete a season's file to scrape it again.
+ * 
+ * Games are told apart by their espn.com GameId, however many links lead to them: schedule weeks overlap and box scores
+ * can link to a play-by-play more than once, but each game is fetched and counted only once over the life of the parser.
+ * 
+ * The season scraped is 2013-14 unless another is set with setSeason or the system property "nba.season".
+ * Parsers for different seasons can scrape at the same time over one shared PageFetcher, which is how SeasonRunner runs them.
  */
 public abstract class DataParser {
 	
 	private boolean _finishedParsing;
+	private PageFetcher _fetcher;
+	private boolean _sharedFetcher;
+	private String _reportFileName;
+	private Season _season;
+	private File _eventStoreDirectory;
+	private File _eventStoreFile;
+	private SeasonCheckpoint _checkpoint;
 	
-	public DataParser() {}
+	// the games parsed, and the games whose pages have been asked for and haven't failed
+	private GameIdSet _parsedGames;
+	private GameIdSet _requestedGames;
 	
-	// parse all the desired data in the NBA schedule
+	public DataParser() {
+		_reportFileName = "Data.txt";
+		_season = Season.parse(System.getProperty("nba.season", "2013-14"));
+		_parsedGames = new GameIdSet();
+		_requestedGames = new GameIdSet();
+		String eventStoreDirectory = System.getProperty("nba.eventStoreDir", "events");
+		if (!eventStoreDirectory.isEmpty()) {
+			_eventStoreDirectory = new File(eventStoreDirectory);
+		}
+	}
+	
+	// parse all the desired data in the season's NBA schedule
 	public void parseData() {
-		// Create a schedule and parse it until finished
-		Schedule _schedule = new Schedule(2013, 10, 29);
-		_finishedParsing = false;
+		this.update();
 		
-		// iterate through every week of NBA schedule and explore every game on each page
-		while (_finishedParsing == false) {
-			this.parsePlayByPlays(_schedule.getPlayByPlayLinks());
-			
-			_schedule.advanceToNextWeek();
-			
-			if (_schedule.isEndOfRegularSeason()) {
-				_finishedParsing = true;
-			}
+		// a fetcher shared with parsers scraping other seasons is shut down by whoever shared it
+		if (!_sharedFetcher && _fetcher != null) {
+			_fetcher.shutdown();
+			_fetcher = null;
 		}
+		_checkpoint = null;
 		
 		// when done parsing schedule, interpret results
 		this.interpretResults();
 	}
 	
 	/*
-	 * Parses the list of play-by-play links it is passed.
-	 * Finds if there is a miss and a rebound, and then records the desired data off off those rebounds
+	 * Parses every game of the season that hasn't been parsed yet, without interpreting the results.
+	 * The first call picks up from wherever the last run left off, replaying the games it already parsed from the event store.
+	 * Later calls only look at the weeks from the checkpoint on, so calling it every so often during a season
+	 * parses just the games finished since the last call. Without an event store every call looks at the whole season again,
+	 * but still only fetches the games this parser hasn't parsed yet.
 	 */
-	public void parsePlayByPlays(List<String> playByPlayLinks) {
-		for (String url: playByPlayLinks) {
-			Document playByPlayPage = null;
-			try {
-				playByPlayPage = Jsoup.connect(url).timeout(20000).get();
-			} catch (IOException e) {
-				e.printStackTrace();
+	public void update() {
+		LocalDate startWeek = _season.getStart();
+		if (_checkpoint == null) {
+			_eventStoreFile = (_eventStoreDirectory == null) ? null : new File(_eventStoreDirectory, _season.getName() + ".events");
+			if (_eventStoreFile != null) {
+				_checkpoint = new SeasonCheckpoint(_eventStoreFile);
+				try {
+					_checkpoint.load(this);
+					_parsedGames.addAll(_checkpoint.getGameIds());
+				} catch (IOException e) {
+					e.printStackTrace();
+					_checkpoint = new SeasonCheckpoint(_eventStoreFile);
+				}
 			}
-
-			// iterate through play-by-play table recording data
-			Elements table = playByPlayPage.getElementsByClass("mod-data");
-			Elements rows = table.select("tr");
-			int arraySize = rows.size();
-			Object[] rowArray = rows.toArray();
+		}
+		if (_checkpoint != null) {
+			if (_checkpoint.getResumeWeek() != null) {
+				startWeek = Season.parseWeek(_checkpoint.getResumeWeek());
+			}
+			_finishedParsing = _checkpoint.isSeasonComplete();
+		}
+		else {
+			_finishedParsing = false;
+		}
+		
+		if (_finishedParsing == false) {
+			// Create a schedule and parse it until finished
+			Schedule _schedule = new Schedule(_season, startWeek, this.getFetcher());
+			_finishedParsing = _schedule.isEndOfRegularSeason();
 			
-			for (int i = 0; i < arraySize; i++){
-				Element row = (Element) rowArray[i];
-				// add cells that contain the word misses or blocks, don't include missed free throws that aren't last free throw taken or technical free throws since no rebound (espn.com has bug where it credits rebounds anyways)
-				Elements miss = row.select("td:contains(misses), td:contains(blocks)").not("td:contains(1 of 2), td:contains(1 of 3), td:contains(2 of 3), td:contains(technical");
-				if (!miss.isEmpty()) {
-					Element reboundRow = row.nextElementSibling();
-					// rebound row will be null if miss is last row in quarter summary (no rebound since quarter is over)
-					if (reboundRow != null) {
-						// make sure row doesn't have 0:00 on the clock (occasionally espn's play-by-play will credit rebound at end of quarter where there is none)
-						Elements endOfQuarterCell = reboundRow.select("td:contains(0:00)");
-						if (!endOfQuarterCell.isEmpty()) {
-							continue;
-						}
-
-						// if there's a putback shot after a miss, sometimes it credits shot first then the rebound. 
-						// if that is the case, switch the html in those rows to fix bug
-						if (this.isEspnPutBackBug(reboundRow)){
-							Element nextRow = reboundRow.nextElementSibling();
-							
-							String tempText = reboundRow.html();
-							reboundRow.html(nextRow.html());
-							nextRow.html(tempText);
-							
-							rowArray[i+1] = reboundRow;
-							rowArray[i+2] = nextRow;
-						}
-						
-						// there is a miss and a rebound, so record the desired data from the miss and rebound
-						this.recordReboundData(miss, reboundRow);
+			// the next run starts from the first week that is still being played or had a game that couldn't be parsed
+			String resumeWeek = null;
+			boolean weeksComplete = true;
+			
+			// iterate through every week of NBA schedule and explore every game on each page
+			while (_finishedParsing == false) {
+				String week = _schedule.getWeek();
+				boolean weekComplete = this.parseWeek(_schedule) && _schedule.getMaxAge() == PageCache.FOREVER;
+				if (weeksComplete && !weekComplete) {
+					resumeWeek = week;
+					weeksComplete = false;
+				}
+				
+				_schedule.advanceToNextWeek();
+				
+				if (_schedule.isEndOfRegularSeason()) {
+					_finishedParsing = true;
+				}
+				
+				if (_checkpoint != null) {
+					try {
+						_checkpoint.save(weeksComplete ? _schedule.getWeek() : resumeWeek, _finishedParsing && weeksComplete);
+					} catch (IOException e) {
+						e.printStackTrace();
 					}
 				}
 			}
 		}
 	}
 	
-	// abstract method, its subclasses decide what data they want recorded off the rebound
-	abstract void recordReboundData(Elements miss, Element reboundRow);
-	
-	// abstract method, its subclasses decide how they want to interpret the data
-	abstract void interpretResults();
+	/*
+	 * Parses every game in the current week of the schedule it is passed.
+	 * Games that have already been parsed or requested, in this run or one that was checkpointed, are skipped without being fetched.
+	 * Returns true if every game in the week was parsed.
+	 */
+	public boolean parseWeek(Schedule schedule) {
+		boolean hasSchedulePage = schedule.hasSchedulePage();
+		return this.parseGames(schedule.getBoxScoreLinks(), schedule.getMaxAge()).isEmpty() && hasSchedulePage;
+	}
 	
-	// classifies the type of miss it is passed and returns the index of where it should go
-	public int classifyShot(Elements shot) {
-		String shotText = shot.text();
-
-		if (shotText.contains("layup") || shotText.contains("tip") || shotText.contains("dunk")){
-			return CONSTANTS.ATRIM;
-		}
-		else if (shotText.contains("three") || shotText.contains("3-pt") || shotText.contains("3-point")) {
-			return CONSTANTS.THREEPOINTER;
-		}
-		else if (shotText.contains("free")) {
-			return CONSTANTS.FREETHROW;
-		}
-		// if it is not one of the above shots, return how many feet away from basket the shot was taken
-		else {
-			// strip out these numbers so that they are not included in the shot location
-			shotText = shotText.replace("2-pt", "");
-			shotText = shotText.replace("3-pt", "");
-			shotText = shotText.replace("2-point", "");
-			shotText = shotText.replace("3-point", "");
-
-			// find and return the distance the shot was taken from
-			StringBuffer feetBuffer = new StringBuffer();
-			for(char c : shotText.toCharArray()){
-				if(Character.isDigit(c)){
-					feetBuffer.append(c);
-				}                
+	/*
+	 * Parses the game behind each box score link it is passed, using cached pages younger than maxAge.
+	 * All the box scores are requested at once, and each game's play-by-play is requested as soon as its box score arrives,
+	 * so box score and play-by-play downloads overlap. Play-by-plays are parsed on this thread in the order they finish downloading.
+	 * Games that have already been parsed or requested are skipped without being fetched.
+	 * A game whose pages fail to download is given up, so another link to it, in a later week or a later update, can try it again.
+	 * Returns the box score links of the games that weren't parsed because a page failed, the box score had no play-by-play link,
+	 * the game wasn't over yet, or the thread was interrupted.
+	 */
+	public List<String> parseGames(List<String> boxScoreLinks, long maxAge) {
+		PageFetcher fetcher = this.getFetcher();
+		CompletionService<Document> pages = new ExecutorCompletionService<Document>(fetcher.getExecutor());
+		// the game each page pending belongs to, the box score link it came from, and which of those pages are box scores
+		Map<Future<Document>, Integer> gameIds = new HashMap<Future<Document>, Integer>();
+		Map<Future<Document>, String> links = new HashMap<Future<Document>, String>();
+		Set<Future<Document>> boxScores = new HashSet<Future<Document>>();
+		List<String> failed = new ArrayList<String>();
+		
+		for (String url: boxScoreLinks) {
+			int gameId = GameId.parse(url);
+			if (_parsedGames.contains(gameId) || (gameId != GameId.NONE && !_requestedGames.add(gameId))) {
+				continue;
 			}
-			if (feetBuffer != null && feetBuffer.length() != 0) {
-				String feet = feetBuffer.toString();
-				int location = Integer.parseInt(feet);
-
-				if (location <= 2) {
-					return CONSTANTS.ATRIM;
-				}
-				else if (location >= 3 && location <=9) {
-					return CONSTANTS.THREETONINE;
+			Future<Document> boxScore = pages.submit(fetcher.fetchTask(url, maxAge));
+			gameIds.put(boxScore, gameId);
+			links.put(boxScore, url);
+			boxScores.add(boxScore);
+		}
+		
+		while (!gameIds.isEmpty()) {
+			Future<Document> page = null;
+			try {
+				page = pages.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<Document> pending: gameIds.keySet()) {
+					failed.add(links.get(pending));
 				}
-				else if (location >= 10 && location <=15) {
-					return CONSTANTS.TENTOFIFTEEN;
+				return failed;
+			}
+			int gameId = gameIds.remove(page);
+			String link = links.remove(page);
+			
+			Document document = this.getPage(page);
+			if (document == null) {
+				_requestedGames.remove(gameId);
+				failed.add(link);
+				continue;
+			}
+			
+			// a finished box score means its play-by-play can be requested, a finished play-by-play can be parsed
+			if (boxScores.remove(page)) {
+				List<String> playByPlayLinks = Schedule.getPlayByPlayLinks(document);
+				if (playByPlayLinks.isEmpty()) {
+					// a box score without a play-by-play link yet is given up like a failed game, and downloaded again next time
+					fetcher.evict(link);
+					_requestedGames.remove(gameId);
+					failed.add(link);
 				}
-				else if (location >= 16 && location <=23) {
-					return CONSTANTS.SIXTEENTOTWENTYTHREE;
+				for (String url: playByPlayLinks) {
+					Future<Document> playByPlay = pages.submit(fetcher.fetchPlayByPlayTask(url, maxAge));
+					gameIds.put(playByPlay, gameId);
+					links.put(playByPlay, link);
 				}
-				/*
-				 * a few misses in play-by-play on espn.com are missing text saying three-pointer. 
-				 * three point line is anywhere from 22-feet long on corners to 23 feet 9 inches at top
-				 * so anything 24 feet and above is guaranteed to be a three
-				 */
-				else if (location >= 24) {
-					return CONSTANTS.THREEPOINTER;
+			}
+			else if (!this.parseFinalPlayByPlay(document)) {
+				// a game still being played is left out like one that failed, so its week is looked at again
+				_requestedGames.remove(gameId);
+				failed.add(link);
+			}
+		}
+		return failed;
+	}
+	
+	/*
+	 * Parses the list of play-by-play links it is passed.
+	 * All of the play-by-plays are downloaded at once, and each one is parsed as soon as it arrives.
+	 * Games that aren't over yet are left out.
+	 */
+	public void parsePlayByPlays(List<String> playByPlayLinks) {
+		PageFetcher fetcher = this.getFetcher();
+		CompletionService<Document> pages = new ExecutorCompletionService<Document>(fetcher.getExecutor());
+		for (String url: playByPlayLinks) {
+			pages.submit(fetcher.fetchPlayByPlayTask(url, PageCache.FOREVER));
+		}
+		
+		for (int i = 0; i < playByPlayLinks.size(); i++) {
+			try {
+				Document playByPlayPage = this.getPage(pages.take());
+				if (playByPlayPage != null) {
+					this.parseFinalPlayByPlay(playByPlayPage);
 				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
 			}
 		}
-		// some shots in espn.com's play-by-play are known only as "jumper," "bank shot," "two point shot" or other shots worth two points
-		return CONSTANTS.MISC;
 	}
 	
-	// returns whichever side has possession in the row of the play-play-play it is passed
-	public Possession getPossession(Element playByPlayRow) {
-		Elements awayCell = playByPlayRow.select("td:nth-child(2)");
-		Elements homeCell = playByPlayRow.select("td:nth-child(4)");
+	/*
+	 * Tokenizes and parses a single play-by-play page, saving it to the checkpoint first when a season is being scraped.
+	 * A page of a game that has already been parsed is ignored, so no game is ever counted twice.
+	 */
+	public void parsePlayByPlay(Document playByPlayPage) {
+		if (_parsedGames.contains(GameId.parse(playByPlayPage.location()))) {
+			return;
+		}
+		this.recordGame(this.tokenize(playByPlayPage));
+	}
+
+	/*
+	 * helper method for parseGames and parsePlayByPlays. Parses a downloaded play-by-play like parsePlayByPlay, but only once the game is over.
+	 * A game still being played isn't marked parsed or saved to the checkpoint, and its page is forgotten by the fetcher,
+	 * so it is downloaded again the next time the game is looked at. Returns false for a game that isn't over.
+	 */
+	private boolean parseFinalPlayByPlay(Document playByPlayPage) {
+		if (_parsedGames.contains(GameId.parse(playByPlayPage.location()))) {
+			return true;
+		}
+		PlayByPlay game = this.tokenize(playByPlayPage);
+		if (!game.isFinal()) {
+			this.getFetcher().evict(playByPlayPage.location());
+			return false;
+		}
+		this.recordGame(game);
+		return true;
+	}
+
+	// helper method for parsePlayByPlay and parseFinalPlayByPlay. Tokenizes a play-by-play page
+	private PlayByPlay tokenize(Document playByPlayPage) {
+		long start = System.nanoTime();
+		PlayByPlay game = new PlayByPlay(playByPlayPage);
+		Metrics.recordLatency(Stage.TOKENIZE, System.nanoTime() - start);
+		Metrics.recordRows(Stage.TOKENIZE, game.getNumRows());
+		return game;
+	}
+
+	// helper method for parsePlayByPlay and parseFinalPlayByPlay. Marks a game parsed, saves it to the checkpoint and parses it
+	private void recordGame(PlayByPlay game) {
+		_parsedGames.add(game.getGameId());
+		if (_checkpoint != null) {
+			_checkpoint.addGame(game);
+		}
+		this.parsePlayByPlay(game);
+	}
+	
+	/*
+	 * Parses a single tokenized play-by-play.
+	 * Finds if there is a miss and a rebound, and then records the desired data off off those rebounds
+	 */
+	public void parsePlayByPlay(PlayByPlay game) {
+		long start = System.nanoTime();
 		
-		// if away cell isn't empty, then away team has possession
-		for (Element cell: awayCell) {
-			String cellText = cell.text();
-			cellText.replace(" ", "");
-			
-			if (cellText != "" && cellText.length() > 1) {
-				return Possession.AWAY;
+		// if there's a putback shot after a miss, sometimes it credits shot first then the rebound. 
+		// if that is the case, switch the rows to fix bug. Every row is fixed before any data is recorded,
+		// so the second chance points worked out from the rows after a rebound see the rows in their right order
+		for (int i = 0; i < game.getNumRows(); i++){
+			if (this.isReboundedMiss(game, i) && this.isEspnPutBackBug(game, i + 1)) {
+				game.swapRows(i + 1, i + 2);
 			}
 		}
 		
-		// if home cell isn't empty, then home team has possession
-		for (Element cell: homeCell) {
-			String cellText = cell.text();
-			cellText.replace(" ", "");
-			if (cellText != "" && cellText.length() > 1) {
-				return Possession.HOME;
+		// iterate through play-by-play rows recording data
+		for (int i = 0; i < game.getNumRows(); i++){
+			if (this.isReboundedMiss(game, i)) {
+				// there is a miss and a rebound, so record the desired data from the miss and rebound
+				this.recordReboundData(game, i, i + 1);
 			}
 		}
+		
+		Metrics.recordLatency(Stage.PARSE, System.nanoTime() - start);
+		Metrics.recordRows(Stage.PARSE, game.getNumRows());
+	}
+	
+	// helper method for parsePlayByPlay. Returns true if the row is a miss or block that can be rebounded, followed by its rebound row
+	private boolean isReboundedMiss(PlayByPlay game, int row) {
+		// only look at misses and blocks that can be rebounded
+		if (!game.has(row, PlayByPlay.MISS_WITH_REBOUND)) {
+			return false;
+		}
+		// there is no rebound row if miss is last row in quarter summary (no rebound since quarter is over)
+		if (!game.hasNextRow(row)) {
+			return false;
+		}
+		// make sure row doesn't have 0:00 on the clock (occasionally espn's play-by-play will credit rebound at end of quarter where there is none)
+		return !game.has(row + 1, PlayByPlay.ZERO_CLOCK);
+	}
+	
+	// returns the fetcher that downloads pages for this parser, starting one up if none is running
+	public PageFetcher getFetcher() {
+		if (_fetcher == null) {
+			_fetcher = new PageFetcher();
+		}
+		return _fetcher;
+	}
+	
+	// helper method for parseWeek and parsePlayByPlays. Returns the downloaded page, or null if it couldn't be downloaded
+	private Document getPage(Future<Document> page) {
+		try {
+			return page.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		}
 		return null;
 	}
 	
+	// abstract method, its subclasses decide what data they want recorded off the rebound
+	abstract void recordReboundData(PlayByPlay game, int missRow, int reboundRow);
+	
+	/*
+	 * abstract method, returns a new, empty parser of the same kind as this one.
+	 * Games can be parsed into it on another thread, and what it records added back into this parser with merge.
+	 */
+	abstract DataParser newAccumulator();
+	
+	/*
+	 * abstract method, adds everything recorded by other, a parser made by newAccumulator, to what this parser has recorded.
+	 * Merging has to give the same results as if other's games had been parsed by this parser after its own.
+	 */
+	abstract void merge(DataParser other);
+	
+	// abstract method, its subclasses decide how they want to interpret the data
+	abstract void interpretResults();
+	
+	// abstract method, its subclasses write the same results interpretResults reports as rows of the exporter's tables, for this parser's season
+	abstract void exportResults(ResultsExporter exporter) throws IOException;
+	
+	// classifies the text of the shot it is passed and returns the index of where it should go
+	public static int classifyShot(String shotText) {
+		return ShotClassifier.classify(shotText);
+	}
+	
 	/*
 	 * There is a bug in ESPN's play-by-plays, where sometimes when there is a putback shot, it credits
 	 * the shot first, and then the offensive rebound that led to the shot second. 
 	 * Even though these things are virtually one motion, the rebound should come first, and then the shot. 
-	 * If this bug appears, switch the text in the rows to correct the bug.
+	 * If this bug appears, switch the rows to correct the bug.
 	 */
-	public boolean isEspnPutBackBug(Element putBackRow) {
-		Element reboundRow = putBackRow.nextElementSibling();
-		if (reboundRow == null) {
+	public boolean isEspnPutBackBug(PlayByPlay game, int putBackRow) {
+		if (!game.hasNextRow(putBackRow)) {
 			return false;
 		}
+		int reboundRow = putBackRow + 1;
 		
-		boolean isPutBackShot = false;
-		if (putBackRow.text().contains("misses") || putBackRow.text().contains("blocks") || putBackRow.text().contains("makes")) {
-			isPutBackShot = true;
-		}
-		
-		boolean isRebound = false;
-		if (reboundRow.text().contains("rebound")) {
-			isRebound = true;
-		}
-		
-		boolean isSameTime = false;
-		String gameClockPutBack = putBackRow.select("td:nth-child(1)").text();
-		String gameClockRebound = reboundRow.select("td:nth-child(1)").text();
-		if (gameClockPutBack.equals(gameClockRebound)) {
-			isSameTime = true;
-		}
+		boolean isPutBackShot = game.hasAny(putBackRow, PlayByPlay.MISSES | PlayByPlay.BLOCKS | PlayByPlay.MAKES);
+		boolean isRebound = game.has(reboundRow, PlayByPlay.REBOUND);
+		boolean isSameTime = (game.getClock(putBackRow) == game.getClock(reboundRow));
 		
-		// if there is a putback shot and a rebound, and they occur at the same time, switch text in rows so that rebound comes before shot
+		// if there is a putback shot and a rebound, and they occur at the same time, switch rows so that rebound comes before shot
 		if (isPutBackShot && isRebound && isSameTime) {
 			return true;
 		}
@@ -226,11 +414,36 @@ public abstract class DataParser {
 	}
 	
 	
+	// sets the fetcher pages are downloaded through, so parsers scraping different seasons can share one pool of connections
+	public void setFetcher(PageFetcher fetcher) {
+		_fetcher = fetcher;
+		_sharedFetcher = true;
+	}
+	
+	// sets the season parseData scrapes
+	public void setSeason(Season season) {
+		_season = season;
+	}
+	
+	public Season getSeason() {
+		return _season;
+	}
+	
+	// sets the directory each season's events are saved to and replayed from. null turns the event store and checkpointing off
+	public void setEventStoreDirectory(File eventStoreDirectory) {
+		_eventStoreDirectory = eventStoreDirectory;
+	}
+	
+	// sets the name of the .txt file interpretResults writes to, so parsers running together don't overwrite each other's results
+	public void setReportFileName(String reportFileName) {
+		_reportFileName = reportFileName;
+	}
+	
 	// get PrintWriter to write data onto .txt file
 	public PrintWriter getWriter() {
 		PrintWriter writer = null;
 		try {
-			writer = new PrintWriter("Data.txt", "UTF-8");
+			writer = new PrintWriter(_reportFileName, "UTF-8");
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (UnsupportedEncodingException e) {
@@ -0,0 +1,315 @@
+package nba;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+/*
+ * This class is a season's play-by-play events, stored on disk in a compact columnar file and read back by memory-mapping it.
+ *
+ * Scraping a season means downloading and tokenizing thousands of pages, but once the events are in a store
+ * any analysis can be run over the whole season again straight from disk, without touching the network or the PageCache.
+ *
+ * Every row of every play-by-play is one event. Each column is stored whole, one after another:
+ * the game clock, the flags of the row's phrases, the period, the side, the zone of any shot, the points scored by the row,
+ * which free throw of how many it is, and the player who shot or rebounded. A game index maps each game id to the range of events
+ * that belongs to it and names its two teams. The names of the players and teams follow the columns, and are interned into Names
+ * when the store is opened.
+ * Stores are written by EventStoreWriter.
+ */
+public class EventStore {
+
+	static final int MAGIC = 0x4E424145;
+	static final int VERSION = 2;
+
+	// flag kept alongside a row's phrase flags, marking a row that ends its table section
+	static final int LAST_IN_SECTION = 1 << 31;
+
+	private static final int HEADER_BYTES = 16;
+
+	// games replayed by one fork-join task before it stops splitting
+	private static final int GAMES_PER_TASK = 32;
+
+	private int _numGames;
+	private int _numEvents;
+	private IntBuffer _gameIds;
+	private IntBuffer _firstEvent;
+	private IntBuffer _awayTeam;
+	private IntBuffer _homeTeam;
+	private IntBuffer _clock;
+	private IntBuffer _flags;
+	private ByteBuffer _period;
+	private ByteBuffer _side;
+	private ByteBuffer _zone;
+	private ByteBuffer _points;
+	private ByteBuffer _freeThrowNumber;
+	private ByteBuffer _freeThrowsAwarded;
+	private IntBuffer _player;
+
+	// the Names id of each of the store's own name ids
+	private int[] _nameIds;
+
+	// memory-maps the store in file
+	public EventStore(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		MappedByteBuffer mapped;
+		try {
+			FileChannel channel = in.getChannel();
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			// the mapping stays valid after the channel is closed
+			in.close();
+		}
+
+		if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+			throw new IOException("Not an event store: " + file);
+		}
+		if (mapped.getInt(4) != VERSION) {
+			throw new IOException("Unsupported event store version " + mapped.getInt(4) + ": " + file);
+		}
+		_numGames = mapped.getInt(8);
+		_numEvents = mapped.getInt(12);
+
+		long columnBytes = HEADER_BYTES + 4L * (4 * _numGames + 1) + 18L * _numEvents;
+		if (mapped.limit() < columnBytes + 4) {
+			throw new IOException("Event store is truncated: " + file);
+		}
+
+		int position = HEADER_BYTES;
+		_gameIds = slice(mapped, position, 4 * _numGames).asIntBuffer();
+		position += 4 * _numGames;
+		_firstEvent = slice(mapped, position, 4 * (_numGames + 1)).asIntBuffer();
+		position += 4 * (_numGames + 1);
+		_awayTeam = slice(mapped, position, 4 * _numGames).asIntBuffer();
+		position += 4 * _numGames;
+		_homeTeam = slice(mapped, position, 4 * _numGames).asIntBuffer();
+		position += 4 * _numGames;
+		_clock = slice(mapped, position, 4 * _numEvents).asIntBuffer();
+		position += 4 * _numEvents;
+		_flags = slice(mapped, position, 4 * _numEvents).asIntBuffer();
+		position += 4 * _numEvents;
+		_player = slice(mapped, position, 4 * _numEvents).asIntBuffer();
+		position += 4 * _numEvents;
+		_period = slice(mapped, position, _numEvents);
+		position += _numEvents;
+		_side = slice(mapped, position, _numEvents);
+		position += _numEvents;
+		_zone = slice(mapped, position, _numEvents);
+		position += _numEvents;
+		_points = slice(mapped, position, _numEvents);
+		position += _numEvents;
+		_freeThrowNumber = slice(mapped, position, _numEvents);
+		position += _numEvents;
+		_freeThrowsAwarded = slice(mapped, position, _numEvents);
+		position += _numEvents;
+
+		ByteBuffer names = slice(mapped, position, mapped.limit() - position);
+		_nameIds = new int[names.getInt() + 1];
+		for (int id = 1; id < _nameIds.length; id++) {
+			if (names.remaining() < 4) {
+				throw new IOException("Event store is truncated: " + file);
+			}
+			byte[] bytes = new byte[names.getInt()];
+			if (bytes.length > names.remaining()) {
+				throw new IOException("Event store is truncated: " + file);
+			}
+			names.get(bytes);
+			_nameIds[id] = Names.intern(new String(bytes, "UTF-8"));
+		}
+	}
+
+	/*
+	 * Passes every game in the store to the parser it is passed, in the order they were scraped, exactly as if
+	 * each one had just been downloaded and tokenized. Doesn't interpret the parser's results.
+	 */
+	public void replay(DataParser parser) {
+		for (int g = 0; g < _numGames; g++) {
+			parser.parsePlayByPlay(this.getGame(g));
+		}
+	}
+
+	/*
+	 * Passes every game in the store to the parser it is passed, spread across parallelism threads with fork-join.
+	 * Each piece of the store is replayed into its own accumulator made by the parser's newAccumulator,
+	 * and the accumulators are merged back together in store order, so the results are exactly those of replay.
+	 */
+	public void replay(DataParser parser, int parallelism) {
+		if (parallelism <= 1 || _numGames <= GAMES_PER_TASK) {
+			this.replay(parser);
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			parser.merge(pool.invoke(new ReplayTask(parser, 0, _numGames)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// rebuilds the play-by-play of the game at index g of the store
+	public PlayByPlay getGame(int g) {
+		int first = _firstEvent.get(g);
+		int numRows = _firstEvent.get(g + 1) - first;
+
+		int[] flags = new int[numRows];
+		int[] clock = new int[numRows];
+		byte[] side = new byte[numRows];
+		byte[] zone = new byte[numRows];
+		byte[] freeThrowNumber = new byte[numRows];
+		byte[] freeThrowsAwarded = new byte[numRows];
+		int[] player = new int[numRows];
+		boolean[] hasNextRow = new boolean[numRows];
+
+		// columns are copied out in bulk, through views positioned at the game's first event
+		((IntBuffer) _flags.duplicate().position(first)).get(flags);
+		((IntBuffer) _clock.duplicate().position(first)).get(clock);
+		((ByteBuffer) _side.duplicate().position(first)).get(side);
+		((ByteBuffer) _zone.duplicate().position(first)).get(zone);
+		((ByteBuffer) _freeThrowNumber.duplicate().position(first)).get(freeThrowNumber);
+		((ByteBuffer) _freeThrowsAwarded.duplicate().position(first)).get(freeThrowsAwarded);
+		((IntBuffer) _player.duplicate().position(first)).get(player);
+		for (int row = 0; row < numRows; row++) {
+			hasNextRow[row] = (flags[row] & LAST_IN_SECTION) == 0;
+			flags[row] &= ~LAST_IN_SECTION;
+			player[row] = _nameIds[player[row]];
+		}
+		return new PlayByPlay(_gameIds.get(g), _nameIds[_awayTeam.get(g)], _nameIds[_homeTeam.get(g)], flags, clock, side, zone,
+				freeThrowNumber, freeThrowsAwarded, player, hasNextRow);
+	}
+
+	public int getNumGames() {
+		return _numGames;
+	}
+
+	public int getNumEvents() {
+		return _numEvents;
+	}
+
+	// returns the espn.com game id of the game at index g
+	public int getGameId(int g) {
+		return _gameIds.get(g);
+	}
+
+	// returns the Names id of the away team of the game at index g, or Names.NONE if its play-by-play didn't say
+	public int getAwayTeam(int g) {
+		return _nameIds[_awayTeam.get(g)];
+	}
+
+	// returns the Names id of the home team of the game at index g, or Names.NONE if its play-by-play didn't say
+	public int getHomeTeam(int g) {
+		return _nameIds[_homeTeam.get(g)];
+	}
+
+	// returns the index of the first event of the game at index g. The game's events run up to the first event of game g + 1
+	public int getFirstEvent(int g) {
+		return _firstEvent.get(g);
+	}
+
+	// returns the period the event happened in, counting from 1. Overtimes follow the fourth quarter
+	public int getPeriod(int e) {
+		return _period.get(e);
+	}
+
+	// returns the game clock of the event in tenths of a second, or -1 if its row has no clock
+	public int getClock(int e) {
+		return _clock.get(e);
+	}
+
+	// returns which side's column the event is written in: PlayByPlay.HOME, PlayByPlay.AWAY or PlayByPlay.NO_SIDE
+	public int getSide(int e) {
+		return _side.get(e);
+	}
+
+	// returns the PlayByPlay flags of the event, which say what type of event it is
+	public int getFlags(int e) {
+		return _flags.get(e) & ~LAST_IN_SECTION;
+	}
+
+	// returns the zone of the court (a CONSTANTS index) of the shot in the event
+	public int getZone(int e) {
+		return _zone.get(e);
+	}
+
+	// returns the points scored by the event: 1 for a made free throw, 2 or 3 for a made shot, 0 otherwise
+	public int getPoints(int e) {
+		return _points.get(e);
+	}
+
+	// returns k if the event is free throw k of n, or 0 if it isn't a free throw
+	public int getFreeThrowNumber(int e) {
+		return _freeThrowNumber.get(e);
+	}
+
+	// returns n if the event is free throw k of n, or 0 if it isn't a free throw
+	public int getFreeThrowsAwarded(int e) {
+		return _freeThrowsAwarded.get(e);
+	}
+
+	// returns the Names id of the player who shot or rebounded in the event, or Names.NONE
+	public int getPlayer(int e) {
+		return _nameIds[_player.get(e)];
+	}
+
+	// returns the points scored by a row of a play-by-play, as stored in the points column
+	static int pointsScored(PlayByPlay game, int row) {
+		if (!game.has(row, PlayByPlay.MAKES)) {
+			return 0;
+		}
+		if (game.getFreeThrowsAwarded(row) != 0 || game.getZone(row) == CONSTANTS.FREETHROW || game.has(row, PlayByPlay.TECHNICAL)) {
+			return 1;
+		}
+		if (game.getZone(row) == CONSTANTS.THREEPOINTER) {
+			return 3;
+		}
+		return 2;
+	}
+
+	// helper method for constructor. Returns a view of length bytes of the buffer starting at position
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + length);
+		return duplicate.slice();
+	}
+
+	// fork-join task that replays the games from start up to end into an accumulator, splitting the range in half until it is small
+	private class ReplayTask extends RecursiveTask<DataParser> {
+
+		private static final long serialVersionUID = 1L;
+
+		private DataParser _parser;
+		private int _start;
+		private int _end;
+
+		public ReplayTask(DataParser parser, int start, int end) {
+			_parser = parser;
+			_start = start;
+			_end = end;
+		}
+
+		protected DataParser compute() {
+			if (_end - _start <= GAMES_PER_TASK) {
+				DataParser accumulator = _parser.newAccumulator();
+				for (int g = _start; g < _end; g++) {
+					accumulator.parsePlayByPlay(getGame(g));
+				}
+				return accumulator;
+			}
+
+			int middle = (_start + _end) >>> 1;
+			ReplayTask first = new ReplayTask(_parser, _start, middle);
+			ReplayTask second = new ReplayTask(_parser, middle, _end);
+			first.fork();
+			DataParser secondGames = second.compute();
+			DataParser firstGames = first.join();
+			// the first half's games come before the second half's, whichever finishes first
+			firstGames.merge(secondGames);
+			return firstGames;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package nba;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/*
+ * This class collects the events of every play-by-play of a season and writes them out as an EventStore.
+ *
+ * Games are added as they are tokenized, before any parser reorders their rows, and are held in growable primitive columns
+ * until the store is written. The file is written to a temporary file next to it and renamed into place,
+ * so a scrape that dies halfway never leaves a broken store behind.
+ * Players and teams are given ids of their own in the store, and their names are written at the end of it.
+ */
+public class EventStoreWriter {
+
+	private static final int INITIAL_EVENTS = 1 << 16;
+	private static final int INITIAL_GAMES = 1 << 10;
+
+	private int _numGames;
+	private int[] _gameIds;
+	private int[] _firstEvent;
+	private int[] _awayTeam;
+	private int[] _homeTeam;
+
+	private int _numEvents;
+	private byte[] _period;
+	private int[] _clock;
+	private byte[] _side;
+	private int[] _flags;
+	private byte[] _zone;
+	private byte[] _points;
+	private byte[] _freeThrowNumber;
+	private byte[] _freeThrowsAwarded;
+	private int[] _player;
+
+	// the store's own ids of the names in it, which start from 1 like Names ids
+	private Map<Integer, Integer> _storeIds;
+	private List<String> _names;
+
+	public EventStoreWriter() {
+		_gameIds = new int[INITIAL_GAMES];
+		_firstEvent = new int[INITIAL_GAMES + 1];
+		_awayTeam = new int[INITIAL_GAMES];
+		_homeTeam = new int[INITIAL_GAMES];
+		_period = new byte[INITIAL_EVENTS];
+		_clock = new int[INITIAL_EVENTS];
+		_side = new byte[INITIAL_EVENTS];
+		_flags = new int[INITIAL_EVENTS];
+		_zone = new byte[INITIAL_EVENTS];
+		_points = new byte[INITIAL_EVENTS];
+		_freeThrowNumber = new byte[INITIAL_EVENTS];
+		_freeThrowsAwarded = new byte[INITIAL_EVENTS];
+		_player = new int[INITIAL_EVENTS];
+		_storeIds = new HashMap<Integer, Integer>();
+		_names = new ArrayList<String>();
+	}
+
+	// adds every row of the game it is passed. Games can be added from any thread
+	public synchronized void addGame(PlayByPlay game) {
+		this.ensureCapacity(game.getNumRows());
+
+		_gameIds[_numGames] = game.getGameId();
+		_firstEvent[_numGames] = _numEvents;
+		_awayTeam[_numGames] = this.storeId(game.getAwayTeam());
+		_homeTeam[_numGames] = this.storeId(game.getHomeTeam());
+
+		int period = 1;
+		for (int row = 0; row < game.getNumRows(); row++) {
+			int e = _numEvents++;
+			_period[e] = (byte) period;
+			_clock[e] = game.getClock(row);
+			_side[e] = game.getSide(row);
+			_flags[e] = game.getFlags(row) | (game.hasNextRow(row) ? 0 : EventStore.LAST_IN_SECTION);
+			_zone[e] = (byte) game.getZone(row);
+			_points[e] = (byte) EventStore.pointsScored(game, row);
+			_freeThrowNumber[e] = (byte) game.getFreeThrowNumber(row);
+			_freeThrowsAwarded[e] = (byte) game.getFreeThrowsAwarded(row);
+			_player[e] = this.storeId(game.getPlayer(row));
+
+			// the row that ends a period still belongs to it, the period changes on the row after
+			if (game.has(row, PlayByPlay.END_OF_PERIOD)) {
+				period++;
+			}
+		}
+
+		_numGames++;
+		_firstEvent[_numGames] = _numEvents;
+	}
+
+	// helper method for addGame. Returns the store's id for the name with the Names id it is passed, giving it one if it doesn't have one yet
+	private int storeId(int nameId) {
+		if (nameId == Names.NONE) {
+			return Names.NONE;
+		}
+		Integer storeId = _storeIds.get(nameId);
+		if (storeId == null) {
+			_names.add(Names.get(nameId));
+			storeId = _names.size();
+			_storeIds.put(nameId, storeId);
+		}
+		return storeId;
+	}
+
+	// returns the number of games added so far
+	public synchronized int getNumGames() {
+		return _numGames;
+	}
+
+	// writes every game added so far to file, replacing whatever was there
+	public synchronized void write(File file) throws IOException {
+		File temp = AtomicFile.tempFileFor(file);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		try {
+			out.writeInt(EventStore.MAGIC);
+			out.writeInt(EventStore.VERSION);
+			out.writeInt(_numGames);
+			out.writeInt(_numEvents);
+
+			for (int g = 0; g < _numGames; g++) {
+				out.writeInt(_gameIds[g]);
+			}
+			for (int g = 0; g <= _numGames; g++) {
+				out.writeInt(_firstEvent[g]);
+			}
+			for (int g = 0; g < _numGames; g++) {
+				out.writeInt(_awayTeam[g]);
+			}
+			for (int g = 0; g < _numGames; g++) {
+				out.writeInt(_homeTeam[g]);
+			}
+
+			// each column is written whole, one after another
+			for (int e = 0; e < _numEvents; e++) out.writeInt(_clock[e]);
+			for (int e = 0; e < _numEvents; e++) out.writeInt(_flags[e]);
+			for (int e = 0; e < _numEvents; e++) out.writeInt(_player[e]);
+			out.write(_period, 0, _numEvents);
+			out.write(_side, 0, _numEvents);
+			out.write(_zone, 0, _numEvents);
+			out.write(_points, 0, _numEvents);
+			out.write(_freeThrowNumber, 0, _numEvents);
+			out.write(_freeThrowsAwarded, 0, _numEvents);
+
+			// the names come last, in order of store id
+			out.writeInt(_names.size());
+			for (String name: _names) {
+				byte[] bytes = name.getBytes("UTF-8");
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		} finally {
+			out.close();
+		}
+		AtomicFile.replace(temp, file);
+	}
+
+	// helper method for addGame. Grows the columns so one more game of numRows rows fits
+	private void ensureCapacity(int numRows) {
+		if (_numGames + 1 >= _gameIds.length) {
+			_gameIds = Arrays.copyOf(_gameIds, _gameIds.length * 2);
+			_firstEvent = Arrays.copyOf(_firstEvent, _gameIds.length + 1);
+			_awayTeam = Arrays.copyOf(_awayTeam, _gameIds.length);
+			_homeTeam = Arrays.copyOf(_homeTeam, _gameIds.length);
+		}
+
+		int needed = _numEvents + numRows;
+		if (needed <= _clock.length) {
+			return;
+		}
+		int capacity = _clock.length;
+		while (capacity < needed) {
+			capacity *= 2;
+		}
+		_period = Arrays.copyOf(_period, capacity);
+		_clock = Arrays.copyOf(_clock, capacity);
+		_side = Arrays.copyOf(_side, capacity);
+		_flags = Arrays.copyOf(_flags, capacity);
+		_zone = Arrays.copyOf(_zone, capacity);
+		_points = Arrays.copyOf(_points, capacity);
+		_freeThrowNumber = Arrays.copyOf(_freeThrowNumber, capacity);
+		_freeThrowsAwarded = Arrays.copyOf(_freeThrowsAwarded, capacity);
+		_player = Arrays.copyOf(_player, capacity);
+	}
+}
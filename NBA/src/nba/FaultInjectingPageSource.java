@@ -0,0 +1,45 @@
+package nba;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+/*
+ * This class slows down and fails requests to another PageSource, as a FaultPlan decides.
+ * A failed request throws an IOException before the other source is asked for the page.
+ */
+public class FaultInjectingPageSource implements PageSource {
+
+	private PageSource _source;
+	private FaultPlan _faults;
+
+	public FaultInjectingPageSource(PageSource source, FaultPlan faults) {
+		_source = source;
+		_faults = faults;
+	}
+
+	public String get(String url, Stage stage) throws IOException {
+		this.inject(url);
+		return _source.get(url, stage);
+	}
+
+	public <T> T stream(String url, Stage stage, PageReader<T> reader) throws IOException {
+		this.inject(url);
+		return _source.stream(url, stage, reader);
+	}
+
+	public Page getIfChanged(String url, Stage stage, String etag, String lastModified) throws IOException {
+		this.inject(url);
+		return _source.getIfChanged(url, stage, etag, lastModified);
+	}
+
+	// helper method for get, stream and getIfChanged
+	private void inject(String url) throws IOException {
+		try {
+			if (_faults.apply(url)) {
+				throw new IOException("Injected failure fetching " + url);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to fetch " + url);
+		}
+	}
+}
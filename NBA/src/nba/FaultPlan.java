@@ -0,0 +1,75 @@
+package nba;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+/*
+ * This class decides which requests to slow down or fail, for testing the scraper against a page source that misbehaves.
+ *
+ * Every request waits latencyMillis plus up to jitterMillis more, and fails with probability failureRate.
+ * The decisions come from hashing the seed, the url and how many times the url has been asked for,
+ * so the same run makes the same decisions however its threads happen to be scheduled.
+ *
+ * It is configured with the system properties "nba.injectLatencyMillis", "nba.injectJitterMillis", "nba.injectFailureRate"
+ * and "nba.injectSeed".
+ */
+public class FaultPlan {
+
+	private long _latencyMillis;
+	private long _jitterMillis;
+	private double _failureRate;
+	private long _seed;
+	private ConcurrentHashMap<String, AtomicInteger> _attempts;
+
+	public FaultPlan(long latencyMillis, long jitterMillis, double failureRate, long seed) {
+		_latencyMillis = latencyMillis;
+		_jitterMillis = jitterMillis;
+		_failureRate = failureRate;
+		_seed = seed;
+		_attempts = new ConcurrentHashMap<String, AtomicInteger>();
+	}
+
+	// returns the plan the system properties ask for, or null if they don't ask for any latency or failures
+	public static FaultPlan fromProperties() {
+		long latencyMillis = Long.getLong("nba.injectLatencyMillis", 0);
+		long jitterMillis = Long.getLong("nba.injectJitterMillis", 0);
+		double failureRate = Double.parseDouble(System.getProperty("nba.injectFailureRate", "0"));
+		if (latencyMillis == 0 && jitterMillis == 0 && failureRate == 0) {
+			return null;
+		}
+		return new FaultPlan(latencyMillis, jitterMillis, failureRate, Long.getLong("nba.injectSeed", 1));
+	}
+
+	/*
+	 * Called once for each request for url. Waits out the request's latency, and returns true if the request should fail.
+	 * Throws InterruptedException if the thread is interrupted while it waits.
+	 */
+	public boolean apply(String url) throws InterruptedException {
+		AtomicInteger attempts = _attempts.get(url);
+		if (attempts == null) {
+			AtomicInteger newAttempts = new AtomicInteger();
+			attempts = _attempts.putIfAbsent(url, newAttempts);
+			if (attempts == null) {
+				attempts = newAttempts;
+			}
+		}
+		long random = mix(_seed ^ mix(url.hashCode() + 31L * attempts.getAndIncrement()));
+
+		long delay = _latencyMillis + (_jitterMillis > 0 ? (random >>> 1) % (_jitterMillis + 1) : 0);
+		if (delay > 0) {
+			Thread.sleep(delay);
+		}
+		// the top 53 bits make a uniform double in [0, 1)
+		return (mix(random) >>> 11) * 0x1.0p-53 < _failureRate;
+	}
+
+	// scrambles the bits of x (the SplitMix64 finalizer)
+	private static long mix(long x) {
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+	public String toString() {
+		return String.format("latency %d ms + up to %d ms, %.0f%% failures, seed %d", _latencyMillis, _jitterMillis, _failureRate * 100, _seed);
+	}
+}
@@ -0,0 +1,184 @@
+package nba;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+/*
+ * This class is a local HTTP server that serves a recorded season the way espn.com served it, for scraping offline
+ * through the real network path and for load testing the fetching code without touching espn.com.
+ *
+ * It serves the pages of a recorded archive (see ArchivePageSource) on the loopback address, at the same paths and queries
+ * they have on espn.com, so a PageClient whose base url is getBaseUrl() scrapes it like the real site.
+ * A page missing from the archive gets a 404. A FaultPlan can delay every response and answer some of them with a 503,
+ * which PageClient retries like any other 5xx.
+ *
+ * It answers like a well-behaved origin server: pages are gzipped or deflated when the request accepts it, and are served with
+ * an ETag (the hash of the archived body) and a Last-Modified header (when the page was archived). A request whose If-None-Match
+ * or If-Modified-Since says it already has the archived page gets a 304 with no body. Connections are kept alive between requests.
+ */
+public class FixtureServer {
+
+	// the date format of Last-Modified and If-Modified-Since headers
+	private static final DateTimeFormatter HTTP_DATE = DateTimeFormat.forPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'").withZoneUTC().withLocale(Locale.US);
+
+	private PageCache _archive;
+	private FaultPlan _faults;
+	private HttpServer _server;
+	private ExecutorService _threads;
+
+	// serves the archive with faults, which can be null for none, on port, or any free port if port is 0
+	public FixtureServer(File archiveDirectory, FaultPlan faults, int port, int numThreads) throws IOException {
+		_archive = new PageCache(archiveDirectory);
+		_faults = faults;
+		_server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		_threads = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("fixture-server"));
+		_server.setExecutor(_threads);
+		_server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange);
+			}
+		});
+	}
+
+	/*
+	 * Starts serving. The server's dispatcher thread takes after the thread that starts it, so it is started from a daemon thread:
+	 * a fixture server that is never stopped doesn't keep the program from exiting.
+	 */
+	public void start() {
+		Thread starter = new Thread(new Runnable() {
+			public void run() {
+				_server.start();
+			}
+		}, "fixture-server-start");
+		starter.setDaemon(true);
+		starter.start();
+		try {
+			starter.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// stops serving, waiting up to a second for responses being sent to finish
+	public void stop() {
+		_server.stop(1);
+		_threads.shutdownNow();
+	}
+
+	// returns the url to send requests for espn.com pages to instead
+	public String getBaseUrl() {
+		return "http://" + _server.getAddress().getAddress().getHostAddress() + ":" + _server.getAddress().getPort();
+	}
+
+	// helper method for the server's handler. Answers a request with the archived page for the espn.com url it stands for
+	private void respond(HttpExchange exchange) throws IOException {
+		try {
+			String query = exchange.getRequestURI().getRawQuery();
+			String url = PageSource.ESPN + exchange.getRequestURI().getRawPath() + (query == null ? "" : "?" + query);
+			if (_faults != null && _faults.apply(url)) {
+				this.send(exchange, 503, "Injected failure\n");
+				return;
+			}
+			PageCache.Entry entry = _archive.getEntry(url);
+			String html = (entry == null) ? null : _archive.read(entry);
+			if (html == null) {
+				this.send(exchange, 404, "Not in the archive: " + url + "\n");
+				return;
+			}
+
+			String etag = "\"" + entry.getContentHash() + "\"";
+			String lastModified = HTTP_DATE.print(entry.getFetchedAt());
+			exchange.getResponseHeaders().set("ETag", etag);
+			exchange.getResponseHeaders().set("Last-Modified", lastModified);
+			if (isNotModified(exchange, etag, entry.getFetchedAt())) {
+				exchange.sendResponseHeaders(304, -1);
+			}
+			else {
+				this.send(exchange, 200, html);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/*
+	 * helper method for respond. Returns true if the request's validators say it already has the page with etag, archived at lastModifiedMillis.
+	 * If-None-Match wins over If-Modified-Since when a request sends both, as HTTP says.
+	 */
+	private static boolean isNotModified(HttpExchange exchange, String etag, long lastModifiedMillis) {
+		String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+		if (ifNoneMatch != null) {
+			for (String tag: ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+		if (ifModifiedSince != null) {
+			try {
+				// HTTP dates only go down to the second
+				return lastModifiedMillis / 1000 <= HTTP_DATE.parseMillis(ifModifiedSince.trim()) / 1000;
+			} catch (IllegalArgumentException e) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	// helper method for send. Returns the first encoding the request accepts out of gzip and deflate, or null for neither
+	private static String getEncoding(HttpExchange exchange) {
+		String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+		if (acceptEncoding == null) {
+			return null;
+		}
+		for (String coding: acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim().toLowerCase();
+			boolean refused = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+			if (!refused && (name.equals("gzip") || name.equals("deflate"))) {
+				return name;
+			}
+		}
+		return null;
+	}
+
+	// helper method for respond. Sends the body, compressed if the request accepts it
+	private void send(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+		String encoding = getEncoding(exchange);
+		if (encoding != null) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+			OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(compressed) : new DeflaterOutputStream(compressed);
+			out.write(bytes);
+			out.close();
+			bytes = compressed.toByteArray();
+			exchange.getResponseHeaders().set("Content-Encoding", encoding);
+		}
+		exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+}
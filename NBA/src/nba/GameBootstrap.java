@@ -0,0 +1,319 @@
+package nba;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+/*
+ * This class puts confidence intervals on statistics worked out from counts, like offensive rebounding percentages
+ * and points per offensive rebound, by resampling whole games.
+ *
+ * A parser adds its counts game by game into a few columns (offensive rebounds off threes, second chance points off free throws, ...).
+ * Rebounds in the same game aren't independent of each other, so the bootstrap resamples games rather than rebounds: each resample
+ * draws as many games as there are, with replacement, adds up their columns, and works the statistics out from the totals.
+ * The middle "nba.confidenceLevel" of the resampled statistics is the interval (0.95 by default). The counts are kept in one flat int array,
+ * a row of columns per game, and resampling only ever adds rows of it into a long array, so no objects are made per resample.
+ *
+ * The resamples are split into fixed chunks and spread across threads with fork-join. Each chunk draws from its own Random,
+ * seeded from the seed and the chunk's number, and the games are put in game id order first, so the intervals come out the same
+ * however many threads there are and whatever order the games were parsed or merged in.
+ * It makes "nba.bootstrapResamples" resamples (10000 by default, 0 turns the intervals off), from the seed "nba.bootstrapSeed" (1 by default),
+ * on "nba.analysisThreads" threads (one per processor by default).
+ */
+public class GameBootstrap {
+
+	// resamples made from one Random, and so by one fork-join task
+	private static final int RESAMPLES_PER_TASK = 256;
+
+	private int _numColumns;
+	private int _numGames;
+	private long[] _gameIds;
+	private int[] _counts;
+
+	// the game counts are being added to, compared by identity, since its rows are recorded one after another
+	private PlayByPlay _currentGame;
+
+	private int _numResamples;
+	private long _seed;
+	private int _parallelism;
+	private double _level;
+
+	// keeps counts for games of numColumns columns each
+	public GameBootstrap(int numColumns) {
+		_numColumns = numColumns;
+		_gameIds = new long[16];
+		_counts = new int[16 * numColumns];
+		_numResamples = Integer.getInteger("nba.bootstrapResamples", 10000);
+		_seed = Long.getLong("nba.bootstrapSeed", 1);
+		_parallelism = Integer.getInteger("nba.analysisThreads", Runtime.getRuntime().availableProcessors());
+		_level = Double.parseDouble(System.getProperty("nba.confidenceLevel", "0.95"));
+		if (!(_level > 0 && _level < 1)) {
+			throw new IllegalArgumentException("nba.confidenceLevel must be between 0 and 1, but was: " + _level);
+		}
+	}
+
+	/*
+	 * Works the statistics out from a column total for each column. Called from many threads at once,
+	 * so it should only write to the estimates it is passed.
+	 */
+	public interface Statistic {
+		void compute(long[] totals, double[] estimates);
+	}
+
+	// adds amount to the column of the game. A game other than the one added to last starts a new row
+	public void add(PlayByPlay game, int column, int amount) {
+		if (game != _currentGame) {
+			this.startGame(game.getGameId());
+			_currentGame = game;
+		}
+		_counts[(_numGames - 1) * _numColumns + column] += amount;
+	}
+
+	// adds every game of other, which must have the same columns, to these games
+	public void merge(GameBootstrap other) {
+		if (other._numColumns != _numColumns) {
+			throw new IllegalArgumentException("Can't merge games of " + other._numColumns + " columns into games of " + _numColumns);
+		}
+		for (int g = 0; g < other._numGames; g++) {
+			this.startGame(other._gameIds[g]);
+			System.arraycopy(other._counts, g * _numColumns, _counts, (_numGames - 1) * _numColumns, _numColumns);
+		}
+		_currentGame = null;
+	}
+
+	// writes every game's id and counts, for read to add to the games of a GameBootstrap in another process
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(_numColumns);
+		out.writeInt(_numGames);
+		for (int g = 0; g < _numGames; g++) {
+			out.writeLong(_gameIds[g]);
+			for (int c = 0; c < _numColumns; c++) {
+				out.writeInt(_counts[g * _numColumns + c]);
+			}
+		}
+	}
+
+	// adds the games written by write to these games, like merge
+	public void read(DataInput in) throws IOException {
+		int numColumns = in.readInt();
+		if (numColumns != _numColumns) {
+			throw new IOException("Can't read games of " + numColumns + " columns into games of " + _numColumns);
+		}
+		int numGames = in.readInt();
+		if (numGames < 0) {
+			throw new IOException("Bad number of games: " + numGames);
+		}
+		for (int g = 0; g < numGames; g++) {
+			this.startGame(in.readLong());
+			for (int c = 0; c < _numColumns; c++) {
+				_counts[(_numGames - 1) * _numColumns + c] = in.readInt();
+			}
+		}
+		_currentGame = null;
+	}
+
+	// returns the number of games counts have been added for
+	public int getNumGames() {
+		return _numGames;
+	}
+
+	// returns the number of resamples made
+	public int getNumResamples() {
+		return _numResamples;
+	}
+
+	// returns the share of resampled statistics inside each interval, like 0.95
+	public double getLevel() {
+		return _level;
+	}
+
+	/*
+	 * Resamples the games and returns the interval of each of numEstimates statistics.
+	 * Resamples where a statistic isn't a number, like a percentage with nothing to divide by, are left out of its interval,
+	 * and an interval with no resamples left, or with the resamples turned off, is NaN to NaN.
+	 */
+	public Intervals resample(Statistic statistic, int numEstimates) {
+		double[][] estimates = new double[numEstimates][_numResamples];
+		if (_numGames > 0 && _numResamples > 0) {
+			ResampleTask all = new ResampleTask(this.sortedCounts(), statistic, estimates, 0, _numResamples);
+			if (_parallelism <= 1 || _numResamples <= RESAMPLES_PER_TASK) {
+				all.compute();
+			}
+			else {
+				ForkJoinPool pool = new ForkJoinPool(_parallelism);
+				try {
+					pool.invoke(all);
+				} finally {
+					pool.shutdown();
+				}
+			}
+		}
+
+		double[] low = new double[numEstimates];
+		double[] high = new double[numEstimates];
+		for (int e = 0; e < numEstimates; e++) {
+			double[] sorted = estimates[e];
+			int n = 0;
+			if (_numGames > 0) {
+				for (int r = 0; r < _numResamples; r++) {
+					if (!Double.isNaN(sorted[r])) {
+						sorted[n++] = sorted[r];
+					}
+				}
+			}
+			Arrays.sort(sorted, 0, n);
+			low[e] = percentile(sorted, n, (1 - _level) / 2);
+			high[e] = percentile(sorted, n, 1 - (1 - _level) / 2);
+		}
+		return new Intervals(_level, low, high);
+	}
+
+	// helper method for add, merge and read. Adds an empty row for a game
+	private void startGame(long gameId) {
+		if (_numGames == _gameIds.length) {
+			_gameIds = Arrays.copyOf(_gameIds, _numGames * 2);
+			_counts = Arrays.copyOf(_counts, _numGames * 2 * _numColumns);
+		}
+		_gameIds[_numGames] = gameId;
+		_numGames++;
+	}
+
+	// helper method for resample. Returns the rows of counts in game id order, with games of the same id in order of their counts
+	private int[] sortedCounts() {
+		Integer[] order = new Integer[_numGames];
+		for (int g = 0; g < _numGames; g++) {
+			order[g] = g;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (_gameIds[a] != _gameIds[b]) {
+					return (_gameIds[a] < _gameIds[b]) ? -1 : 1;
+				}
+				for (int c = 0; c < _numColumns; c++) {
+					int difference = Integer.compare(_counts[a * _numColumns + c], _counts[b * _numColumns + c]);
+					if (difference != 0) {
+						return difference;
+					}
+				}
+				return 0;
+			}
+		});
+		int[] sorted = new int[_numGames * _numColumns];
+		for (int g = 0; g < _numGames; g++) {
+			System.arraycopy(_counts, order[g] * _numColumns, sorted, g * _numColumns, _numColumns);
+		}
+		return sorted;
+	}
+
+	// helper method for resample. Returns the value at the fraction of the way through the n sorted values, between the two closest
+	private static double percentile(double[] sorted, int n, double fraction) {
+		if (n == 0) {
+			return Double.NaN;
+		}
+		double position = fraction * (n - 1);
+		int below = (int) Math.floor(position);
+		int above = Math.min(below + 1, n - 1);
+		return sorted[below] + (position - below) * (sorted[above] - sorted[below]);
+	}
+
+	// the seed of each chunk's Random, spread out from the seed so neighbouring chunks don't draw related games
+	private static long chunkSeed(long seed, long chunk) {
+		long x = seed + (chunk + 1) * 0x9E3779B97F4A7C15L;
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+	// the low and high ends of the interval of each statistic
+	public static class Intervals {
+
+		private double _level;
+		private double[] _low;
+		private double[] _high;
+
+		public Intervals(double level, double[] low, double[] high) {
+			_level = level;
+			_low = low;
+			_high = high;
+		}
+
+		/*
+		 * Returns the interval of the statistic to follow its value in a report, like " (95% CI 38.20% to 43.05%)" for the format "%.2f%%",
+		 * or "" if it has no interval.
+		 */
+		public String describe(int estimate, String format) {
+			if (Double.isNaN(_low[estimate]) || Double.isNaN(_high[estimate])) {
+				return "";
+			}
+			return " (" + Math.round(_level * 100) + "% CI " + String.format(format, _low[estimate]) + " to " + String.format(format, _high[estimate]) + ")";
+		}
+
+		public double getLow(int estimate) {
+			return _low[estimate];
+		}
+
+		public double getHigh(int estimate) {
+			return _high[estimate];
+		}
+	}
+
+	/*
+	 * Makes the resamples from start to end, splitting them in half until they are down to whole chunks.
+	 * Each writes its own slots of the estimates, so the tasks never share anything they write.
+	 */
+	private class ResampleTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int[] _games;
+		private Statistic _statistic;
+		private double[][] _estimates;
+		private int _start;
+		private int _end;
+
+		public ResampleTask(int[] games, Statistic statistic, double[][] estimates, int start, int end) {
+			_games = games;
+			_statistic = statistic;
+			_estimates = estimates;
+			_start = start;
+			_end = end;
+		}
+
+		protected void compute() {
+			// chunks always start at a multiple of RESAMPLES_PER_TASK, so each resample is drawn from the same Random every time
+			int firstChunk = _start / RESAMPLES_PER_TASK;
+			int lastChunk = (_end - 1) / RESAMPLES_PER_TASK;
+			if (firstChunk == lastChunk) {
+				this.resampleChunk(firstChunk);
+				return;
+			}
+			int middle = ((firstChunk + lastChunk + 1) >>> 1) * RESAMPLES_PER_TASK;
+			invokeAll(new ResampleTask(_games, _statistic, _estimates, _start, middle),
+					new ResampleTask(_games, _statistic, _estimates, middle, _end));
+		}
+
+		// helper method for compute. Makes the resamples of one chunk
+		private void resampleChunk(int chunk) {
+			Random random = new Random(chunkSeed(_seed, chunk));
+			long[] totals = new long[_numColumns];
+			double[] estimates = new double[_estimates.length];
+			for (int r = _start; r < _end; r++) {
+				Arrays.fill(totals, 0);
+				for (int drawn = 0; drawn < _numGames; drawn++) {
+					int row = random.nextInt(_numGames) * _numColumns;
+					for (int c = 0; c < _numColumns; c++) {
+						totals[c] += _games[row + c];
+					}
+				}
+				_statistic.compute(totals, estimates);
+				for (int e = 0; e < estimates.length; e++) {
+					_estimates[e][r] = estimates[e];
+				}
+			}
+		}
+	}
+}
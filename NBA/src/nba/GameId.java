@@ -0,0 +1,42 @@
+package nba;
+/*
+ * This class reads the espn.com id of a game out of the urls of its pages.
+ *
+ * Every page of a game names it the same way, in a "gameId=" parameter or a "/gameId/" path segment,
+ * so the id is what tells two links to the same game apart from links to different games, whatever else differs between them.
+ * Ids are ints, since espn.com's ids are nine digits. NONE stands for a url that doesn't name a game.
+ */
+public final class GameId {
+
+	public static final int NONE = 0;
+
+	private GameId() {
+	}
+
+	// returns the id of the game the url names, or NONE if it doesn't name one or the id doesn't fit in an int
+	public static int parse(String url) {
+		if (url == null) {
+			return NONE;
+		}
+		int digits = url.indexOf("gameId=");
+		if (digits != -1) {
+			digits += "gameId=".length();
+		}
+		else {
+			digits = url.indexOf("/gameId/");
+			if (digits == -1) {
+				return NONE;
+			}
+			digits += "/gameId/".length();
+		}
+
+		long gameId = 0;
+		for (int c = digits; c < url.length() && Character.isDigit(url.charAt(c)); c++) {
+			gameId = gameId * 10 + (url.charAt(c) - '0');
+			if (gameId > Integer.MAX_VALUE) {
+				return NONE;
+			}
+		}
+		return (int) gameId;
+	}
+}
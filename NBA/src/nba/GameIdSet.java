@@ -0,0 +1,146 @@
+package nba;
+
+import java.util.Arrays;
+/*
+ * This class is a set of game ids, kept in an open-addressing hash table of primitive longs.
+ *
+ * A season is about 1,230 games, so even a run over many seasons keeps its ids in a few tens of kilobytes,
+ * with no boxing and no garbage per game. Ids are longs so ids from different seasons or sites can be packed into one key.
+ * NONE (0) is never a member: adding it does nothing, since it stands for a page whose game isn't known.
+ *
+ * It is not thread safe. Each set belongs to the thread that drives the scrape.
+ */
+public class GameIdSet {
+
+	private static final int INITIAL_CAPACITY = 64;
+	private static final long EMPTY = GameId.NONE;
+
+	private long[] _ids;
+	private int _size;
+
+	public GameIdSet() {
+		_ids = new long[INITIAL_CAPACITY];
+	}
+
+	// adds the id, returning true if it wasn't already in the set
+	public boolean add(long id) {
+		if (id == EMPTY) {
+			return false;
+		}
+		int mask = _ids.length - 1;
+		int i = hash(id) & mask;
+		while (_ids[i] != EMPTY) {
+			if (_ids[i] == id) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		_ids[i] = id;
+		_size++;
+		// kept under half full, so probes stay short
+		if (_size * 2 > _ids.length) {
+			this.rehash(_ids.length * 2);
+		}
+		return true;
+	}
+
+	// adds every id in other to this set
+	public void addAll(GameIdSet other) {
+		for (long id: other._ids) {
+			if (id != EMPTY) {
+				this.add(id);
+			}
+		}
+	}
+
+	public boolean contains(long id) {
+		if (id == EMPTY) {
+			return false;
+		}
+		int mask = _ids.length - 1;
+		for (int i = hash(id) & mask; _ids[i] != EMPTY; i = (i + 1) & mask) {
+			if (_ids[i] == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Removes the id, returning true if it was in the set.
+	 * The ids after it in its run of slots are shifted back over the gap, so lookups never need tombstones.
+	 */
+	public boolean remove(long id) {
+		if (id == EMPTY) {
+			return false;
+		}
+		int mask = _ids.length - 1;
+		int gap = hash(id) & mask;
+		while (_ids[gap] != id) {
+			if (_ids[gap] == EMPTY) {
+				return false;
+			}
+			gap = (gap + 1) & mask;
+		}
+
+		for (int i = (gap + 1) & mask; _ids[i] != EMPTY; i = (i + 1) & mask) {
+			// an id can move back into the gap only if the gap lies between its home slot and where it is now
+			int home = hash(_ids[i]) & mask;
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				_ids[gap] = _ids[i];
+				gap = i;
+			}
+		}
+		_ids[gap] = EMPTY;
+		_size--;
+		return true;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	public boolean isEmpty() {
+		return _size == 0;
+	}
+
+	// returns the ids in the set, in no particular order
+	public long[] toArray() {
+		long[] ids = new long[_size];
+		int n = 0;
+		for (long id: _ids) {
+			if (id != EMPTY) {
+				ids[n++] = id;
+			}
+		}
+		return ids;
+	}
+
+	// helper method for add. Moves every id into a table of the capacity it is passed
+	private void rehash(int capacity) {
+		long[] old = _ids;
+		_ids = new long[capacity];
+		int mask = capacity - 1;
+		for (long id: old) {
+			if (id != EMPTY) {
+				int i = hash(id) & mask;
+				while (_ids[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				_ids[i] = id;
+			}
+		}
+	}
+
+	// spreads the bits of an id, since ids are close together
+	private static int hash(long id) {
+		id *= 0x9E3779B97F4A7C15L;
+		return (int) (id ^ (id >>> 32));
+	}
+
+	public String toString() {
+		long[] ids = this.toArray();
+		Arrays.sort(ids);
+		return Arrays.toString(ids);
+	}
+}
@@ -0,0 +1,110 @@
+package nba;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.joda.time.LocalDate;
+import org.jsoup.nodes.Document;
+/*
+ * This class is a game found on a page of the schedule: the link to its box score, and what the schedule says about it.
+ *
+ * The box score is only downloaded when it is asked for, unless a ScheduleIterator has already started downloading it in the background.
+ */
+public class GameReference {
+
+	private Schedule _schedule;
+	private String _boxScoreUrl;
+	private String _week;
+	private LocalDate _day;
+	private String _text;
+	private long _maxAgeMillis;
+	private Future<Document> _boxScore;
+
+	// maxAgeMillis is how long a cached copy of the game's pages stays fresh, which depends on its week
+	public GameReference(Schedule schedule, String boxScoreUrl, String week, LocalDate day, String text, long maxAgeMillis) {
+		_schedule = schedule;
+		_boxScoreUrl = boxScoreUrl;
+		_week = week;
+		_day = day;
+		_text = text;
+		_maxAgeMillis = maxAgeMillis;
+	}
+
+	public String getBoxScoreUrl() {
+		return _boxScoreUrl;
+	}
+
+	// returns the espn.com game id in the box score link, or 0 if it doesn't have one
+	public int getGameId() {
+		return GameId.parse(_boxScoreUrl);
+	}
+
+	// returns the week ("yyyyMMdd") of the schedule page the game is on
+	public String getWeek() {
+		return _week;
+	}
+
+	// returns the day the game is played on, or null if the schedule page doesn't say
+	public LocalDate getDay() {
+		return _day;
+	}
+
+	// returns the text of the game's row on the schedule, which names the teams playing
+	public String getText() {
+		return _text;
+	}
+
+	// returns true if the game's row on the schedule names the team, ignoring case
+	public boolean involves(String team) {
+		return _text.toLowerCase().contains(team.toLowerCase());
+	}
+
+	// returns how long a cached copy of the game's pages stays fresh
+	public long getMaxAge() {
+		return _maxAgeMillis;
+	}
+
+	// starts downloading the box score in the background, if it hasn't been started already
+	void prefetch() {
+		if (_boxScore == null) {
+			PageFetcher fetcher = _schedule.getFetcher();
+			_boxScore = fetcher.submit(fetcher.fetchTask(_boxScoreUrl, _maxAgeMillis));
+		}
+	}
+
+	// stops a background download of the box score that hasn't started yet
+	void cancel() {
+		if (_boxScore != null) {
+			_boxScore.cancel(false);
+		}
+	}
+
+	// returns the game's box score, waiting for it if it is being downloaded in the background and downloading it if it isn't
+	public Document getBoxScore() throws IOException {
+		if (_boxScore == null) {
+			return _schedule.getFetcher().fetch(_boxScoreUrl, _maxAgeMillis);
+		}
+		try {
+			return _boxScore.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for " + _boxScoreUrl);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	// returns the play-by-play links inside the game's box score
+	public List<String> getPlayByPlayLinks() throws IOException {
+		return Schedule.getPlayByPlayLinks(this.getBoxScore());
+	}
+
+	public String toString() {
+		return _week + " " + _boxScoreUrl;
+	}
+}
@@ -0,0 +1,26 @@
+package nba;
+
+import java.io.IOException;
+/*
+ * Thrown when a server answers a request with an error status.
+ */
+public class HttpStatusException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private int _statusCode;
+
+	public HttpStatusException(int statusCode, String url) {
+		super("HTTP error " + statusCode + " fetching " + url);
+		_statusCode = statusCode;
+	}
+
+	public int getStatusCode() {
+		return _statusCode;
+	}
+
+	// returns true if the same request could succeed if it is sent again: the server was overloaded, throttling or broken for a moment
+	public boolean isRetryable() {
+		return _statusCode == 429 || _statusCode >= 500;
+	}
+}
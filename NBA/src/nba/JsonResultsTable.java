@@ -0,0 +1,93 @@
+package nba;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+/*
+ * This class writes a table of results as a JSON array with an object for each row, keyed by column name.
+ * Each object is on its own line. A number that isn't a number (NaN) is written as null.
+ */
+public class JsonResultsTable implements ResultsTable {
+
+	private File _file;
+	private File _temp;
+	private Writer _out;
+	private String[] _keys;
+	private boolean _firstRow;
+
+	public JsonResultsTable(File file, String[] columns) throws IOException {
+		this(AtomicFile.tempFileFor(file), file, columns);
+	}
+
+	// helper constructor, so the temporary file can be opened before the table starts writing to it
+	private JsonResultsTable(File temp, File file, String[] columns) throws IOException {
+		this(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"), 1 << 16), columns);
+		_temp = temp;
+		_file = file;
+	}
+
+	// writes the table to out instead of a file, like to render it in memory. Closing the table closes out
+	public JsonResultsTable(Writer out, String[] columns) throws IOException {
+		_out = out;
+		_keys = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			_keys[i] = quote(columns[i]) + ":";
+		}
+		_firstRow = true;
+		_out.write('[');
+	}
+
+	public void writeRow(Object... values) throws IOException {
+		if (values.length != _keys.length) {
+			throw new IllegalArgumentException("Expected " + _keys.length + " values but got " + values.length);
+		}
+		_out.write(_firstRow ? "\n{" : ",\n{");
+		_firstRow = false;
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				_out.write(',');
+			}
+			_out.write(_keys[i]);
+			Object value = values[i];
+			if (value instanceof Number) {
+				boolean finite = !(value instanceof Double) || !(((Double) value).isNaN() || ((Double) value).isInfinite());
+				_out.write(finite ? value.toString() : "null");
+			}
+			else {
+				_out.write(quote(String.valueOf(value)));
+			}
+		}
+		_out.write('}');
+	}
+
+	// returns text as a JSON string, with quotes around it and anything that has to be escaped escaped
+	private static String quote(String text) {
+		StringBuilder quoted = new StringBuilder(text.length() + 2);
+		quoted.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	// finishes the array and moves the file into place
+	public void close() throws IOException {
+		_out.write("\n]\n");
+		_out.close();
+		if (_file != null) {
+			AtomicFile.replace(_temp, _file);
+		}
+	}
+}
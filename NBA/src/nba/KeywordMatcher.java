@@ -0,0 +1,241 @@
+package nba;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/*
+ * This class finds every keyword of a table in a piece of text in a single scan, and returns them as a bitmask.
+ *
+ * Each keyword is given the flags it stands for, and more than one keyword can stand for the same flag, so a new way
+ * espn.com words a play only needs a new line in the table. Matching the text returns the flags of every keyword found
+ * anywhere in it, which is what calling contains once for each keyword and or-ing the flags together would give,
+ * but the text is read once however many keywords there are.
+ *
+ * The keywords are compiled into an Aho-Corasick automaton: a trie of the keywords whose failure links are followed ahead of time,
+ * so matching is one table lookup per character of text. The characters are first mapped to the few that appear in keywords,
+ * which keeps the table small. A matcher can ignore case, in which case keywords and text are both compared lower case.
+ *
+ * Matchers are built once with a Builder and never change, so one can be shared by every thread.
+ */
+public final class KeywordMatcher {
+
+	// state 0 is the root: no part of any keyword matched
+	private static final int ROOT = 0;
+
+	private final boolean _ignoreCase;
+	// the index in the alphabet of each character below 128, and the characters above it that appear in keywords, sorted
+	private final byte[] _asciiClasses;
+	private final char[] _otherChars;
+	private final int _alphabetSize;
+	// the state after each state and character class, indexed by state * _alphabetSize + class
+	private final int[] _next;
+	// the flags of every keyword that ends in each state
+	private final long[] _flags;
+
+	private KeywordMatcher(boolean ignoreCase, byte[] asciiClasses, char[] otherChars, int alphabetSize, int[] next, long[] flags) {
+		_ignoreCase = ignoreCase;
+		_asciiClasses = asciiClasses;
+		_otherChars = otherChars;
+		_alphabetSize = alphabetSize;
+		_next = next;
+		_flags = flags;
+	}
+
+	// returns the flags of every keyword found in the text, or 0 if none are
+	public long match(CharSequence text) {
+		long found = 0;
+		int state = ROOT;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			state = _next[state * _alphabetSize + this.classOf(text.charAt(i))];
+			found |= _flags[state];
+		}
+		return found;
+	}
+
+	// returns true if the text contains a keyword with any of the flags
+	public boolean matchesAny(CharSequence text, long flags) {
+		return (this.match(text) & flags) != 0;
+	}
+
+	// returns the number of states in the automaton, one more than the number of distinct keyword prefixes
+	public int getNumStates() {
+		return _flags.length;
+	}
+
+	// helper method for match. Returns the index in the alphabet of the character, or 0 if it isn't in any keyword
+	private int classOf(char c) {
+		if (_ignoreCase) {
+			c = Character.toLowerCase(c);
+		}
+		if (c < 128) {
+			return _asciiClasses[c];
+		}
+		int other = Arrays.binarySearch(_otherChars, c);
+		return (other < 0) ? 0 : 128 + other;
+	}
+
+	/*
+	 * Collects the keyword table of a matcher. Each add gives a keyword the flags it stands for,
+	 * and build compiles the table into a matcher.
+	 */
+	public static class Builder {
+
+		private boolean _ignoreCase;
+		private List<String> _keywords;
+		private List<Long> _keywordFlags;
+
+		public Builder() {
+			_keywords = new ArrayList<String>();
+			_keywordFlags = new ArrayList<Long>();
+		}
+
+		// compares keywords and text lower case, whether it is called before or after the keywords are added
+		public Builder ignoreCase() {
+			_ignoreCase = true;
+			return this;
+		}
+
+		// adds a keyword that stands for the flags it is passed. The same keyword can be added more than once, for more flags
+		public Builder add(String keyword, long flags) {
+			if (keyword.isEmpty()) {
+				throw new IllegalArgumentException("Keywords can't be empty");
+			}
+			_keywords.add(keyword);
+			_keywordFlags.add(flags);
+			return this;
+		}
+
+		/*
+		 * Compiles the keywords into a matcher: builds the trie, then walks it breadth first to work out each state's failure link,
+		 * filling in every missing transition with the failure state's, and passing the flags of keywords that end at a state's failure
+		 * on to the state, since matching one state's text means matching the shorter suffix too.
+		 */
+		public KeywordMatcher build() {
+			List<String> keywords = this.foldCase();
+
+			// the alphabet is class 0 for every character no keyword has, then one class for each character keywords have
+			char[] chars = this.keywordChars(keywords);
+			byte[] asciiClasses = new byte[128];
+			List<Character> others = new ArrayList<Character>();
+			int alphabetSize = 1;
+			for (char c: chars) {
+				if (c < 128) {
+					if (alphabetSize > Byte.MAX_VALUE) {
+						throw new IllegalArgumentException("Too many different characters in the keywords");
+					}
+					asciiClasses[c] = (byte) alphabetSize++;
+				}
+				else {
+					others.add(c);
+				}
+			}
+			char[] otherChars = new char[others.size()];
+			for (int i = 0; i < otherChars.length; i++) {
+				otherChars[i] = others.get(i);
+			}
+			// characters above 128 get classes 128 and up, after however many ASCII classes there are
+			int width = otherChars.length == 0 ? alphabetSize : 128 + otherChars.length;
+
+			KeywordMatcher classes = new KeywordMatcher(_ignoreCase, asciiClasses, otherChars, width, null, null);
+
+			// the trie, with -1 for a missing transition
+			int maxStates = 1;
+			for (String keyword: keywords) {
+				maxStates += keyword.length();
+			}
+			int[] next = new int[maxStates * width];
+			Arrays.fill(next, -1);
+			long[] flags = new long[maxStates];
+			int numStates = 1;
+			for (int k = 0; k < keywords.size(); k++) {
+				String keyword = keywords.get(k);
+				int state = ROOT;
+				for (int i = 0; i < keyword.length(); i++) {
+					int transition = state * width + classes.classOf(keyword.charAt(i));
+					if (next[transition] == -1) {
+						next[transition] = numStates++;
+					}
+					state = next[transition];
+				}
+				flags[state] |= _keywordFlags.get(k);
+			}
+
+			// breadth first from the root, resolving each state's missing transitions through its failure link
+			int[] failure = new int[numStates];
+			int[] queue = new int[numStates];
+			int head = 0;
+			int tail = 0;
+			for (int c = 0; c < width; c++) {
+				int child = next[ROOT * width + c];
+				if (child == -1) {
+					next[ROOT * width + c] = ROOT;
+				}
+				else {
+					failure[child] = ROOT;
+					queue[tail++] = child;
+				}
+			}
+			while (head < tail) {
+				int state = queue[head++];
+				flags[state] |= flags[failure[state]];
+				for (int c = 0; c < width; c++) {
+					int child = next[state * width + c];
+					int fallback = next[failure[state] * width + c];
+					if (child == -1) {
+						next[state * width + c] = fallback;
+					}
+					else {
+						failure[child] = fallback;
+						queue[tail++] = child;
+					}
+				}
+			}
+
+			return new KeywordMatcher(_ignoreCase, asciiClasses, otherChars, width, Arrays.copyOf(next, numStates * width),
+					Arrays.copyOf(flags, numStates));
+		}
+
+		/*
+		 * helper method for build. Returns the keywords, lower case if the matcher ignores case. Each character is lowered
+		 * with Character.toLowerCase, the same way match lowers the text, so the default locale never changes what matches
+		 */
+		private List<String> foldCase() {
+			if (!_ignoreCase) {
+				return _keywords;
+			}
+			List<String> keywords = new ArrayList<String>();
+			for (String keyword: _keywords) {
+				char[] chars = keyword.toCharArray();
+				for (int i = 0; i < chars.length; i++) {
+					chars[i] = Character.toLowerCase(chars[i]);
+				}
+				keywords.add(new String(chars));
+			}
+			return keywords;
+		}
+
+		// helper method for build. Returns every character that appears in a keyword, sorted, once each
+		private char[] keywordChars(List<String> keywords) {
+			boolean[] seen = new boolean[Character.MAX_VALUE + 1];
+			int count = 0;
+			for (String keyword: keywords) {
+				for (int i = 0; i < keyword.length(); i++) {
+					char c = keyword.charAt(i);
+					if (!seen[c]) {
+						seen[c] = true;
+						count++;
+					}
+				}
+			}
+			char[] chars = new char[count];
+			int n = 0;
+			for (int c = 0; c <= Character.MAX_VALUE; c++) {
+				if (seen[c]) {
+					chars[n++] = (char) c;
+				}
+			}
+			return chars;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package nba;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+/*
+ * This class keeps track of where a scrape spends its time, stage by stage.
+ *
+ * For each Stage it counts how many pages or games went through it, a histogram of how long each one took,
+ * the bytes downloaded, the play-by-play rows handled, how often the PageCache had the page, and how many stale pages
+ * came back 304 Not Modified.
+ * Everything is kept in preallocated atomic arrays, so recording never allocates and is safe from any thread.
+ * Latencies go in power-of-two buckets of nanoseconds, so percentiles are reported to within a factor of two.
+ *
+ * A report can be written to a file every so often while a run goes on, and printed at the end of it.
+ */
+public final class Metrics {
+
+	private static final int NUM_STAGES = Stage.values().length;
+	private static final int NUM_BUCKETS = 64;
+
+	// fields kept for each stage
+	private static final int COUNT = 0;
+	private static final int TOTAL_NANOS = 1;
+	private static final int MAX_NANOS = 2;
+	private static final int BYTES = 3;
+	private static final int ROWS = 4;
+	private static final int CACHE_HITS = 5;
+	private static final int CACHE_MISSES = 6;
+	private static final int NOT_MODIFIED = 7;
+	private static final int NUM_FIELDS = 8;
+
+	private static final AtomicLongArray COUNTERS = new AtomicLongArray(NUM_STAGES * NUM_FIELDS);
+	private static final AtomicLongArray HISTOGRAMS = new AtomicLongArray(NUM_STAGES * NUM_BUCKETS);
+	private static volatile long _startNanos = System.nanoTime();
+	private static ScheduledExecutorService _exporter;
+
+	private Metrics() {
+	}
+
+	// records how long one page or game took to get through the stage
+	public static void recordLatency(Stage stage, long nanos) {
+		int base = stage.ordinal() * NUM_FIELDS;
+		COUNTERS.incrementAndGet(base + COUNT);
+		COUNTERS.addAndGet(base + TOTAL_NANOS, nanos);
+		long max = COUNTERS.get(base + MAX_NANOS);
+		while (nanos > max && !COUNTERS.compareAndSet(base + MAX_NANOS, max, nanos)) {
+			max = COUNTERS.get(base + MAX_NANOS);
+		}
+		int bucket = (nanos <= 0) ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+		HISTOGRAMS.incrementAndGet(stage.ordinal() * NUM_BUCKETS + bucket);
+	}
+
+	// records bytes downloaded by the stage
+	public static void recordBytes(Stage stage, long bytes) {
+		COUNTERS.addAndGet(stage.ordinal() * NUM_FIELDS + BYTES, bytes);
+	}
+
+	// records play-by-play rows handled by the stage
+	public static void recordRows(Stage stage, long rows) {
+		COUNTERS.addAndGet(stage.ordinal() * NUM_FIELDS + ROWS, rows);
+	}
+
+	// records whether the page the stage needed was in the PageCache
+	public static void recordCacheLookup(Stage stage, boolean hit) {
+		COUNTERS.incrementAndGet(stage.ordinal() * NUM_FIELDS + (hit ? CACHE_HITS : CACHE_MISSES));
+	}
+
+	// records that a stale page the stage needed was revalidated with a 304 rather than downloaded again
+	public static void recordNotModified(Stage stage) {
+		COUNTERS.incrementAndGet(stage.ordinal() * NUM_FIELDS + NOT_MODIFIED);
+	}
+
+	// forgets everything recorded so far, and starts timing throughput again from now
+	public static void reset() {
+		for (int i = 0; i < COUNTERS.length(); i++) {
+			COUNTERS.set(i, 0);
+		}
+		for (int i = 0; i < HISTOGRAMS.length(); i++) {
+			HISTOGRAMS.set(i, 0);
+		}
+		_startNanos = System.nanoTime();
+	}
+
+	// returns a table of everything recorded so far, one line per stage that has recorded anything
+	public static String report() {
+		double seconds = Math.max(1e-9, (System.nanoTime() - _startNanos) / 1e9);
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-20s %8s %9s %9s %9s %9s %9s %8s %9s %10s %10s %6s %6s%n", "stage", "count", "mean ms", "p50 ms", "p90 ms",
+				"p99 ms", "max ms", "per sec", "MB", "rows", "rows/sec", "cache", "304s"));
+		for (Stage stage: Stage.values()) {
+			int base = stage.ordinal() * NUM_FIELDS;
+			long count = COUNTERS.get(base + COUNT);
+			long hits = COUNTERS.get(base + CACHE_HITS);
+			long lookups = hits + COUNTERS.get(base + CACHE_MISSES);
+			if (count == 0 && lookups == 0) {
+				continue;
+			}
+			long rows = COUNTERS.get(base + ROWS);
+			report.append(String.format("%-20s %8d %9.2f %9.2f %9.2f %9.2f %9.2f %8.1f %9.2f %10d %10.0f %6s %6d%n", stage.getDescription(), count,
+					count == 0 ? 0 : COUNTERS.get(base + TOTAL_NANOS) / 1e6 / count, percentile(stage, count, 0.5), percentile(stage, count, 0.9),
+					percentile(stage, count, 0.99), COUNTERS.get(base + MAX_NANOS) / 1e6, count / seconds, COUNTERS.get(base + BYTES) / 1e6,
+					rows, rows / seconds, lookups == 0 ? "-" : String.format("%.0f%%", 100.0 * hits / lookups),
+					COUNTERS.get(base + NOT_MODIFIED)));
+		}
+		report.append(String.format("over %.1f seconds%n", seconds));
+		return report.toString();
+	}
+
+	// helper method for report. Returns the upper bound in milliseconds of the histogram bucket the percentile falls in, or the max if that is lower
+	private static double percentile(Stage stage, long count, double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+		double max = COUNTERS.get(stage.ordinal() * NUM_FIELDS + MAX_NANOS) / 1e6;
+		long rank = (long) Math.ceil(fraction * count);
+		long seen = 0;
+		for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+			seen += HISTOGRAMS.get(stage.ordinal() * NUM_BUCKETS + bucket);
+			if (seen >= rank) {
+				return Math.min(max, Math.pow(2, bucket + 1) / 1e6);
+			}
+		}
+		return max;
+	}
+
+	// prints the report, for the end of a run
+	public static void printSummary(PrintStream out) {
+		out.print(report());
+	}
+
+	/*
+	 * Writes the report to file every periodSeconds seconds on a background thread, until stopExporting is called.
+	 * Each report replaces the last one whole, so the file can be read at any time.
+	 */
+	public static synchronized void startExporting(final File file, long periodSeconds) {
+		stopExporting();
+		_exporter = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("metrics-exporter"));
+		_exporter.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					export(file);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+	}
+
+	// stops writing reports
+	public static synchronized void stopExporting() {
+		if (_exporter != null) {
+			_exporter.shutdownNow();
+			_exporter = null;
+		}
+	}
+
+	// writes the report to file, replacing whatever was there
+	public static void export(File file) throws IOException {
+		File temp = AtomicFile.tempFileFor(file);
+		Writer out = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+		try {
+			out.write(report());
+		} finally {
+			out.close();
+		}
+		AtomicFile.replace(temp, file);
+	}
+}
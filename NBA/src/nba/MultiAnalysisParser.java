@@ -0,0 +1,103 @@
+package nba;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+/*
+ * This class runs several parsers over a single scrape of the NBA schedule.
+ * 
+ * It walks every play-by-play once and hands each miss and rebound it finds to every parser added to it,
+ * so getting more than one set of results doesn't mean downloading and parsing every game more than once.
+ * When parsing is finished, each parser interprets and writes out its own results.
+ * 
+ * It is a subclass of DataParser. Its results can be sent between processes when every parser added to it is a ShardableParser.
+ */
+public class MultiAnalysisParser extends DataParser implements ShardableParser {
+	
+	private List<DataParser> _parsers;
+	
+	public MultiAnalysisParser() {
+		super();
+		_parsers = new ArrayList<DataParser>();
+	}
+	
+	// adds a parser that will be passed every miss and rebound found in the schedule
+	public void addParser(DataParser parser) {
+		_parsers.add(parser);
+	}
+	
+	// returns the parsers added, in the order they were added
+	protected List<DataParser> getParsers() {
+		return _parsers;
+	}
+	
+	// the seasons of the parsers added follow this parser's season
+	public void setSeason(Season season) {
+		super.setSeason(season);
+		for (DataParser parser: _parsers) {
+			parser.setSeason(season);
+		}
+	}
+	
+	// passes the miss and rebound on to every parser
+	public void recordReboundData(PlayByPlay game, int missRow, int reboundRow) {
+		for (DataParser parser: _parsers) {
+			parser.recordReboundData(game, missRow, reboundRow);
+		}
+	}
+	
+	// returns a new MultiAnalysisParser holding a new, empty parser of the same kind as each of these parsers
+	public DataParser newAccumulator() {
+		MultiAnalysisParser accumulator = new MultiAnalysisParser();
+		for (DataParser parser: _parsers) {
+			accumulator.addParser(parser.newAccumulator());
+		}
+		return accumulator;
+	}
+	
+	// merges each parser of another MultiAnalysisParser made by newAccumulator into the parser it was made from
+	public void merge(DataParser other) {
+		List<DataParser> otherParsers = ((MultiAnalysisParser) other)._parsers;
+		for (int i = 0; i < _parsers.size(); i++) {
+			_parsers.get(i).merge(otherParsers.get(i));
+		}
+	}
+	
+	// writes the results of each parser in turn. Every parser added has to be a ShardableParser
+	public void writeResults(DataOutput out) throws IOException {
+		for (DataParser parser: _parsers) {
+			this.getShardable(parser).writeResults(out);
+		}
+	}
+	
+	// reads each parser's results, written by writeResults of a MultiAnalysisParser with the same kinds of parsers, into the parser
+	public void readResults(DataInput in) throws IOException {
+		for (DataParser parser: _parsers) {
+			this.getShardable(parser).readResults(in);
+		}
+	}
+	
+	// helper method for writeResults and readResults
+	private ShardableParser getShardable(DataParser parser) {
+		if (!(parser instanceof ShardableParser)) {
+			throw new IllegalStateException(parser.getClass().getSimpleName() + " results can't be sent between processes");
+		}
+		return (ShardableParser) parser;
+	}
+	
+	// each parser interprets its own data and writes its own results
+	public void interpretResults() {
+		for (DataParser parser: _parsers) {
+			parser.interpretResults();
+		}
+	}
+	
+	// each parser exports its own results
+	public void exportResults(ResultsExporter exporter) throws IOException {
+		for (DataParser parser: _parsers) {
+			parser.exportResults(exporter);
+		}
+	}
+}
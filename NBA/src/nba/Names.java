@@ -0,0 +1,53 @@
+package nba;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+/*
+ * This class interns the names of players and teams found in play-by-plays, giving each distinct name a small int id.
+ *
+ * Play-by-plays, event stores and breakdowns all refer to players and teams by id, so a name is only ever stored once
+ * however many rows mention it, and ids can be used as keys in primitive maps. Id 0 means no name.
+ * Names can be interned from any thread.
+ */
+public final class Names {
+
+	public static final int NONE = 0;
+
+	private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<String, Integer>();
+	private static final List<String> NAMES = new ArrayList<String>();
+
+	static {
+		NAMES.add("");
+	}
+
+	private Names() {
+	}
+
+	// returns the id of the name it is passed, giving it the next id if it hasn't been seen before. null and "" are NONE
+	public static int intern(String name) {
+		if (name == null || name.isEmpty()) {
+			return NONE;
+		}
+		Integer id = IDS.get(name);
+		if (id != null) {
+			return id;
+		}
+		synchronized (NAMES) {
+			id = IDS.get(name);
+			if (id == null) {
+				id = NAMES.size();
+				NAMES.add(name);
+				IDS.put(name, id);
+			}
+			return id;
+		}
+	}
+
+	// returns the name with the id it is passed, or "" for NONE
+	public static String get(int id) {
+		synchronized (NAMES) {
+			return NAMES.get(id);
+		}
+	}
+}
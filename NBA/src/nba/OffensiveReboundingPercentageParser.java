@@ -1,20 +1,23 @@
 package nba;
 
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
 import java.io.*;
 /*
  * This class parses the NBA Schedule to calculate the offensive rebounding percentage off misses
  * from different zones of the court.
  * 
- * It is a subclass of DataParser.
+ * The rebounds are also counted game by game, for a GameBootstrap to put a confidence interval on every percentage.
+ * 
+ * It is a subclass of DataParser, and its results can be sent between processes.
  */
-public class OffensiveReboundingPercentageParser extends DataParser {
+public class OffensiveReboundingPercentageParser extends DataParser implements ShardableParser {
 	
 	private int[] _offensiveRebounds;
 	private int[] _defensiveRebounds;
 	
+	// the offensive rebounds off each zone, then the defensive rebounds off each zone, in each game
+	private GameBootstrap _games;
+	private GameBootstrap.Intervals _intervals;
+	
 	public OffensiveReboundingPercentageParser() {
 		super();
 		
@@ -22,8 +25,7 @@ public class OffensiveReboundingPercentageParser extends DataParser {
 		// increment index to indicate whether a miss from that zone led to an offensive or defensive rebound
 		_offensiveRebounds = new int[CONSTANTS.NUMCOURTZONES];
 		_defensiveRebounds = new int[CONSTANTS.NUMCOURTZONES];
-		
-		super.parseData();
+		_games = new GameBootstrap(2 * CONSTANTS.NUMCOURTZONES);
 	}
 
 	/*
@@ -31,16 +33,76 @@ public class OffensiveReboundingPercentageParser extends DataParser {
 	 * First classify the miss, to see which zone of the court the shot was taken from.
 	 * Then record whether it led to an offensive or defensive rebound.
 	 */
-	public void recordReboundData(Elements miss, Element reboundRow) {
-		int missIndex = super.classifyShot(miss);
-		String text = reboundRow.text();
+	public void recordReboundData(PlayByPlay game, int missRow, int reboundRow) {
+		int missIndex = game.getZone(missRow);
 		
-		if (text.contains("offensive")) {
+		if (game.has(reboundRow, PlayByPlay.OFFENSIVE)) {
 			_offensiveRebounds[missIndex]++;
+			_games.add(game, missIndex, 1);
 		}
-		else if (text.contains("defensive")) {
+		else if (game.has(reboundRow, PlayByPlay.DEFENSIVE)) {
 			_defensiveRebounds[missIndex]++;
+			_games.add(game, CONSTANTS.NUMCOURTZONES + missIndex, 1);
+		}
+		_intervals = null;
+	}
+
+	// returns a new, empty parser that games can be parsed into on another thread
+	public DataParser newAccumulator() {
+		return new OffensiveReboundingPercentageParser();
+	}
+	
+	// adds the rebounds counted by another OffensiveReboundingPercentageParser to these counts
+	public void merge(DataParser other) {
+		OffensiveReboundingPercentageParser otherParser = (OffensiveReboundingPercentageParser) other;
+		for (int i = 0; i < CONSTANTS.NUMCOURTZONES; i++) {
+			_offensiveRebounds[i] += otherParser._offensiveRebounds[i];
+			_defensiveRebounds[i] += otherParser._defensiveRebounds[i];
+		}
+		_games.merge(otherParser._games);
+		_intervals = null;
+	}
+	
+	// writes the rebounds counted, in total and game by game, for readResults to add to a parser in another process
+	public void writeResults(DataOutput out) throws IOException {
+		for (int i = 0; i < CONSTANTS.NUMCOURTZONES; i++) {
+			out.writeInt(_offensiveRebounds[i]);
+			out.writeInt(_defensiveRebounds[i]);
+		}
+		_games.write(out);
+	}
+	
+	// adds the rebounds written by another OffensiveReboundingPercentageParser's writeResults to these counts
+	public void readResults(DataInput in) throws IOException {
+		for (int i = 0; i < CONSTANTS.NUMCOURTZONES; i++) {
+			_offensiveRebounds[i] += in.readInt();
+			_defensiveRebounds[i] += in.readInt();
 		}
+		_games.read(in);
+		_intervals = null;
+	}
+	
+	/*
+	 * Returns the confidence interval of the offensive rebounding percentage off each zone, and then off all of them,
+	 * resampling the games the first time it is asked for after a rebound is recorded.
+	 */
+	public GameBootstrap.Intervals getIntervals() {
+		if (_intervals == null) {
+			_intervals = _games.resample(new GameBootstrap.Statistic() {
+				public void compute(long[] totals, double[] estimates) {
+					long offensiveRebounds = 0;
+					long rebounds = 0;
+					for (int i = 0; i < CONSTANTS.NUMCOURTZONES; i++) {
+						long zoneRebounds = totals[i] + totals[CONSTANTS.NUMCOURTZONES + i];
+						estimates[i] = totals[i] / (double) zoneRebounds * 100;
+						offensiveRebounds += totals[i];
+						rebounds += zoneRebounds;
+					}
+					estimates[CONSTANTS.NUMCOURTZONES] = offensiveRebounds / (double) rebounds * 100;
+				}
+			}, CONSTANTS.NUMCOURTZONES + 1);
+		}
+		return _intervals;
 	}
 
 	/*
@@ -50,6 +112,7 @@ public class OffensiveReboundingPercentageParser extends DataParser {
 	 */
 	public void interpretResults() {
 		PrintWriter writer = super.getWriter();
+		GameBootstrap.Intervals intervals = this.getIntervals();
 		double totalOffensiveRebounds = 0;
 		double totalRebounds = 0;
 		for (int i = 0; i < _offensiveRebounds.length; i++) {
@@ -63,48 +126,71 @@ public class OffensiveReboundingPercentageParser extends DataParser {
 					writer.println("Offensive rebounds off shots at rim: " + _offensiveRebounds[i]);
 					writer.println("Defensive rebounds off shots at rim: " + _defensiveRebounds[i]);
 					offensiveReboundingPercentage = _offensiveRebounds[i]/(double)(_offensiveRebounds[i] + _defensiveRebounds[i]) * 100;
-					writer.println("Offensive rebounding percentage at rim: " + offensiveReboundingPercentage + "%\n");
+					writer.println("Offensive rebounding percentage at rim: " + offensiveReboundingPercentage + "%" + intervals.describe(i, "%.2f%%") + "\n");
 				}
 				else if (i == CONSTANTS.THREETONINE) {
 					writer.println("Offensive rebounds off shots from 3 to 9 feet: " + _offensiveRebounds[i]);
 					writer.println("Defensive rebounds off shots from 3 to 9 feet: " + _defensiveRebounds[i]);
 					offensiveReboundingPercentage = _offensiveRebounds[i]/(double)(_offensiveRebounds[i] + _defensiveRebounds[i]) * 100;
-					writer.println("Offensive rebounding percentage off shots from 3 to 9 feet: " + offensiveReboundingPercentage + "%\n");
+					writer.println("Offensive rebounding percentage off shots from 3 to 9 feet: " + offensiveReboundingPercentage + "%" + intervals.describe(i, "%.2f%%") + "\n");
 				}
 				else if (i == CONSTANTS.TENTOFIFTEEN) {
 					writer.println("Offensive rebounds off shots from 10 to 15 feet: " + _offensiveRebounds[i]);
 					writer.println("Defensive rebounds off shots from 10 to 15: " + _defensiveRebounds[i]);
 					offensiveReboundingPercentage = _offensiveRebounds[i]/(double)(_offensiveRebounds[i] + _defensiveRebounds[i]) * 100;
-					writer.println("Offensive rebounding percentage of shots from 10 to 15 feet: " + offensiveReboundingPercentage + "%\n");
+					writer.println("Offensive rebounding percentage of shots from 10 to 15 feet: " + offensiveReboundingPercentage + "%" + intervals.describe(i, "%.2f%%") + "\n");
 				}
 				else if (i == CONSTANTS.SIXTEENTOTWENTYTHREE) {
 					writer.println("Offensive rebounds off shots from 16 to 23 feet: " + _offensiveRebounds[i]);
 					writer.println("Defensive rebounds off shots from 16 to 23: " + _defensiveRebounds[i]);
 					offensiveReboundingPercentage = _offensiveRebounds[i]/(double)(_offensiveRebounds[i] + _defensiveRebounds[i]) * 100;
-					writer.println("Offensive rebounding percentage off shots from 16 to 23 feet: " + offensiveReboundingPercentage + "%\n");
+					writer.println("Offensive rebounding percentage off shots from 16 to 23 feet: " + offensiveReboundingPercentage + "%" + intervals.describe(i, "%.2f%%") + "\n");
 				}
 				else if (i == CONSTANTS.THREEPOINTER) {
 					writer.println("Offensive rebounds off threes: " + _offensiveRebounds[i]);
 					writer.println("Defensive rebounds off threes: " + _defensiveRebounds[i]);
 					offensiveReboundingPercentage = _offensiveRebounds[i]/(double)(_offensiveRebounds[i] + _defensiveRebounds[i]) * 100;
-					writer.println("Offensive rebounding percentage of threes: " + offensiveReboundingPercentage + "%\n");
+					writer.println("Offensive rebounding percentage of threes: " + offensiveReboundingPercentage + "%" + intervals.describe(i, "%.2f%%") + "\n");
 				}
 				else if (i == CONSTANTS.FREETHROW) {
 					writer.println("Offensive rebounds off free throw: " + _offensiveRebounds[i]);
 					writer.println("Defensive rebounds off free throws: " + _defensiveRebounds[i]);
 					offensiveReboundingPercentage = _offensiveRebounds[i]/(double)(_offensiveRebounds[i] + _defensiveRebounds[i]) * 100;
-					writer.println("Offensive rebounding percentage off free throws: " + offensiveReboundingPercentage + "%\n");
+					writer.println("Offensive rebounding percentage off free throws: " + offensiveReboundingPercentage + "%" + intervals.describe(i, "%.2f%%") + "\n");
 				}
 				else if (i == CONSTANTS.MISC) {
 					writer.println("Offensive rebounds misc shots: " + _offensiveRebounds[i]);
 					writer.println("Defensive rebounds off misc shots: " + _defensiveRebounds[i]);
 					offensiveReboundingPercentage = _offensiveRebounds[i]/(double)(_offensiveRebounds[i] + _defensiveRebounds[i]) * 100;
-					writer.println("Offensive rebounding percentage off misc shots: " + offensiveReboundingPercentage + "%\n");
+					writer.println("Offensive rebounding percentage off misc shots: " + offensiveReboundingPercentage + "%" + intervals.describe(i, "%.2f%%") + "\n");
 				}
 			}
 		}
 		double totalOffensiveReboundingPercentage = (totalOffensiveRebounds/totalRebounds) * 100;
-		writer.println("Offensive rebounding percentage of all shots: " + totalOffensiveReboundingPercentage + "%");
+		writer.println("Offensive rebounding percentage of all shots: " + totalOffensiveReboundingPercentage + "%"
+				+ intervals.describe(CONSTANTS.NUMCOURTZONES, "%.2f%%"));
 		writer.close();
 	}
+	
+	/*
+	 * Exports the offensive and defensive rebounds off misses from each zone, and from all of them, as rows of offensive_rebounding_by_zone,
+	 * with the low and high ends of the confidence interval of each percentage
+	 */
+	public void exportResults(ResultsExporter exporter) throws IOException {
+		ResultsTable table = exporter.table("offensive_rebounding_by_zone", "season", "zone", "offensive_rebounds", "defensive_rebounds",
+				"offensive_rebounding_percentage", "offensive_rebounding_percentage_ci_low", "offensive_rebounding_percentage_ci_high");
+		String season = this.getSeason().getName();
+		GameBootstrap.Intervals intervals = this.getIntervals();
+		long totalOffensiveRebounds = 0;
+		long totalDefensiveRebounds = 0;
+		for (int i = 0; i < CONSTANTS.NUMCOURTZONES; i++) {
+			totalOffensiveRebounds += _offensiveRebounds[i];
+			totalDefensiveRebounds += _defensiveRebounds[i];
+			table.writeRow(season, CONSTANTS.ZONE_NAMES[i], _offensiveRebounds[i], _defensiveRebounds[i],
+					_offensiveRebounds[i] / (double) (_offensiveRebounds[i] + _defensiveRebounds[i]) * 100, intervals.getLow(i), intervals.getHigh(i));
+		}
+		table.writeRow(season, "all", totalOffensiveRebounds, totalDefensiveRebounds,
+				totalOffensiveRebounds / (double) (totalOffensiveRebounds + totalDefensiveRebounds) * 100,
+				intervals.getLow(CONSTANTS.NUMCOURTZONES), intervals.getHigh(CONSTANTS.NUMCOURTZONES));
+	}
 }
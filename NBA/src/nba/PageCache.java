@@ -0,0 +1,295 @@
+package nba;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+/*
+ * This class is a persistent, on-disk cache of the raw html of every page downloaded from espn.com.
+ *
+ * Page bodies are stored gzipped under objects/, named by the SHA-1 of their contents, so identical pages are only stored once.
+ * Each url gets a small entry under urls/, named by the SHA-1 of the url, that records when the page was fetched and which body it points to,
+ * along with the ETag and Last-Modified headers it was served with, so a stale page can be revalidated instead of downloaded again.
+ * Bodies are read back by memory-mapping the compressed file.
+ *
+ * The cache directory can be set with the system property "nba.cacheDir".
+ */
+public class PageCache {
+
+	// max age for pages that never change once they are on espn.com, like the box score or play-by-play of a finished game
+	public static final long FOREVER = Long.MAX_VALUE;
+
+	private File _urlDirectory;
+	private File _objectDirectory;
+
+	public PageCache() {
+		this(new File(System.getProperty("nba.cacheDir", "page_cache")));
+	}
+
+	public PageCache(File directory) {
+		_urlDirectory = new File(directory, "urls");
+		_objectDirectory = new File(directory, "objects");
+		_urlDirectory.mkdirs();
+		_objectDirectory.mkdirs();
+	}
+
+	/*
+	 * Returns the cached html for the url it is passed, or null if the url has never been cached
+	 * or was cached more than maxAgeMillis ago.
+	 */
+	public String get(String url, long maxAgeMillis) throws IOException {
+		Entry entry = this.getEntry(url);
+		if (entry == null || !entry.isFresh(maxAgeMillis)) {
+			return null;
+		}
+		return this.read(entry);
+	}
+
+	// returns what is recorded about the url, however long ago it was cached, or null if it has never been cached
+	public Entry getEntry(String url) throws IOException {
+		File file = new File(_urlDirectory, this.hash(url));
+		if (!file.exists()) {
+			return null;
+		}
+
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			long fetchedAt = in.readLong();
+			String contentHash = in.readUTF();
+			// entries written before validators were kept end after the content hash
+			String etag = null;
+			String lastModified = null;
+			if (in.available() > 0) {
+				etag = emptyToNull(in.readUTF());
+				lastModified = emptyToNull(in.readUTF());
+			}
+			return new Entry(url, fetchedAt, contentHash, etag, lastModified);
+		} finally {
+			in.close();
+		}
+	}
+
+	// returns the html an entry points to, or null if its body is no longer stored
+	public String read(Entry entry) throws IOException {
+		File object = new File(_objectDirectory, entry.getContentHash());
+		if (!object.exists()) {
+			return null;
+		}
+		return this.readObject(object);
+	}
+
+	// forgets the url, so it counts as never cached. Its body is kept, since other urls can point to the same one
+	public void remove(String url) {
+		File file = new File(_urlDirectory, this.hash(url));
+		if (file.exists() && !file.delete()) {
+			System.err.println("Couldn't remove " + file + " from the page cache");
+		}
+	}
+
+	// returns true if the body an entry points to is still stored
+	public boolean hasBody(Entry entry) {
+		return new File(_objectDirectory, entry.getContentHash()).exists();
+	}
+
+	// stores the html of the url it is passed, replacing anything already cached for that url
+	public Entry put(String url, String html) throws IOException {
+		return this.put(url, html, null, null);
+	}
+
+	/*
+	 * Stores the html of the url it is passed with the ETag and Last-Modified headers it was served with, either of which can be null,
+	 * replacing anything already cached for that url. Returns the entry written.
+	 */
+	public Entry put(String url, String html, String etag, String lastModified) throws IOException {
+		byte[] body = html.getBytes("UTF-8");
+		String contentHash = this.hash(body);
+
+		// bodies are content-addressed, so if this exact page is already stored only the url entry needs writing
+		File object = new File(_objectDirectory, contentHash);
+		if (!object.exists()) {
+			File temp = AtomicFile.tempFileFor(object);
+			OutputStream out = new GZIPOutputStream(new FileOutputStream(temp));
+			try {
+				out.write(body);
+			} finally {
+				out.close();
+			}
+			AtomicFile.replace(temp, object);
+		}
+
+		Entry entry = new Entry(url, System.currentTimeMillis(), contentHash, etag, lastModified);
+		this.writeEntry(entry);
+		return entry;
+	}
+
+	/*
+	 * Records that the server said the url's page hasn't changed since entry was stored, so it counts as fetched now.
+	 * The validators the server sent with its answer replace the stored ones, or the stored ones are kept where it sent none.
+	 */
+	public Entry revalidate(Entry entry, String etag, String lastModified) throws IOException {
+		Entry revalidated = new Entry(entry.getUrl(), System.currentTimeMillis(), entry.getContentHash(),
+				(etag == null) ? entry.getEtag() : etag, (lastModified == null) ? entry.getLastModified() : lastModified);
+		this.writeEntry(revalidated);
+		return revalidated;
+	}
+
+	// helper method for put and revalidate. Replaces the url's entry with the one it is passed
+	private void writeEntry(Entry entry) throws IOException {
+		File file = new File(_urlDirectory, this.hash(entry.getUrl()));
+		File temp = AtomicFile.tempFileFor(file);
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+		try {
+			out.writeLong(entry.getFetchedAt());
+			out.writeUTF(entry.getContentHash());
+			out.writeUTF(nullToEmpty(entry.getEtag()));
+			out.writeUTF(nullToEmpty(entry.getLastModified()));
+		} finally {
+			out.close();
+		}
+		AtomicFile.replace(temp, file);
+	}
+
+	// helper method for read. Memory-maps a gzipped body and returns it decompressed
+	private String readObject(File object) throws IOException {
+		FileInputStream file = new FileInputStream(object);
+		try {
+			FileChannel channel = file.getChannel();
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			InputStream in = new GZIPInputStream(new ByteBufferInputStream(mapped), 8192);
+
+			ByteArrayOutputStream body = new ByteArrayOutputStream((int) channel.size() * 6);
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				body.write(buffer, 0, read);
+			}
+			return body.toString("UTF-8");
+		} finally {
+			file.close();
+		}
+	}
+
+	private static String emptyToNull(String text) {
+		return text.isEmpty() ? null : text;
+	}
+
+	private static String nullToEmpty(String text) {
+		return (text == null) ? "" : text;
+	}
+
+	private String hash(String text) {
+		try {
+			return this.hash(text.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// returns the SHA-1 of the bytes it is passed as a hex string
+	private String hash(byte[] bytes) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b: digest.digest(bytes)) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+			hex.append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	/*
+	 * What is recorded about a cached url: when it was fetched, which body it points to, and the validators its server sent with it,
+	 * which can be sent back to ask whether the page has changed since.
+	 */
+	public static class Entry {
+
+		private String _url;
+		private long _fetchedAt;
+		private String _contentHash;
+		private String _etag;
+		private String _lastModified;
+
+		public Entry(String url, long fetchedAt, String contentHash, String etag, String lastModified) {
+			_url = url;
+			_fetchedAt = fetchedAt;
+			_contentHash = contentHash;
+			_etag = etag;
+			_lastModified = lastModified;
+		}
+
+		// returns true if the page was fetched no more than maxAgeMillis ago
+		public boolean isFresh(long maxAgeMillis) {
+			return maxAgeMillis == FOREVER || System.currentTimeMillis() - _fetchedAt <= maxAgeMillis;
+		}
+
+		public String getUrl() {
+			return _url;
+		}
+
+		public long getFetchedAt() {
+			return _fetchedAt;
+		}
+
+		// the SHA-1 of the body, which changes whenever the page does
+		public String getContentHash() {
+			return _contentHash;
+		}
+
+		// the ETag header the page was served with, or null if it had none
+		public String getEtag() {
+			return _etag;
+		}
+
+		// the Last-Modified header the page was served with, or null if it had none
+		public String getLastModified() {
+			return _lastModified;
+		}
+	}
+
+	/*
+	 * Simple InputStream over a ByteBuffer, so a memory-mapped file can be fed to a GZIPInputStream
+	 * without first being copied onto the heap.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private ByteBuffer _buffer;
+
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			_buffer = buffer;
+		}
+
+		public int read() {
+			if (!_buffer.hasRemaining()) {
+				return -1;
+			}
+			return _buffer.get() & 0xFF;
+		}
+
+		public int read(byte[] bytes, int offset, int length) {
+			if (!_buffer.hasRemaining()) {
+				return -1;
+			}
+			length = Math.min(length, _buffer.remaining());
+			_buffer.get(bytes, offset, length);
+			return length;
+		}
+	}
+}
@@ -0,0 +1,424 @@
+package nba;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+/*
+ * This class sends every request the scraper makes to espn.com, and keeps the scraper from overwhelming it or giving up on it too easily.
+ *
+ * Requests go out no faster than a shared TokenBucket allows. Each host gets a CircuitBreaker, which stops requests to a host
+ * that keeps failing, and an AdaptiveLimit, which cuts back how many requests are open against the host when it slows down or fails.
+ * Redirects are followed by hand, across protocols too (espn.com's http urls can redirect to https, which HttpURLConnection won't follow),
+ * up to MAX_REDIRECTS of them. Any other status outside 2xx, and 304 for a conditional request, throws, so an error or redirect page
+ * is never returned as the page and never cached.
+ * A request that fails in a way that could go differently next time (a timeout, a dropped connection, a 429 or a 5xx) is sent again
+ * after an exponential backoff with full jitter, so retries from many threads don't arrive in lockstep.
+ *
+ * Every request asks for the page gzipped or deflated, and bytes downloaded are counted as they come over the wire, before they are decompressed.
+ * Responses are always read to the end, error pages included, so the connection goes back to the JDK's keep-alive pool for the next request
+ * to the host. The pool keeps up to maxConnectionsPerHost idle connections to each host, unless "http.maxConnections" is already set.
+ * A page asked for with the ETag and Last-Modified headers it was last served with is only downloaded again if it has changed since.
+ *
+ * Pages are asked for by their espn.com urls, but requests can be sent to another host with the same paths,
+ * like a FixtureServer, by setting the system property "nba.baseUrl". Only the request changes: pages are still cached under their espn.com urls.
+ *
+ * It is configured with the system properties "nba.requestsPerSecond", "nba.maxRetries", "nba.retryBaseDelayMillis",
+ * "nba.circuitFailureThreshold", "nba.circuitCooldownMillis" and "nba.targetLatencyMillis".
+ */
+public class PageClient implements PageSource {
+
+	public static final int TIMEOUT = 20000;
+
+	private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+	// redirects followed for one page before giving up, like Jsoup
+	private static final int MAX_REDIRECTS = 20;
+
+	// reads the body of a response that came back with a success status
+	public interface ResponseReader<T> {
+		T read(HttpURLConnection connection, InputStream body) throws IOException;
+	}
+
+	private String _baseUrl;
+	private TokenBucket _rateLimit;
+	private int _maxConnectionsPerHost;
+	private int _maxRetries;
+	private long _retryBaseDelayMillis;
+	private int _circuitFailureThreshold;
+	private long _circuitCooldownMillis;
+	private long _targetLatencyMillis;
+	private ConcurrentHashMap<String, Host> _hosts;
+
+	public PageClient(int maxConnectionsPerHost) {
+		this(maxConnectionsPerHost, System.getProperty("nba.baseUrl", ESPN));
+	}
+
+	// sends requests for espn.com pages to the same paths on baseUrl instead
+	public PageClient(int maxConnectionsPerHost, String baseUrl) {
+		this(maxConnectionsPerHost, baseUrl, Double.parseDouble(System.getProperty("nba.requestsPerSecond", "20")), Integer.getInteger("nba.maxRetries", 4),
+				Long.getLong("nba.retryBaseDelayMillis", 500), Integer.getInteger("nba.circuitFailureThreshold", 5),
+				Long.getLong("nba.circuitCooldownMillis", 30000), Long.getLong("nba.targetLatencyMillis", 5000));
+	}
+
+	public PageClient(int maxConnectionsPerHost, String baseUrl, double requestsPerSecond, int maxRetries, long retryBaseDelayMillis,
+			int circuitFailureThreshold, long circuitCooldownMillis, long targetLatencyMillis) {
+		_baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+		_rateLimit = new TokenBucket(requestsPerSecond, Math.max(1, (int) requestsPerSecond));
+		_maxConnectionsPerHost = maxConnectionsPerHost;
+		_maxRetries = maxRetries;
+		_retryBaseDelayMillis = retryBaseDelayMillis;
+		_circuitFailureThreshold = circuitFailureThreshold;
+		_circuitCooldownMillis = circuitCooldownMillis;
+		_targetLatencyMillis = targetLatencyMillis;
+		_hosts = new ConcurrentHashMap<String, Host>();
+
+		// read once, when the first connection is kept alive, so it only takes effect for the first client made
+		if (System.getProperty("http.maxConnections") == null) {
+			System.setProperty("http.maxConnections", Integer.toString(maxConnectionsPerHost));
+		}
+	}
+
+	// returns the body of the page at url, decoded with the charset the server sends. The bytes downloaded are counted against the stage
+	public String get(String url, Stage stage) throws IOException {
+		return this.get(url, stage, new ResponseReader<String>() {
+			public String read(HttpURLConnection connection, InputStream body) throws IOException {
+				return readBody(connection, body);
+			}
+		});
+	}
+
+	/*
+	 * Returns the page at url, or a Page with no body if the server answers 304 Not Modified to the ETag and Last-Modified headers
+	 * it is passed, either of which can be null. The page comes back with the validators the server sent this time.
+	 */
+	public Page getIfChanged(String url, Stage stage, String etag, String lastModified) throws IOException {
+		return this.get(url, stage, etag, lastModified, new ResponseReader<Page>() {
+			public Page read(HttpURLConnection connection, InputStream body) throws IOException {
+				String html;
+				if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					body.close();
+					html = null;
+				}
+				else {
+					html = readBody(connection, body);
+				}
+				return new Page(html, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+			}
+		});
+	}
+
+	// hands the body of the page at url to the reader as it downloads, decoded with the charset the server sends
+	public <T> T stream(String url, Stage stage, final PageReader<T> reader) throws IOException {
+		return this.get(url, stage, new ResponseReader<T>() {
+			public T read(HttpURLConnection connection, InputStream body) throws IOException {
+				Reader page = new InputStreamReader(body, getCharset(connection.getContentType()));
+				try {
+					return reader.read(page);
+				} finally {
+					page.close();
+				}
+			}
+		});
+	}
+
+	/*
+	 * Requests the page at url and hands the response to the reader, retrying failures that could go differently next time.
+	 * Throws the last failure once the retries run out, or straight away if the host's circuit is open or the failure can't be retried.
+	 */
+	public <T> T get(String url, Stage stage, ResponseReader<T> reader) throws IOException {
+		return this.get(url, stage, null, null, reader);
+	}
+
+	/*
+	 * Like get, but asks for the page only if it has changed since it was served with the ETag and Last-Modified headers it is passed,
+	 * either of which can be null. The reader is handed an empty body when the server answers 304 Not Modified.
+	 */
+	public <T> T get(String url, Stage stage, String etag, String lastModified, ResponseReader<T> reader) throws IOException {
+		url = this.resolve(url);
+		Host host = this.getHost(url);
+		int attempt = 0;
+		int redirects = 0;
+		while (true) {
+			try {
+				return this.send(url, stage, host, etag, lastModified, reader);
+			} catch (RedirectException e) {
+				if (++redirects > MAX_REDIRECTS) {
+					throw new IOException("Too many redirects fetching " + url);
+				}
+				url = e.getLocation();
+				host = this.getHost(url);
+				continue;
+			} catch (IOException e) {
+				if (!isRetryable(e) || attempt >= _maxRetries || host.breaker.isOpen()) {
+					throw e;
+				}
+			}
+
+			// full jitter: wait anywhere up to the exponential backoff for this attempt
+			long backoff = Math.min(MAX_RETRY_DELAY_MILLIS, _retryBaseDelayMillis << Math.min(attempt, 20));
+			attempt++;
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting to retry " + url);
+			}
+		}
+	}
+
+	// helper method for get. Sends a single request, once the rate limit, the host's circuit and the host's concurrency limit allow it
+	private <T> T send(String url, Stage stage, Host host, String etag, String lastModified, ResponseReader<T> reader) throws IOException {
+		if (!host.breaker.allowRequest()) {
+			throw new IOException("Circuit open for " + new URL(url).getHost() + ", not fetching " + url);
+		}
+		try {
+			_rateLimit.acquire();
+			host.limit.acquire();
+		} catch (InterruptedException e) {
+			host.breaker.cancelRequest();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to fetch " + url);
+		}
+
+		long start = System.nanoTime();
+		boolean succeeded = false;
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+			connection.setConnectTimeout(TIMEOUT);
+			connection.setReadTimeout(TIMEOUT);
+			connection.setInstanceFollowRedirects(false);
+			connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+			if (etag != null) {
+				connection.setRequestProperty("If-None-Match", etag);
+			}
+			if (lastModified != null) {
+				connection.setRequestProperty("If-Modified-Since", lastModified);
+			}
+			int status = connection.getResponseCode();
+			boolean notModified = status == HttpURLConnection.HTTP_NOT_MODIFIED && (etag != null || lastModified != null);
+			if (status < 200 || (status >= 300 && !notModified)) {
+				// reading the error or redirect page to the end, rather than disconnecting, keeps the connection alive
+				InputStream rest = (status >= 400) ? connection.getErrorStream() : connection.getInputStream();
+				if (rest != null) {
+					CountingInputStream counted = new CountingInputStream(rest);
+					drain(counted);
+					Metrics.recordBytes(stage, counted.getCount());
+				}
+				String location = connection.getHeaderField("Location");
+				if (status >= 300 && status < 400 && location != null) {
+					throw new RedirectException(status, url, new URL(new URL(url), location).toString());
+				}
+				throw new HttpStatusException(status, url);
+			}
+			CountingInputStream body = new CountingInputStream(connection.getInputStream());
+			try {
+				// a 304 has no body to decompress, whatever encoding it names
+				InputStream decoded = notModified ? body : decode(body, connection.getContentEncoding());
+				T response = reader.read(connection, decoded);
+				succeeded = true;
+				return response;
+			} finally {
+				Metrics.recordBytes(stage, body.getCount());
+			}
+		} catch (HttpStatusException e) {
+			// a page that doesn't exist says nothing about whether the host is healthy
+			succeeded = !e.isRetryable();
+			throw e;
+		} finally {
+			host.limit.release(succeeded, System.nanoTime() - start);
+			if (succeeded) {
+				host.breaker.recordSuccess();
+			}
+			else {
+				host.breaker.recordFailure();
+			}
+		}
+	}
+
+	// helper method for get. Returns the url a request for url is actually sent to
+	private String resolve(String url) {
+		if (_baseUrl.equals(ESPN) || !url.startsWith(ESPN)) {
+			return url;
+		}
+		return _baseUrl + url.substring(ESPN.length());
+	}
+
+	// returns true if the failure it is passed could go differently if the request is sent again
+	private static boolean isRetryable(IOException e) {
+		if (e instanceof HttpStatusException) {
+			return ((HttpStatusException) e).isRetryable();
+		}
+		if (e instanceof MalformedURLException) {
+			return false;
+		}
+		// an interrupted thread should stop, but a read that timed out is worth sending again
+		return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+	}
+
+	// helper method for get. Reads a whole body, decoded with the charset the server sends
+	private static String readBody(HttpURLConnection connection, InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				body.write(buffer, 0, read);
+			}
+			return body.toString(getCharset(connection.getContentType()));
+		} finally {
+			in.close();
+		}
+	}
+
+	// helper method for send. Reads an error or redirect page to the end and closes it
+	private static void drain(InputStream in) throws IOException {
+		try {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) != -1) {
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/*
+	 * helper method for send. Returns the body decompressed as its Content-Encoding says.
+	 * A deflated body should be zlib-wrapped, but some servers send it raw, so the first two bytes are checked for a zlib header.
+	 */
+	private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+		if (contentEncoding == null || contentEncoding.equalsIgnoreCase("identity")) {
+			return body;
+		}
+		if (contentEncoding.equalsIgnoreCase("gzip") || contentEncoding.equalsIgnoreCase("x-gzip")) {
+			return new GZIPInputStream(body, 8192);
+		}
+		if (contentEncoding.equalsIgnoreCase("deflate")) {
+			PushbackInputStream in = new PushbackInputStream(body, 2);
+			int first = in.read();
+			int second = (first == -1) ? -1 : in.read();
+			if (second != -1) {
+				in.unread(second);
+			}
+			if (first != -1) {
+				in.unread(first);
+			}
+			boolean zlib = second != -1 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+			return inflate(in, new Inflater(!zlib));
+		}
+		throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+	}
+
+	// helper method for decode. Inflates the body, freeing the inflater when the body is closed
+	private static InputStream inflate(InputStream body, final Inflater inflater) {
+		return new InflaterInputStream(body, inflater, 8192) {
+			public void close() throws IOException {
+				super.close();
+				inflater.end();
+			}
+		};
+	}
+
+	// returns the charset named in a Content-Type header, or UTF-8 if it doesn't name one
+	public static String getCharset(String contentType) {
+		if (contentType != null) {
+			int charset = contentType.toLowerCase().indexOf("charset=");
+			if (charset != -1) {
+				String name = contentType.substring(charset + "charset=".length()).trim();
+				int end = name.indexOf(';');
+				if (end != -1) {
+					name = name.substring(0, end).trim();
+				}
+				return name.replace("\"", "");
+			}
+		}
+		return "UTF-8";
+	}
+
+	// helper method for get. Returns the circuit breaker and concurrency limit of the url's host, creating them the first time the host is seen
+	private Host getHost(String url) throws MalformedURLException {
+		String name = new URL(url).getHost();
+		Host host = _hosts.get(name);
+		if (host == null) {
+			Host newHost = new Host(new CircuitBreaker(_circuitFailureThreshold, _circuitCooldownMillis),
+					new AdaptiveLimit(_maxConnectionsPerHost, _targetLatencyMillis));
+			host = _hosts.putIfAbsent(name, newHost);
+			if (host == null) {
+				host = newHost;
+			}
+		}
+		return host;
+	}
+
+	// thrown by send when the server answers with a redirect, for get to follow. A redirect says the host is healthy
+	private static class RedirectException extends HttpStatusException {
+
+		private static final long serialVersionUID = 1L;
+
+		private String _location;
+
+		public RedirectException(int statusCode, String url, String location) {
+			super(statusCode, url);
+			_location = location;
+		}
+
+		public String getLocation() {
+			return _location;
+		}
+	}
+
+	// what is kept about each host requests are sent to
+	private static class Host {
+
+		public final CircuitBreaker breaker;
+		public final AdaptiveLimit limit;
+
+		public Host(CircuitBreaker breaker, AdaptiveLimit limit) {
+			this.breaker = breaker;
+			this.limit = limit;
+		}
+	}
+
+	// stream that counts the bytes read through it
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long _count;
+
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				_count++;
+			}
+			return b;
+		}
+
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int read = super.read(bytes, offset, length);
+			if (read > 0) {
+				_count += read;
+			}
+			return read;
+		}
+
+		public long getCount() {
+			return _count;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package nba;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+/*
+ * This class downloads pages from espn.com on a fixed pool of worker threads.
+ *
+ * Many box scores and play-by-plays can be in flight at once. Every request goes through one PageClient, which caps the request rate
+ * and the connections open to any one host so espn.com isn't hammered, and retries the requests that fail.
+ *
+ * Pages that aren't cached come from a PageSource: espn.com by default, or a recorded archive or a FixtureServer,
+ * as the system property "nba.pageSource" says (see PageSources).
+ *
+ * Every page is read from the PageCache when a fresh enough copy is stored there, and saved to it after downloading.
+ * Setting the system property "nba.offline" to true serves pages only from the cache, without touching the network.
+ *
+ * A schedule or box score whose cached copy has gone stale is asked for again with the ETag and Last-Modified headers it was served with.
+ * If it hasn't changed the server answers 304, and the cached copy is marked fresh again instead of being downloaded.
+ * Pages that can go stale are also kept parsed, the last "nba.parsedPages" of them (64 by default), so a page that hasn't changed
+ * isn't parsed again either. Callers only ever read the Documents they are handed, so one can be handed to every caller.
+ *
+ * Play-by-plays are streamed by default: only their "mod-data" table is kept, and only that table is cached and parsed.
+ * Setting the system property "nba.streamPlayByPlays" to false parses and caches the whole page instead.
+ *
+ * The number of worker threads and the per-host limit can be set with the system properties
+ * "nba.fetchThreads" and "nba.maxConnectionsPerHost".
+ */
+public class PageFetcher {
+
+	private ExecutorService _executor;
+	private PageSource _source;
+	private PageCache _cache;
+	private boolean _offline;
+	private boolean _streamPlayByPlays;
+	// the parsed pages that can go stale, by url, least recently used first
+	private Map<String, ParsedPage> _parsedPages;
+
+	public PageFetcher() {
+		this(Integer.getInteger("nba.fetchThreads", 16), Integer.getInteger("nba.maxConnectionsPerHost", 8));
+	}
+
+	public PageFetcher(int numThreads, int maxConnectionsPerHost) {
+		this(numThreads, maxConnectionsPerHost, new PageCache(), Boolean.getBoolean("nba.offline"));
+	}
+
+	public PageFetcher(int numThreads, int maxConnectionsPerHost, PageCache cache, boolean offline) {
+		this(numThreads, PageSources.fromProperties(maxConnectionsPerHost), cache, offline);
+	}
+
+	public PageFetcher(int numThreads, PageSource source, PageCache cache, boolean offline) {
+		_cache = cache;
+		_offline = offline;
+		_streamPlayByPlays = Boolean.parseBoolean(System.getProperty("nba.streamPlayByPlays", "true"));
+		_source = source;
+		final int maxParsedPages = Integer.getInteger("nba.parsedPages", 64);
+		_parsedPages = new LinkedHashMap<String, ParsedPage>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<String, ParsedPage> eldest) {
+				return this.size() > maxParsedPages;
+			}
+		};
+
+		// daemon threads, so a forgotten fetcher never keeps the program from exiting
+		_executor = Executors.newFixedThreadPool(numThreads, new DaemonThreadFactory("page-fetcher"));
+	}
+
+	// returns the page at the url it is passed, which is never downloaded again once it is in the cache
+	public Document fetch(String url) throws IOException {
+		return this.fetch(url, PageCache.FOREVER);
+	}
+
+	/*
+	 * Returns the page at the url it is passed, from the cache if it was stored less than maxAgeMillis ago.
+	 * Otherwise it is downloaded, blocking until the PageClient lets another request go to the url's host,
+	 * or just revalidated if the server says the cached copy hasn't changed.
+	 * Throws an IOException if the page can't be downloaded even after retrying.
+	 */
+	public Document fetch(String url, long maxAgeMillis) throws IOException {
+		// schedules and box scores are the only pages callers fetch this way
+		return this.fetch(url, maxAgeMillis, url.contains("/schedule/") ? Stage.SCHEDULE : Stage.BOX_SCORE);
+	}
+
+	// fetches the page like fetch, counting it against the stage it is passed
+	public Document fetch(String url, long maxAgeMillis, Stage stage) throws IOException {
+		long start = System.nanoTime();
+		PageCache.Entry entry = _cache.getEntry(url);
+		boolean cached = entry != null && entry.isFresh(maxAgeMillis) && _cache.hasBody(entry);
+		Metrics.recordCacheLookup(stage, cached);
+		String html = null;
+		if (!cached) {
+			if (_offline) {
+				throw new IOException("Page is not in the cache and fetching is offline: " + url);
+			}
+			PageSource.Page downloaded = this.download(url, stage, entry);
+			if (downloaded.isNotModified()) {
+				Metrics.recordNotModified(stage);
+				entry = _cache.revalidate(entry, downloaded.getEtag(), downloaded.getLastModified());
+			}
+			else {
+				html = downloaded.getHtml();
+				entry = _cache.put(url, html, downloaded.getEtag(), downloaded.getLastModified());
+			}
+		}
+		Document page = this.parse(entry, html, maxAgeMillis);
+		Metrics.recordLatency(stage, System.nanoTime() - start);
+		return page;
+	}
+
+	/*
+	 * Returns a Document holding the play-by-play table at the url it is passed.
+	 * When play-by-plays are streamed, the Document holds nothing but the page's "mod-data" tables.
+	 * A streamed page with no such table throws an IOException rather than being cached, like a page that couldn't be downloaded.
+	 */
+	public Document fetchPlayByPlay(String url, long maxAgeMillis) throws IOException {
+		if (!_streamPlayByPlays) {
+			return this.fetch(url, maxAgeMillis, Stage.PLAY_BY_PLAY);
+		}
+		
+		TableExtractor extractor = new TableExtractor("mod-data");
+		String tables;
+		long start = System.nanoTime();
+		String html = _cache.get(url, maxAgeMillis);
+		// an empty extraction was never a play-by-play, so one cached before they were refused is downloaded again
+		tables = (html == null) ? "" : extractor.extract(new StringReader(html));
+		Metrics.recordCacheLookup(Stage.PLAY_BY_PLAY, !tables.isEmpty());
+		if (tables.isEmpty()) {
+			if (_offline) {
+				throw new IOException("Page is not in the cache and fetching is offline: " + url);
+			}
+			tables = this.downloadTables(url, extractor);
+			// a page with no play-by-play table, like a game that hasn't started, is never cached as the game
+			if (tables.isEmpty()) {
+				throw new IOException("No play-by-play table in " + url);
+			}
+			_cache.put(url, tables);
+		}
+		Document playByPlay = Jsoup.parse(tables, url);
+		Metrics.recordLatency(Stage.PLAY_BY_PLAY, System.nanoTime() - start);
+		return playByPlay;
+	}
+
+	// returns a task that fetches the play-by-play at url when it is run
+	public Callable<Document> fetchPlayByPlayTask(final String url, final long maxAgeMillis) {
+		return new Callable<Document>() {
+			public Document call() throws IOException {
+				return fetchPlayByPlay(url, maxAgeMillis);
+			}
+		};
+	}
+
+	// downloads the page at url on a worker thread
+	public Future<Document> submit(String url) {
+		return this.submit(this.fetchTask(url, PageCache.FOREVER));
+	}
+	
+	// returns a task that fetches the page at url when it is run
+	public Callable<Document> fetchTask(final String url, final long maxAgeMillis) {
+		return new Callable<Document>() {
+			public Document call() throws IOException {
+				return fetch(url, maxAgeMillis);
+			}
+		};
+	}
+
+	/*
+	 * Forgets the cached and parsed copies of the page at url, so the next fetch downloads it whatever the max age.
+	 * For pages that turn out to be incomplete, like the play-by-play of a game still being played.
+	 */
+	public void evict(String url) {
+		_cache.remove(url);
+		synchronized (_parsedPages) {
+			_parsedPages.remove(url);
+		}
+	}
+
+	// runs any fetching task on a worker thread
+	public <T> Future<T> submit(Callable<T> task) {
+		return _executor.submit(task);
+	}
+
+	// returns the worker pool, so callers can collect pages in the order they arrive with an ExecutorCompletionService
+	public ExecutorService getExecutor() {
+		return _executor;
+	}
+
+	// stops the worker threads once every submitted fetch has finished
+	public void shutdown() {
+		_executor.shutdown();
+	}
+
+	/*
+	 * helper method for fetch. Downloads the page at url, asking only for a page that has changed since the stale entry
+	 * when the entry has validators and a body to fall back on.
+	 */
+	private PageSource.Page download(String url, Stage stage, PageCache.Entry stale) throws IOException {
+		if (stale != null && (stale.getEtag() != null || stale.getLastModified() != null) && _cache.hasBody(stale)) {
+			return _source.getIfChanged(url, stage, stale.getEtag(), stale.getLastModified());
+		}
+		return _source.getIfChanged(url, stage, null, null);
+	}
+
+	/*
+	 * helper method for fetch. Returns the entry's page, parsed from html if it is passed or from the cache if not,
+	 * or the Document it was parsed into last time if it is the same page. Pages that can go stale are kept parsed.
+	 */
+	private Document parse(PageCache.Entry entry, String html, long maxAgeMillis) throws IOException {
+		synchronized (_parsedPages) {
+			ParsedPage parsed = _parsedPages.get(entry.getUrl());
+			if (parsed != null && parsed.contentHash.equals(entry.getContentHash())) {
+				return parsed.page;
+			}
+		}
+		if (html == null) {
+			html = _cache.read(entry);
+			if (html == null) {
+				throw new IOException("Cached page is missing its body: " + entry.getUrl());
+			}
+		}
+		Document page = Jsoup.parse(html, entry.getUrl());
+		if (maxAgeMillis != PageCache.FOREVER) {
+			synchronized (_parsedPages) {
+				_parsedPages.put(entry.getUrl(), new ParsedPage(entry.getContentHash(), page));
+			}
+		}
+		return page;
+	}
+
+	// helper method for fetchPlayByPlay. Streams the page at url through the extractor, keeping only the tables it extracts
+	private String downloadTables(String url, final TableExtractor extractor) throws IOException {
+		return _source.stream(url, Stage.PLAY_BY_PLAY, new PageSource.PageReader<String>() {
+			public String read(Reader page) throws IOException {
+				return extractor.extract(page);
+			}
+		});
+	}
+
+	// a page kept parsed, with the hash of the body it was parsed from
+	private static class ParsedPage {
+
+		public final String contentHash;
+		public final Document page;
+
+		public ParsedPage(String contentHash, Document page) {
+			this.contentHash = contentHash;
+			this.page = page;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package nba;
+
+import java.io.IOException;
+import java.io.Reader;
+/*
+ * Somewhere pages are downloaded from: espn.com itself through a PageClient, a recorded archive with ArchivePageSource,
+ * or either of those with latency and failures injected by FaultInjectingPageSource. PageSources picks one from the system properties.
+ *
+ * Pages are always asked for by their espn.com urls, which are also how they are cached and archived,
+ * whatever host they actually come from.
+ */
+public interface PageSource {
+
+	// the site every page is asked for from
+	String ESPN = "http://espn.go.com";
+
+	// reads a page as it is downloaded
+	interface PageReader<T> {
+		T read(Reader page) throws IOException;
+	}
+
+	// returns the body of the page at url. Bytes downloaded are counted against the stage
+	String get(String url, Stage stage) throws IOException;
+
+	// hands the body of the page at url to the reader as it is downloaded, and returns what the reader returns
+	<T> T stream(String url, Stage stage, PageReader<T> reader) throws IOException;
+
+	/*
+	 * Returns the page at url unless it hasn't changed since it was served with the ETag and Last-Modified headers it is passed,
+	 * either of which can be null. A source that can't tell always returns the whole page. Bytes downloaded are counted against the stage
+	 */
+	Page getIfChanged(String url, Stage stage, String etag, String lastModified) throws IOException;
+
+	// a page returned by getIfChanged, with the validators it was served with for asking again later
+	class Page {
+
+		private String _html;
+		private String _etag;
+		private String _lastModified;
+
+		public Page(String html, String etag, String lastModified) {
+			_html = html;
+			_etag = etag;
+			_lastModified = lastModified;
+		}
+
+		// returns true if the page hasn't changed, and so has no body
+		public boolean isNotModified() {
+			return _html == null;
+		}
+
+		// returns the body of the page, or null if it hasn't changed
+		public String getHtml() {
+			return _html;
+		}
+
+		// returns the ETag header the page was served with, or null if it had none
+		public String getEtag() {
+			return _etag;
+		}
+
+		// returns the Last-Modified header the page was served with, or null if it had none
+		public String getLastModified() {
+			return _lastModified;
+		}
+	}
+}
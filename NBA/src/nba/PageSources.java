@@ -0,0 +1,61 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+/*
+ * This class builds the PageSource the system properties ask for.
+ *
+ * "nba.pageSource" picks where pages come from:
+ *   http             espn.com, or the host in "nba.baseUrl" (the default)
+ *   archive:<dir>    a recorded archive, read straight from disk
+ *   fixture:<dir>    a recorded archive, served by a FixtureServer started on a free local port and scraped over HTTP
+ *
+ * The latency and failures a FaultPlan is configured with are injected into any of them. With a fixture they are injected
+ * by the server, so they go through the same retries as failures from espn.com.
+ */
+public class PageSources {
+
+	// the fixture servers started so far, one for each archive, shared by every fetcher in the program
+	private static final Map<String, FixtureServer> _servers = new HashMap<String, FixtureServer>();
+
+	// returns the page source the system properties ask for, with a PageClient limited to maxConnectionsPerHost where one is needed
+	public static PageSource fromProperties(int maxConnectionsPerHost) {
+		String source = System.getProperty("nba.pageSource", "http");
+		FaultPlan faults = FaultPlan.fromProperties();
+
+		if (source.startsWith("fixture:")) {
+			FixtureServer server = getServer(new File(source.substring("fixture:".length())), faults);
+			return new PageClient(maxConnectionsPerHost, server.getBaseUrl());
+		}
+
+		PageSource pages;
+		if (source.startsWith("archive:")) {
+			pages = new ArchivePageSource(new PageCache(new File(source.substring("archive:".length()))));
+		}
+		else if (source.equals("http")) {
+			pages = new PageClient(maxConnectionsPerHost);
+		}
+		else {
+			throw new IllegalArgumentException("Unknown page source: " + source);
+		}
+		return (faults == null) ? pages : new FaultInjectingPageSource(pages, faults);
+	}
+
+	// returns the fixture server for the archive, starting it the first time it is asked for
+	public static synchronized FixtureServer getServer(File archiveDirectory, FaultPlan faults) {
+		String key = archiveDirectory.getAbsolutePath();
+		FixtureServer server = _servers.get(key);
+		if (server == null) {
+			try {
+				server = new FixtureServer(archiveDirectory, faults, 0, Integer.getInteger("nba.fixtureThreads", 8));
+			} catch (IOException e) {
+				throw new IllegalStateException("Couldn't start a fixture server for " + archiveDirectory, e);
+			}
+			server.start();
+			_servers.put(key, server);
+		}
+		return server;
+	}
+}
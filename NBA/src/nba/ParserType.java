@@ -1,7 +1,7 @@
 package nba;
 /*
- * simple enum that tells App class in which of the two possible ways it should parse the data
+ * simple enum that tells App class in which of the possible ways it should parse the data, or whether it should parse it every way at once
  */
 public enum ParserType {
-	PointsPerOffensiveReboundParser, OffensiveReboundingPercentageParser
+	PointsPerOffensiveReboundParser, OffensiveReboundingPercentageParser, SecondChanceBreakdownParser, MultiAnalysisParser
 }
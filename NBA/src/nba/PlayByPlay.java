@@ -0,0 +1,518 @@
+package nba;
+
+import java.util.Arrays;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+/*
+ * This class represents the play-by-play of one game as a compact sequence of events.
+ *
+ * It walks each row of the play-by-play table once, and records what happened in that row in primitive arrays:
+ * the game clock, which side had the ball, the zone of the court any shot was taken from, which free throw of how many it was,
+ * the player who shot or rebounded, and a set of flags for the phrases in the row's text that the parsers care about.
+ * Players and the two teams are kept as ids interned by Names.
+ * Everything after that reads the arrays instead of the html, so no selector is ever run more than once on a row.
+ *
+ * Rows are numbered in the order they appear in the play-by-play table.
+ *
+ * A play-by-play is final once its table ends the game: a row saying the game is over, or the end of the 4th quarter or of an overtime
+ * with the score not tied. A game still being played has a table that stops wherever the game has got to.
+ */
+public class PlayByPlay {
+
+	// flags for the phrases found in a row's text
+	public static final int MISSES = 1 << 0;
+	public static final int BLOCKS = 1 << 1;
+	public static final int MAKES = 1 << 2;
+	public static final int REBOUND = 1 << 3;
+	public static final int OFFENSIVE = 1 << 4;
+	public static final int DEFENSIVE = 1 << 5;
+	public static final int OFFENSIVE_REBOUND = 1 << 6;
+	public static final int END_OF_PERIOD = 1 << 7;
+	public static final int ENTERS_GAME = 1 << 8;
+	public static final int TIMEOUT = 1 << 9;
+	public static final int VS = 1 << 10;
+	public static final int DELAY = 1 << 11;
+	public static final int TECHNICAL = 1 << 12;
+	public static final int TECHNICAL_FOUL = 1 << 13;
+	public static final int TECHNICAL_FREE_THROW = 1 << 14;
+	public static final int EJECTED = 1 << 15;
+	public static final int FREE = 1 << 16;
+	public static final int FOUL = 1 << 17;
+	public static final int SHOOTING_FOUL = 1 << 18;
+	public static final int TURNOVER = 1 << 19;
+	public static final int TRAVELING = 1 << 20;
+	public static final int PASS = 1 << 21;
+	public static final int BAD_PASS = 1 << 22;
+	public static final int VIOLATION = 1 << 23;
+	public static final int THREE_SECONDS = 1 << 24;
+
+	/*
+	 * Flags worked out from the row's cells rather than a single phrase:
+	 * MISS_WITH_REBOUND marks a missed or blocked shot that can be rebounded. Missed free throws that aren't the last free throw taken
+	 * and technical free throws are left out, since there is no rebound off them (espn.com has bug where it credits rebounds anyways).
+	 * ZERO_CLOCK marks a row with 0:00 in one of its cells.
+	 */
+	public static final int MISS_WITH_REBOUND = 1 << 25;
+	public static final int ZERO_CLOCK = 1 << 26;
+
+	// values for the side of a row, the side of the court whose column the play is written in
+	public static final byte NO_SIDE = 0;
+	public static final byte HOME = 1;
+	public static final byte AWAY = 2;
+
+	// the phrase each of the flags above stands for, in the order of the flags
+	private static final String[] PHRASES = { "misses", "blocks", "makes", "rebound", "offensive", "defensive", "offensive rebound",
+		"End of the", "enters the game", "timeout", "vs", "delay", "technical", "technical foul", "technical free throw", "ejected", "free",
+		"foul", "shooting foul", "turnover", "traveling", "pass", "bad pass", "violation", "3-seconds" };
+
+	// keywords of a row's text that aren't flags of their own: how many free throws were awarded
+	private static final long ONE_FREE_THROW = 1L << 32;
+	private static final long TWO_FREE_THROWS = 1L << 33;
+	private static final long THREE_FREE_THROWS = 1L << 34;
+	private static final long PHRASE_FLAGS = (1L << 32) - 1;
+
+	// keywords of a cell's text, which are looked for whatever their case
+	private static final long CELL_ZERO_CLOCK = 1L << 0;
+	private static final long CELL_MISSES = 1L << 1;
+	private static final long CELL_NO_REBOUND = 1L << 2;
+
+	/*
+	 * Every keyword is found by one scan of the text. Other ways of wording a phrase can be added without changing any code,
+	 * through the system property "nba.phrasings": a list of "new wording=phrase" separated by ';', like "hits=makes;misfires=misses".
+	 * A new wording of a phrase is flagged in every row and cell the phrase would be.
+	 */
+	private static final String[][] PHRASINGS = parsePhrasings(System.getProperty("nba.phrasings"));
+	private static final KeywordMatcher ROW_KEYWORDS = buildRowKeywords(PHRASINGS);
+	private static final KeywordMatcher CELL_KEYWORDS = buildCellKeywords(PHRASINGS);
+
+	// the words that follow a player's name in a shot or rebound
+	private static final String[] PLAYER_VERBS = { " makes ", " misses ", " offensive rebound", " defensive rebound", " rebound" };
+
+	private int _gameId;
+	private int _awayTeam;
+	private int _homeTeam;
+	private int _numRows;
+	private int[] _flags;
+	private int[] _clock;
+	private byte[] _side;
+	private byte[] _zone;
+	private byte[] _freeThrowNumber;
+	private byte[] _freeThrowsAwarded;
+	private int[] _player;
+	private boolean[] _hasNextRow;
+	private boolean _final;
+
+	// the second chance points of each offensive rebound, worked out by SecondChancePoints the first time they are asked for
+	private int[] _secondChancePoints;
+
+	// tokenizes the play-by-play table on the page it is passed
+	public PlayByPlay(Document playByPlayPage) {
+		this(playByPlayPage.getElementsByClass("mod-data").select("tr"));
+		_gameId = GameId.parse(playByPlayPage.location());
+	}
+	
+	// rebuilds a play-by-play that was already tokenized, from the arrays it is passed. Used to read games back out of an EventStore
+	PlayByPlay(int gameId, int awayTeam, int homeTeam, int[] flags, int[] clock, byte[] side, byte[] zone, byte[] freeThrowNumber, byte[] freeThrowsAwarded,
+			int[] player, boolean[] hasNextRow) {
+		_gameId = gameId;
+		_awayTeam = awayTeam;
+		_homeTeam = homeTeam;
+		_numRows = flags.length;
+		_flags = flags;
+		_clock = clock;
+		_side = side;
+		_zone = zone;
+		_freeThrowNumber = freeThrowNumber;
+		_freeThrowsAwarded = freeThrowsAwarded;
+		_player = player;
+		_hasNextRow = hasNextRow;
+		// only games that were final are ever saved
+		_final = true;
+	}
+
+	// tokenizes the play-by-play rows it is passed
+	public PlayByPlay(Elements rows) {
+		_numRows = rows.size();
+		_flags = new int[_numRows];
+		_clock = new int[_numRows];
+		_side = new byte[_numRows];
+		_zone = new byte[_numRows];
+		_freeThrowNumber = new byte[_numRows];
+		_freeThrowsAwarded = new byte[_numRows];
+		_player = new int[_numRows];
+		_hasNextRow = new boolean[_numRows];
+
+		for (int i = 0; i < _numRows; i++) {
+			this.tokenizeRow(i, rows.get(i));
+		}
+		_final = endsGame(rows);
+	}
+
+	/*
+	 * helper method for constructor. Returns true if the rows end the game: a row saying the game is over,
+	 * or the end of the 4th quarter or of an overtime with the score not tied, since a tie goes on to another overtime.
+	 */
+	private static boolean endsGame(Elements rows) {
+		if (rows.isEmpty()) {
+			return false;
+		}
+		String last = rows.get(rows.size() - 1).text();
+		if (last.contains("End of Game")) {
+			return true;
+		}
+		if (!last.contains("End of the 4th Quarter") && !(last.contains("End of the") && last.contains("Overtime"))) {
+			return false;
+		}
+		// the score is the third cell of every play, like "113-106"
+		for (int i = rows.size() - 1; i >= 0; i--) {
+			Elements cells = rows.get(i).children();
+			if (cells.size() >= 4) {
+				String[] score = cells.get(2).text().trim().split("-");
+				if (score.length == 2 && score[0].trim().matches("\\d+") && score[1].trim().matches("\\d+")) {
+					return Integer.parseInt(score[0].trim()) != Integer.parseInt(score[1].trim());
+				}
+			}
+		}
+		return false;
+	}
+
+	// helper method for constructor. Records everything the parsers need to know about one row
+	private void tokenizeRow(int i, Element row) {
+		String rowText = row.text();
+		long keywords = ROW_KEYWORDS.match(rowText);
+		int flags = (int) (keywords & PHRASE_FLAGS);
+
+		// rows are only ever walked into through the html's next sibling, so remember where each table section ends
+		_hasNextRow[i] = (row.nextElementSibling() != null);
+
+		Elements cells = row.children();
+		
+		// the column headings name the away team and the home team
+		if (_homeTeam == Names.NONE && row.hasClass("colhead") && cells.size() >= 4) {
+			_awayTeam = Names.intern(cells.get(1).text().trim());
+			_homeTeam = Names.intern(cells.get(3).text().trim());
+		}
+		
+		String missText = null;
+		String awayText = null;
+		String homeText = null;
+		for (int c = 0; c < cells.size(); c++) {
+			Element cell = cells.get(c);
+			if (!cell.tagName().equals("td")) {
+				continue;
+			}
+			String cellText = cell.text();
+			long cellKeywords = CELL_KEYWORDS.match(cellText);
+
+			if (c == 0) {
+				_clock[i] = parseClock(cellText);
+			}
+			else if (c == 1) {
+				awayText = cellText;
+			}
+			else if (c == 3) {
+				homeText = cellText;
+			}
+
+			if ((cellKeywords & CELL_ZERO_CLOCK) != 0) {
+				flags |= ZERO_CLOCK;
+			}
+			if ((cellKeywords & (CELL_MISSES | CELL_NO_REBOUND)) == CELL_MISSES) {
+				flags |= MISS_WITH_REBOUND;
+				missText = (missText == null) ? cellText : missText + " " + cellText;
+			}
+		}
+		if (cells.isEmpty() || !cells.get(0).tagName().equals("td")) {
+			_clock[i] = -1;
+		}
+
+		// if away cell isn't empty, then away team has possession. if home cell isn't empty, then home team has possession
+		String shotText = null;
+		if (awayText != null && awayText.length() > 1) {
+			_side[i] = AWAY;
+			shotText = awayText;
+		}
+		else if (homeText != null && homeText.length() > 1) {
+			_side[i] = HOME;
+			shotText = homeText;
+		}
+		else {
+			_side[i] = NO_SIDE;
+		}
+
+		// a miss is classified by the cell the miss is in, a made shot by the cell of the side that took it
+		if (missText != null) {
+			_zone[i] = (byte) DataParser.classifyShot(missText);
+		}
+		else if ((flags & MAKES) != 0 && shotText != null) {
+			_zone[i] = (byte) DataParser.classifyShot(shotText);
+		}
+		else {
+			_zone[i] = CONSTANTS.MISC;
+		}
+		
+		// the player is only needed for shots and rebounds
+		if (shotText != null && (flags & (MISSES | BLOCKS | MAKES | REBOUND)) != 0) {
+			_player[i] = Names.intern(playerName(shotText));
+		}
+
+		// find out which free throw of how many this row is
+		if ((keywords & ONE_FREE_THROW) != 0) _freeThrowsAwarded[i] = 1;
+		else if ((keywords & TWO_FREE_THROWS) != 0) _freeThrowsAwarded[i] = 2;
+		else if ((keywords & THREE_FREE_THROWS) != 0) _freeThrowsAwarded[i] = 3;
+		if (_freeThrowsAwarded[i] != 0) {
+			int of = rowText.indexOf(" of " + _freeThrowsAwarded[i]);
+			if (of > 0 && Character.isDigit(rowText.charAt(of - 1))) {
+				_freeThrowNumber[i] = (byte) (rowText.charAt(of - 1) - '0');
+			}
+		}
+
+		_flags[i] = flags;
+	}
+
+	/*
+	 * Builds the keywords looked for in a row's text: each phrase for its flag, every other wording of it for the same flag,
+	 * and "of 1", "of 2" and "of 3" for the free throws awarded.
+	 */
+	private static KeywordMatcher buildRowKeywords(String[][] phrasings) {
+		KeywordMatcher.Builder keywords = new KeywordMatcher.Builder();
+		for (int phrase = 0; phrase < PHRASES.length; phrase++) {
+			keywords.add(PHRASES[phrase], 1L << phrase);
+		}
+		for (String[] phrasing: phrasings) {
+			keywords.add(phrasing[0], 1L << indexOfPhrase(phrasing[1]));
+		}
+		keywords.add("of 1", ONE_FREE_THROW);
+		keywords.add("of 2", TWO_FREE_THROWS);
+		keywords.add("of 3", THREE_FREE_THROWS);
+		return keywords.build();
+	}
+
+	/*
+	 * Builds the keywords looked for in each cell: 0:00 for the clock, a miss or block, and the free throws and technicals
+	 * there is no rebound off, along with every other wording of those phrases.
+	 */
+	private static KeywordMatcher buildCellKeywords(String[][] phrasings) {
+		KeywordMatcher.Builder keywords = new KeywordMatcher.Builder().ignoreCase();
+		keywords.add("0:00", CELL_ZERO_CLOCK);
+		keywords.add("misses", CELL_MISSES).add("blocks", CELL_MISSES);
+		keywords.add("1 of 2", CELL_NO_REBOUND).add("1 of 3", CELL_NO_REBOUND).add("2 of 3", CELL_NO_REBOUND).add("technical", CELL_NO_REBOUND);
+		for (String[] phrasing: phrasings) {
+			if (phrasing[1].equals("misses") || phrasing[1].equals("blocks")) {
+				keywords.add(phrasing[0], CELL_MISSES);
+			}
+			else if (phrasing[1].equals("technical")) {
+				keywords.add(phrasing[0], CELL_NO_REBOUND);
+			}
+		}
+		return keywords.build();
+	}
+
+	// helper method for the keyword builders. Reads the list of "new wording=phrase" pairs, or no pairs if the list is null
+	private static String[][] parsePhrasings(String list) {
+		if (list == null || list.trim().isEmpty()) {
+			return new String[0][];
+		}
+		String[] pairs = list.split(";");
+		String[][] phrasings = new String[pairs.length][];
+		for (int i = 0; i < pairs.length; i++) {
+			int equals = pairs[i].indexOf('=');
+			if (equals <= 0 || equals == pairs[i].length() - 1) {
+				throw new IllegalArgumentException("nba.phrasings needs pairs like \"new wording=phrase\", but was: " + list);
+			}
+			phrasings[i] = new String[] { pairs[i].substring(0, equals), pairs[i].substring(equals + 1) };
+			indexOfPhrase(phrasings[i][1]);
+		}
+		return phrasings;
+	}
+
+	// helper method for the keyword builders. Returns the flag number of the phrase
+	private static int indexOfPhrase(String phrase) {
+		for (int i = 0; i < PHRASES.length; i++) {
+			if (PHRASES[i].equals(phrase)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("nba.phrasings can only give new wordings of the phrases " + Arrays.toString(PHRASES) + ", but was given: " + phrase);
+	}
+
+	/*
+	 * helper method for tokenizeRow. Returns the name of the player who took the shot or got the rebound in the cell text it is passed,
+	 * or null for a team rebound or text that doesn't start with a player. For a block it is the player whose shot was blocked.
+	 */
+	static String playerName(String cellText) {
+		int blocks = cellText.indexOf(" blocks ");
+		if (blocks != -1) {
+			int shooterStart = blocks + " blocks ".length();
+			int shooterEnd = cellText.indexOf("'s ", shooterStart);
+			return (shooterEnd == -1) ? null : cellText.substring(shooterStart, shooterEnd).trim();
+		}
+		if (cellText.contains("team rebound")) {
+			return null;
+		}
+		int end = -1;
+		for (String verb: PLAYER_VERBS) {
+			int at = cellText.indexOf(verb);
+			if (at > 0 && (end == -1 || at < end)) {
+				end = at;
+			}
+		}
+		return (end == -1) ? null : cellText.substring(0, end).trim();
+	}
+
+	// returns the game clock written as "m:ss" or "m:ss.t" in tenths of a second, or -1 if the text isn't a game clock
+	public static int parseClock(String clockText) {
+		int colon = clockText.indexOf(':');
+		if (colon <= 0) {
+			return -1;
+		}
+		int minutes = 0;
+		for (int c = 0; c < colon; c++) {
+			char digit = clockText.charAt(c);
+			if (!Character.isDigit(digit)) return -1;
+			minutes = minutes * 10 + (digit - '0');
+		}
+		int seconds = 0;
+		int tenths = 0;
+		int digits = 0;
+		boolean afterPoint = false;
+		for (int c = colon + 1; c < clockText.length(); c++) {
+			char digit = clockText.charAt(c);
+			if (digit == '.' && !afterPoint) {
+				afterPoint = true;
+			}
+			else if (!Character.isDigit(digit)) {
+				return -1;
+			}
+			else if (afterPoint) {
+				tenths = digit - '0';
+				break;
+			}
+			else {
+				seconds = seconds * 10 + (digit - '0');
+				digits++;
+			}
+		}
+		if (digits == 0) {
+			return -1;
+		}
+		return (minutes * 60 + seconds) * 10 + tenths;
+	}
+
+	/*
+	 * Switches everything recorded for two rows.
+	 * Used to fix the order of rows espn.com puts out of order, where a row keeps its place in the table but takes on the other's play.
+	 */
+	public void swapRows(int first, int second) {
+		_secondChancePoints = null;
+		int flags = _flags[first]; _flags[first] = _flags[second]; _flags[second] = flags;
+		int clock = _clock[first]; _clock[first] = _clock[second]; _clock[second] = clock;
+		byte side = _side[first]; _side[first] = _side[second]; _side[second] = side;
+		byte zone = _zone[first]; _zone[first] = _zone[second]; _zone[second] = zone;
+		byte number = _freeThrowNumber[first]; _freeThrowNumber[first] = _freeThrowNumber[second]; _freeThrowNumber[second] = number;
+		byte awarded = _freeThrowsAwarded[first]; _freeThrowsAwarded[first] = _freeThrowsAwarded[second]; _freeThrowsAwarded[second] = awarded;
+		int player = _player[first]; _player[first] = _player[second]; _player[second] = player;
+	}
+
+	// returns the espn.com game id of the game, or 0 if it isn't known
+	public int getGameId() {
+		return _gameId;
+	}
+
+	// returns true if the play-by-play shows the game is over, rather than stopping wherever a game still being played has got to
+	public boolean isFinal() {
+		return _final;
+	}
+
+	// returns the Names id of the away team, or Names.NONE if the play-by-play doesn't say
+	public int getAwayTeam() {
+		return _awayTeam;
+	}
+
+	// returns the Names id of the home team, or Names.NONE if the play-by-play doesn't say
+	public int getHomeTeam() {
+		return _homeTeam;
+	}
+
+	// returns the Names id of the team on the side it is passed, HOME or AWAY, or Names.NONE for NO_SIDE
+	public int getTeam(byte side) {
+		if (side == HOME) return _homeTeam;
+		if (side == AWAY) return _awayTeam;
+		return Names.NONE;
+	}
+
+	/*
+	 * Returns the points the side that got the offensive rebound in the row scores before it loses the ball or the period ends,
+	 * or 0 if the row isn't an offensive rebound. Every rebound's points are worked out together the first time
+	 * any are asked for, so rows should be put in order with swapRows before then.
+	 */
+	public int getSecondChancePoints(int row) {
+		if (_secondChancePoints == null) {
+			_secondChancePoints = SecondChancePoints.compute(this);
+		}
+		return _secondChancePoints[row];
+	}
+
+	// returns the number of rows in the play-by-play
+	public int getNumRows() {
+		return _numRows;
+	}
+
+	// returns true if the row's text contains every phrase in flags
+	public boolean has(int row, int flags) {
+		return (_flags[row] & flags) == flags;
+	}
+
+	// returns true if the row's text contains any of the phrases in flags
+	public boolean hasAny(int row, int flags) {
+		return (_flags[row] & flags) != 0;
+	}
+
+	public int getFlags(int row) {
+		return _flags[row];
+	}
+
+	// returns true if the row is followed by another row of the same table section. Rows past the end of a section can't be walked into
+	public boolean hasNextRow(int row) {
+		return _hasNextRow[row];
+	}
+
+	// returns the game clock of the row in tenths of a second, or -1 if the row has no clock
+	public int getClock(int row) {
+		return _clock[row];
+	}
+
+	// returns which side's column the row's play is written in: HOME, AWAY or NO_SIDE
+	public byte getSide(int row) {
+		return _side[row];
+	}
+
+	// returns whichever side has possession in the row, or null if neither does
+	public Possession getPossession(int row) {
+		if (_side[row] == HOME) return Possession.HOME;
+		if (_side[row] == AWAY) return Possession.AWAY;
+		return null;
+	}
+
+	// returns the zone of the court (a CONSTANTS index) of the shot in the row
+	public int getZone(int row) {
+		return _zone[row];
+	}
+
+	// returns k if the row is free throw k of n, or 0 if it isn't a free throw
+	public int getFreeThrowNumber(int row) {
+		return _freeThrowNumber[row];
+	}
+
+	// returns n if the row is free throw k of n, or 0 if it isn't a free throw
+	public int getFreeThrowsAwarded(int row) {
+		return _freeThrowsAwarded[row];
+	}
+
+	// returns the Names id of the player who shot or rebounded in the row, or Names.NONE if the row isn't a player's shot or rebound
+	public int getPlayer(int row) {
+		return _player[row];
+	}
+}
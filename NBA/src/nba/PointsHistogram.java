@@ -0,0 +1,144 @@
+package nba;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+/*
+ * This class is a histogram of points scored: how many times each number of points was scored.
+ *
+ * The points scored after an offensive rebound are almost always between 0 and 6, so keeping a count for each value
+ * takes the same few longs however many rebounds are recorded, and the mean, variance and percentiles can all be worked out from the counts.
+ * Histograms can be merged, which adds their counts, and written to a stream to be merged in another process.
+ */
+public class PointsHistogram {
+
+	private static final int INITIAL_MAX_POINTS = 15;
+
+	private long[] _counts;
+	private long _count;
+	private long _sum;
+
+	public PointsHistogram() {
+		_counts = new long[INITIAL_MAX_POINTS + 1];
+	}
+
+	// records one possession that scored the number of points it is passed
+	public void add(int points) {
+		if (points < 0) {
+			throw new IllegalArgumentException("Points can't be negative: " + points);
+		}
+		if (points >= _counts.length) {
+			_counts = Arrays.copyOf(_counts, Math.max(points + 1, _counts.length * 2));
+		}
+		_counts[points]++;
+		_count++;
+		_sum += points;
+	}
+
+	// adds every possession recorded in other to this histogram
+	public void merge(PointsHistogram other) {
+		if (other._counts.length > _counts.length) {
+			_counts = Arrays.copyOf(_counts, other._counts.length);
+		}
+		for (int points = 0; points < other._counts.length; points++) {
+			_counts[points] += other._counts[points];
+		}
+		_count += other._count;
+		_sum += other._sum;
+	}
+
+	// writes the counts, for read to add to a histogram in another process
+	public void write(DataOutput out) throws IOException {
+		out.writeInt(_counts.length);
+		for (long count: _counts) {
+			out.writeLong(count);
+		}
+		out.writeLong(_count);
+		out.writeLong(_sum);
+	}
+
+	// adds the counts written by write to this histogram, like merge
+	public void read(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > 1 << 16) {
+			throw new IOException("Bad histogram length: " + length);
+		}
+		if (length > _counts.length) {
+			_counts = Arrays.copyOf(_counts, length);
+		}
+		for (int points = 0; points < length; points++) {
+			_counts[points] += in.readLong();
+		}
+		_count += in.readLong();
+		_sum += in.readLong();
+	}
+
+	// returns the number of possessions recorded
+	public long getCount() {
+		return _count;
+	}
+
+	public boolean isEmpty() {
+		return _count == 0;
+	}
+
+	// returns how many possessions scored the number of points it is passed
+	public long getCount(int points) {
+		return (points < _counts.length) ? _counts[points] : 0;
+	}
+
+	// returns the total points scored by every possession recorded
+	public long getSum() {
+		return _sum;
+	}
+
+	// returns the average points scored per possession, or NaN if nothing is recorded
+	public double getMean() {
+		return _sum / (double) _count;
+	}
+
+	// returns the sample variance of the points scored per possession, or NaN if fewer than two possessions are recorded
+	public double getVariance() {
+		if (_count < 2) {
+			return Double.NaN;
+		}
+		double mean = this.getMean();
+		double squaredDeviations = 0;
+		for (int points = 0; points < _counts.length; points++) {
+			double deviation = points - mean;
+			squaredDeviations += _counts[points] * deviation * deviation;
+		}
+		return squaredDeviations / (_count - 1);
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(this.getVariance());
+	}
+
+	// returns the smallest number of points that at least fraction of the possessions scored no more than, or -1 if nothing is recorded
+	public int getPercentile(double fraction) {
+		if (_count == 0) {
+			return -1;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * _count));
+		long seen = 0;
+		for (int points = 0; points < _counts.length; points++) {
+			seen += _counts[points];
+			if (seen >= rank) {
+				return points;
+			}
+		}
+		return _counts.length - 1;
+	}
+
+	/*
+	 * Returns the low and high ends of a confidence interval for the mean, using the normal approximation.
+	 * z is the number of standard errors on either side, like 1.96 for a 95% interval.
+	 */
+	public double[] getConfidenceInterval(double z) {
+		double mean = this.getMean();
+		double halfWidth = z * Math.sqrt(this.getVariance() / _count);
+		return new double[] { mean - halfWidth, mean + halfWidth };
+	}
+}
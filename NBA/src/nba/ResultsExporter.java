@@ -0,0 +1,118 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+/*
+ * This class exports the results of parsers in machine-readable formats, alongside the text reports.
+ *
+ * Each parser writes its aggregates as rows of named tables, with a season column so the results of any number of seasons
+ * can go into the same tables. Each table is written to one file per format, named after the table, like
+ * results/offensive_rebounding_by_zone.csv. Rows stream straight to disk as they are written, and every file
+ * appears whole when the exporter is closed.
+ *
+ * It is configured with the system properties "nba.exportDir" (default "results") and "nba.exportFormats",
+ * a comma separated list of csv, json and columnar (default all three; "" turns exporting off).
+ * An exporter is meant to be used from one thread. Subclasses can write the tables somewhere other than files by overriding open.
+ */
+public class ResultsExporter {
+
+	private File _directory;
+	private List<ResultsFormat> _formats;
+	private Map<String, Table> _tables;
+
+	public ResultsExporter(File directory, List<ResultsFormat> formats) {
+		_directory = directory;
+		_formats = new ArrayList<ResultsFormat>(formats);
+		_tables = new LinkedHashMap<String, Table>();
+	}
+
+	// returns an exporter configured by the system properties, or null if exporting is turned off
+	public static ResultsExporter fromProperties() {
+		String formatNames = System.getProperty("nba.exportFormats", "csv,json,columnar");
+		if (formatNames.trim().isEmpty()) {
+			return null;
+		}
+		List<ResultsFormat> formats = new ArrayList<ResultsFormat>();
+		for (String name: formatNames.split(",")) {
+			formats.add(ResultsFormat.parse(name));
+		}
+		return new ResultsExporter(new File(System.getProperty("nba.exportDir", "results")), formats);
+	}
+
+	/*
+	 * Returns the table with the name it is passed, opening it the first time it is asked for.
+	 * Asking for a table again, like for the next season, returns the same table, which must have the same columns.
+	 */
+	public ResultsTable table(String name, String... columns) throws IOException {
+		Table table = _tables.get(name);
+		if (table == null) {
+			table = new Table(columns, this.open(name, columns));
+			_tables.put(name, table);
+		}
+		else if (!Arrays.equals(table.columns, columns)) {
+			throw new IllegalArgumentException("Table " + name + " was opened with columns " + Arrays.toString(table.columns));
+		}
+		return table;
+	}
+
+	// helper method for table. Opens a new table in every format, written to files named after it
+	protected List<ResultsTable> open(String name, String[] columns) throws IOException {
+		List<ResultsTable> files = new ArrayList<ResultsTable>();
+		for (ResultsFormat format: _formats) {
+			files.add(format.open(new File(_directory, name + "." + format.getExtension()), columns));
+		}
+		return files;
+	}
+
+	// exports the results of every parser it is passed
+	public void export(List<DataParser> parsers) throws IOException {
+		for (DataParser parser: parsers) {
+			parser.exportResults(this);
+		}
+	}
+
+	// finishes every table, moving their files into place
+	public void close() throws IOException {
+		IOException failure = null;
+		for (Table table: _tables.values()) {
+			try {
+				table.close();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+		_tables.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	// a table written to a file in each format at once
+	private static class Table implements ResultsTable {
+
+		public final String[] columns;
+		public final List<ResultsTable> files;
+
+		public Table(String[] columns, List<ResultsTable> files) {
+			this.columns = columns.clone();
+			this.files = files;
+		}
+
+		public void writeRow(Object... values) throws IOException {
+			for (ResultsTable file: files) {
+				file.writeRow(values);
+			}
+		}
+
+		public void close() throws IOException {
+			for (ResultsTable file: files) {
+				file.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package nba;
+
+import java.io.File;
+import java.io.IOException;
+/*
+ * The formats results can be exported in, each with the extension of its files.
+ */
+public enum ResultsFormat {
+
+	CSV("csv"), JSON("json"), COLUMNAR("cols");
+
+	private String _extension;
+
+	private ResultsFormat(String extension) {
+		_extension = extension;
+	}
+
+	public String getExtension() {
+		return _extension;
+	}
+
+	// opens a table in this format that will be written to file when it is closed
+	public ResultsTable open(File file, String[] columns) throws IOException {
+		switch (this) {
+			case CSV: return new CsvResultsTable(file, columns);
+			case JSON: return new JsonResultsTable(file, columns);
+			default: return new ColumnarResultsTable(file, columns);
+		}
+	}
+
+	// returns the format with the name or extension it is passed, like "csv" or "columnar"
+	public static ResultsFormat parse(String name) {
+		for (ResultsFormat format: values()) {
+			if (format.name().equalsIgnoreCase(name.trim()) || format._extension.equalsIgnoreCase(name.trim())) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("Unknown results format: " + name);
+	}
+}
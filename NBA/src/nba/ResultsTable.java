@@ -0,0 +1,15 @@
+package nba;
+
+import java.io.Closeable;
+import java.io.IOException;
+/*
+ * A table of results being exported, written one row at a time.
+ *
+ * Rows are written straight through to the table's file, so a table can be as big as an export needs without being held in memory.
+ * Every row has a value for each column, in the order the columns were named when the table was opened: a String, or any Number.
+ * The file only appears, whole, when the table is closed.
+ */
+public interface ResultsTable extends Closeable {
+
+	void writeRow(Object... values) throws IOException;
+}
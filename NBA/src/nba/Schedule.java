@@ -2,40 +2,75 @@ package nba;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import org.joda.time.LocalDate;
 import org.joda.time.MutableDateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 /*
  * This class represents an NBA schedule.
  * 
- * It is constructed by passing in a start date. 
+ * It is constructed by passing in the season to walk through, and optionally the week to start from.
  * 
  * Since the NBA schedule is loaded on expn.com one week at a time, it keeps track of the schedule page for the current week
+ * 
+ * The pages for the next few weeks are requested in the background while the current week is being parsed, so moving on
+ * to the next week doesn't wait on a download. It looks "nba.prefetchWeeks" weeks ahead, 1 by default, never past the end of the season.
+ * ScheduleIterator walks a schedule game by game.
  */
 public class Schedule {
 	
+	// the day headings on a schedule page, like "Thursday, April 17", once the day of the week is cut off
+	private static final DateTimeFormatter DAY_HEADING = DateTimeFormat.forPattern("MMMM d").withLocale(Locale.US);
+	
+	private Season _season;
 	private MutableDateTime _date;
 	private Document _currWeekSchedulePage;
+	private PageFetcher _fetcher;
+	private int _prefetchWeeks;
+	private LinkedList<Future<Document>> _upcomingWeeks;
 	
 	private boolean _isEndOfRegularSeason;
 	
-	public Schedule(int year, int month, int day){
+	public Schedule(Season season){
+		this(season, new PageFetcher());
+	}
+	
+	// pages are downloaded through the fetcher it is passed, so a schedule can share worker threads with a DataParser
+	public Schedule(Season season, PageFetcher fetcher){
+		this(season, season.getStart(), fetcher);
+	}
+	
+	// starts from the week beginning on firstWeek instead of the first day of the season
+	public Schedule(Season season, LocalDate firstWeek, PageFetcher fetcher){
+		this(season, firstWeek, fetcher, Integer.getInteger("nba.prefetchWeeks", 1));
+	}
+	
+	// requests the pages of the prefetchWeeks weeks after the current one in the background. 0 only downloads a week when it is reached
+	public Schedule(Season season, LocalDate firstWeek, PageFetcher fetcher, int prefetchWeeks){
+		_season = season;
+		_fetcher = fetcher;
+		_prefetchWeeks = prefetchWeeks;
+		_upcomingWeeks = new LinkedList<Future<Document>>();
 		_date = new MutableDateTime();
-		_date.setDate(year, month, day);
-		String week = this.formatWeek(_date);
+		_date.setDate(firstWeek.getYear(), firstWeek.getMonthOfYear(), firstWeek.getDayOfMonth());
 		
 		_isEndOfRegularSeason = false;
-		if (Integer.parseInt(week) >= 20140417) {
+		if (_season.isOver(firstWeek)) {
 			_isEndOfRegularSeason = true;
+			return;
 		}
 		
-		_currWeekSchedulePage = this.findSchedule(week);
+		_currWeekSchedulePage = this.findSchedule(this.getWeek());
+		this.prefetch();
 	}
 	
 	
@@ -55,11 +90,11 @@ public class Schedule {
 	 * Gets the url by adding the week of the schedule to the end of espn.com's schedule url
 	 */
 	public Document findSchedule(String week) {
-		String url = "http://espn.go.com/nba/schedule/_/date/"+week;
+		String url = PageSource.ESPN + "/nba/schedule/_/date/"+week;
 		
 		Document schedulePage = null;
 		try {
-			schedulePage = Jsoup.connect(url).timeout(20000).get();
+			schedulePage = _fetcher.fetch(url, this.getMaxAge());
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -67,36 +102,113 @@ public class Schedule {
 		return schedulePage;
 	}
 	
-	// advances to the next week of the schedule
+	// returns the current week of the schedule, in "week" format
+	public String getWeek() {
+		return this.formatWeek(_date);
+	}
+	
+	// returns true if the schedule page for the current week was downloaded
+	public boolean hasSchedulePage() {
+		return _currWeekSchedulePage != null;
+	}
+	
+	/*
+	 * advances to the next week of the schedule. There is nothing to download once the week starts after the season is over.
+	 * The week's page is usually already downloaded, or on its way
+	 */
 	public void advanceToNextWeek(){
 		_date.addWeeks(1);
-		String week = this.formatWeek(_date);
-		_currWeekSchedulePage = this.findSchedule(week);
+		if (_season.isOver(new LocalDate(_date))) {
+			_isEndOfRegularSeason = true;
+			_currWeekSchedulePage = null;
+			this.cancelPrefetch();
+			return;
+		}
+		Future<Document> upcoming = _upcomingWeeks.poll();
+		if (upcoming == null) {
+			_currWeekSchedulePage = this.findSchedule(this.formatWeek(_date));
+		}
+		else {
+			_currWeekSchedulePage = this.getPrefetched(upcoming);
+		}
+		this.prefetch();
+	}
+	
+	// helper method for constructor and advanceToNextWeek. Requests the pages of the weeks after the current one that haven't been requested yet
+	private void prefetch() {
+		while (_upcomingWeeks.size() < _prefetchWeeks) {
+			MutableDateTime week = _date.copy();
+			week.addWeeks(_upcomingWeeks.size() + 1);
+			if (_season.isOver(new LocalDate(week))) {
+				return;
+			}
+			String url = PageSource.ESPN + "/nba/schedule/_/date/" + this.formatWeek(week);
+			_upcomingWeeks.add(_fetcher.submit(_fetcher.fetchTask(url, getMaxAge(week))));
+		}
+	}
+	
+	// helper method for advanceToNextWeek. Waits for a week's page requested by prefetch, returning null if it couldn't be downloaded
+	private Document getPrefetched(Future<Document> page) {
+		try {
+			return page.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+		}
+		return null;
+	}
+	
+	// cancels the requests for weeks after the current one, for when the rest of the schedule won't be walked
+	public void cancelPrefetch() {
+		for (Future<Document> page: _upcomingWeeks) {
+			page.cancel(false);
+		}
+		_upcomingWeeks.clear();
 	}
 	
 	/*
 	 * Gets all the play by play links for the current week of the schedule.
-	 * Does this by going inside each box score link on current page of schedule and getting play-by-play link within box score
+	 * Does this by going inside each box score link on current page of schedule and getting play-by-play link within box score.
+	 * All the box scores for the week are downloaded at once, and their links are returned in schedule order.
 	 */
 	public List<String> getPlayByPlayLinks() {
 		List<String> playByPlayLinks = new ArrayList<String>();
 		
-		List<String> boxScoreLinks = this.getBoxScoreLinks();
-		for (String url: boxScoreLinks) {
-			Document boxScore = null;
+		List<Future<Document>> boxScores = new ArrayList<Future<Document>>();
+		for (String url: this.getBoxScoreLinks()) {
+			boxScores.add(_fetcher.submit(_fetcher.fetchTask(url, this.getMaxAge())));
+		}
+		
+		for (Future<Document> boxScore: boxScores) {
 			try {
-				boxScore = Jsoup.connect(url).timeout(20000).get();
-			} catch (IOException e) {
-				e.printStackTrace();
+				playByPlayLinks.addAll(getPlayByPlayLinks(boxScore.get()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
 			}
-			
-			Elements playByPlayCell = boxScore.select("[href*=playbyplay]");
-			for (Element pbpc: playByPlayCell) {
-				String playByPlayUrl = pbpc.absUrl("href");
-				// append &period=0 to url to get link for play-by-play with all four quarters, instead of just first quarter
-				playByPlayUrl = playByPlayUrl + "&period=0";
-				playByPlayLinks.add(playByPlayUrl);
-			}		
+		}
+		return playByPlayLinks;
+	}
+	
+	// returns the play-by-play links inside the box score it is passed, one for each game they link to
+	public static List<String> getPlayByPlayLinks(Document boxScore) {
+		List<String> playByPlayLinks = new ArrayList<String>();
+		GameIdSet games = new GameIdSet();
+		
+		Elements playByPlayCell = boxScore.select("[href*=playbyplay]");
+		for (Element pbpc: playByPlayCell) {
+			String playByPlayUrl = pbpc.absUrl("href");
+			// box scores link to their play-by-play from more than one place
+			int gameId = GameId.parse(playByPlayUrl);
+			if (gameId != GameId.NONE && !games.add(gameId)) {
+				continue;
+			}
+			// append &period=0 to url to get link for play-by-play with all four quarters, instead of just first quarter
+			playByPlayUrl = playByPlayUrl + "&period=0";
+			playByPlayLinks.add(playByPlayUrl);
 		}
 		return playByPlayLinks;
 	}
@@ -104,30 +216,103 @@ public class Schedule {
 	
 	// helper method for getPlayByPlayLinks. Returns a list of all the box scores on the current page of the schedule
 	public List<String> getBoxScoreLinks() {
-		// extracts the table data cells on schedule page with the scores of games and adds them to scores
+		List<String> boxScoreLinks = new ArrayList<String>();
+		for (GameReference game: this.getGames()) {
+			boxScoreLinks.add(game.getBoxScoreUrl());
+		}
+		return boxScoreLinks;
+	}
+	
+	/*
+	 * Returns a reference to every game on the current page of the schedule, in schedule order, with the day it is played on if the page says.
+	 * A game linked more than once on the page is only returned the first time.
+	 */
+	public List<GameReference> getGames() {
+		List<GameReference> games = new ArrayList<GameReference>();
+		GameIdSet gameIds = new GameIdSet();
+		// schedule page could not be downloaded, so there are no games to find this week
+		if (_currWeekSchedulePage == null) {
+			return games;
+		}
+		
+		// extracts the table data cells on schedule page with the scores of games, and the box score links inside them
 		Elements table = _currWeekSchedulePage.getElementsByClass("tablehead");
 		Elements rows = table.select("tr:not(tr.colhead)");
-		Elements scores = new Elements();
+		LocalDate currentDay = null;
 		for (Element row: rows) {
 			// include all rows but all-star game (Eastern Conf vs. Western Conf)
 			Elements cells = row.select("td:eq(0)").not("td:contains(Eastern Conf)");
-			scores.addAll(cells);
-			// if a cell contains this date, regular season is over and parsing is finished
-			Elements endRegSeasonDate = row.select("td:eq(0):contains(Thursday, April 17)");
-			if (!endRegSeasonDate.isEmpty()) {
-				_isEndOfRegularSeason = true;
-				break;
+			for (Element link: cells.select("a")) {
+				int gameId = GameId.parse(link.absUrl("href"));
+				if (gameId != GameId.NONE && !gameIds.add(gameId)) {
+					continue;
+				}
+				games.add(new GameReference(this, link.absUrl("href"), this.getWeek(), currentDay, row.text(), this.getMaxAge()));
+			}
+			// if a cell contains a day after the season is over, the season is over and parsing is finished
+			if (!cells.isEmpty()) {
+				LocalDate day = this.parseDayHeading(cells.first().text());
+				if (day != null && _season.isOver(day)) {
+					_isEndOfRegularSeason = true;
+					break;
+				}
+				if (day != null) {
+					currentDay = day;
+				}
 			}
 		}
-		
-		// extracts the box score links from the list of cells with the scores of each game
-		List<String> boxScoreLinks = new ArrayList<String>();
-		Elements links = scores.select("a");
-		for (Element link: links) {
-			String absUrl = link.absUrl("href");
-			boxScoreLinks.add(absUrl);
+		return games;
+	}
+	
+	/*
+	 * helper method for getBoxScoreLinks. Returns the day in a schedule page's day heading, like "Thursday, April 17",
+	 * or null if the text isn't a day heading. Headings don't have a year, so it is the year that puts the day in the current week
+	 */
+	private LocalDate parseDayHeading(String text) {
+		int comma = text.indexOf(", ");
+		if (comma <= 0 || !Character.isLetter(text.charAt(0))) {
+			return null;
 		}
-		return boxScoreLinks;
+		LocalDate day;
+		try {
+			day = DAY_HEADING.withDefaultYear(_date.getYear()).parseLocalDate(text.substring(comma + 2).trim());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		// a week that starts in late December runs into January of the next year
+		if (day.isBefore(new LocalDate(_date).minusMonths(1))) {
+			day = day.plusYears(1);
+		}
+		return day;
+	}
+	
+	/*
+	 * Returns how long a cached copy of this week's pages stays fresh.
+	 * Once every game in the week has been played its pages never change, so they never need to be fetched again.
+	 * Pages for the current week are refetched after "nba.cacheMaxAgeMinutes" minutes, since games are still being added to them.
+	 */
+	public long getMaxAge() {
+		return getMaxAge(_date);
+	}
+	
+	// helper method for getMaxAge and prefetch. Returns how long a cached copy of the pages of the week starting on week stays fresh
+	private static long getMaxAge(MutableDateTime week) {
+		// pad the week by a day, since late games finish after midnight
+		MutableDateTime weekFinished = week.copy();
+		weekFinished.addDays(8);
+		if (weekFinished.isBeforeNow()) {
+			return PageCache.FOREVER;
+		}
+		return Long.getLong("nba.cacheMaxAgeMinutes", 60) * 60 * 1000;
+	}
+	
+	public Season getSeason() {
+		return _season;
+	}
+	
+	// returns the fetcher the schedule's pages are downloaded through
+	public PageFetcher getFetcher() {
+		return _fetcher;
 	}
 	
 	// returns true if schedule has reached the end of the regular season
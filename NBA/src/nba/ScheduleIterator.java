@@ -0,0 +1,197 @@
+package nba;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.joda.time.LocalDate;
+/*
+ * This class walks a season's schedule one game at a time, downloading the schedule only as far as it is walked.
+ *
+ * Nothing is downloaded until the first game is asked for. From then on, the schedule pages of the next few weeks
+ * and the box scores of the games on them are downloaded in the background while the caller works on the current game,
+ * so moving from one week to the next doesn't stall. It looks prefetchWeeks weeks ahead ("nba.prefetchWeeks", 1 by default).
+ *
+ * The games can be limited to a number of games, a range of days, and games involving a team, all set before the walk starts.
+ * Weeks outside the range of days are never downloaded, box scores are only downloaded for games that pass the filters,
+ * and no more are downloaded than the limit needs. Schedule pages overlap, so a game that shows up in more than one week
+ * is only walked the first time. A caller that stops early should call close, which cancels any downloads
+ * that haven't started.
+ */
+public class ScheduleIterator implements Iterator<GameReference>, Iterable<GameReference> {
+
+	private Season _season;
+	private PageFetcher _fetcher;
+	private int _prefetchWeeks;
+	private int _limit;
+	private LocalDate _from;
+	private LocalDate _to;
+	private String _team;
+
+	private Schedule _schedule;
+	private boolean _scheduleWeekRead;
+	private LinkedList<List<GameReference>> _weeks;
+	private GameIdSet _gamesSeen;
+	private int _gamesQueued;
+	private int _gamesReturned;
+	private boolean _closed;
+
+	public ScheduleIterator(Season season, PageFetcher fetcher) {
+		this(season, fetcher, Integer.getInteger("nba.prefetchWeeks", 1));
+	}
+
+	public ScheduleIterator(Season season, PageFetcher fetcher, int prefetchWeeks) {
+		_season = season;
+		_fetcher = fetcher;
+		_prefetchWeeks = prefetchWeeks;
+		_limit = -1;
+		_weeks = new LinkedList<List<GameReference>>();
+		_gamesSeen = new GameIdSet();
+	}
+
+	// stops after maxGames games
+	public ScheduleIterator limit(int maxGames) {
+		this.checkNotStarted();
+		_limit = maxGames;
+		return this;
+	}
+
+	// only walks games played from the day from to the day to, inclusive. Either can be null to leave that end open
+	public ScheduleIterator between(LocalDate from, LocalDate to) {
+		this.checkNotStarted();
+		_from = from;
+		_to = to;
+		return this;
+	}
+
+	// only walks games whose row on the schedule names the team, like "Spurs" or "San Antonio"
+	public ScheduleIterator involving(String team) {
+		this.checkNotStarted();
+		_team = team;
+		return this;
+	}
+
+	public Iterator<GameReference> iterator() {
+		return this;
+	}
+
+	public boolean hasNext() {
+		if (_closed || (_limit >= 0 && _gamesReturned >= _limit)) {
+			this.close();
+			return false;
+		}
+		this.fill();
+		while (!_weeks.isEmpty() && _weeks.getFirst().isEmpty()) {
+			_weeks.removeFirst();
+			this.fill();
+		}
+		if (_weeks.isEmpty()) {
+			this.close();
+			return false;
+		}
+		return true;
+	}
+
+	public GameReference next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		_gamesQueued--;
+		_gamesReturned++;
+		return _weeks.getFirst().remove(0);
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	// stops the walk, cancelling the downloads of games and weeks that haven't started
+	public void close() {
+		if (_closed) {
+			return;
+		}
+		_closed = true;
+		for (List<GameReference> week: _weeks) {
+			for (GameReference game: week) {
+				game.cancel();
+			}
+		}
+		_weeks.clear();
+		if (_schedule != null) {
+			_schedule.cancelPrefetch();
+		}
+	}
+
+	/*
+	 * helper method for hasNext. Reads weeks off the schedule until the current week and the prefetchWeeks after it are queued,
+	 * starting their box scores downloading, and stopping early once enough games are queued to reach the limit
+	 */
+	private void fill() {
+		if (_schedule == null) {
+			this.start();
+		}
+		while (_weeks.size() <= _prefetchWeeks && (_limit < 0 || _gamesReturned + _gamesQueued < _limit)) {
+			// the schedule only moves on to its next week when another week is needed
+			if (_scheduleWeekRead) {
+				if (_schedule.isEndOfRegularSeason()) {
+					return;
+				}
+				_schedule.advanceToNextWeek();
+				if (_schedule.isEndOfRegularSeason()) {
+					return;
+				}
+			}
+			List<GameReference> week = new ArrayList<GameReference>();
+			for (GameReference game: _schedule.getGames()) {
+				if (this.accepts(game) && (_limit < 0 || _gamesReturned + _gamesQueued < _limit)) {
+					_gamesSeen.add(game.getGameId());
+					game.prefetch();
+					week.add(game);
+					_gamesQueued++;
+				}
+			}
+			_weeks.add(week);
+			_scheduleWeekRead = true;
+		}
+	}
+
+	// helper method for fill. Starts the schedule at the first week of the season that the range of days reaches, and ends it at the range's end
+	private void start() {
+		LocalDate start = _season.getStart();
+		LocalDate end = _season.getEnd();
+		if (_from != null && _from.isAfter(start)) {
+			start = _from;
+		}
+		if (_to != null && _to.isBefore(end)) {
+			end = _to;
+		}
+		Season walked = new Season(_season.getName(), _season.getStart(), end);
+		_schedule = new Schedule(walked, start, _fetcher, _prefetchWeeks);
+	}
+
+	/*
+	 * helper method for fill. Returns true if the game passes the filters and hasn't been walked already.
+	 * A game whose day the schedule doesn't give is kept
+	 */
+	private boolean accepts(GameReference game) {
+		if (_gamesSeen.contains(game.getGameId())) {
+			return false;
+		}
+		if (_team != null && !game.involves(_team)) {
+			return false;
+		}
+		LocalDate day = game.getDay();
+		if (day != null && ((_from != null && day.isBefore(_from)) || (_to != null && day.isAfter(_to)))) {
+			return false;
+		}
+		return true;
+	}
+
+	private void checkNotStarted() {
+		if (_schedule != null) {
+			throw new IllegalStateException("The walk has already started");
+		}
+	}
+}
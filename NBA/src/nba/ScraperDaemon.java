@@ -0,0 +1,330 @@
+package nba;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+/*
+ * This class keeps a season's results up to date while the season is being played, and serves them over HTTP.
+ *
+ * Every so often it looks at the schedule again and parses only the games finished since it last looked, adding them to
+ * the results it keeps in memory, rewriting the text reports and saving the games to the event store as it goes.
+ * A game counts as finished once its play-by-play is final. One still being played is left out of the results,
+ * and its play-by-play is downloaded again at every poll until it is over.
+ * When the daemon starts it picks up the games already in the store, like any other run.
+ *
+ * After each update it renders every response once, as JSON, and publishes them all together as an immutable snapshot
+ * through a volatile field. Requests just read the latest snapshot, so a read never waits for an update and never sees half of one.
+ * The server only listens on the loopback address, on the port in the system property "nba.daemonPort" (8642 by default),
+ * and looks for new games every "nba.pollIntervalMinutes" minutes (15 by default).
+ *
+ *   /status              the season, games parsed and when the results were last updated
+ *   /results             the names of the results tables
+ *   /results/<table>     a results table, with the same rows as ResultsExporter writes
+ *   /games               every game parsed, with its teams
+ *   /games/<game id>     each team's rebounding and second chance points in one game
+ *   /metrics             the Metrics report
+ */
+public class ScraperDaemon {
+
+	private static final int SERVER_THREADS = 4;
+
+	private Season _season;
+	private LiveParser _parser;
+	private int _port;
+	private long _pollIntervalMinutes;
+	private ScheduledExecutorService _poller;
+	private ExecutorService _serverThreads;
+	private HttpServer _server;
+
+	// the latest responses, replaced whole after every update
+	private volatile Snapshot _snapshot;
+
+	public ScraperDaemon(Season season) {
+		this(season, Integer.getInteger("nba.daemonPort", 8642), Long.getLong("nba.pollIntervalMinutes", 15));
+	}
+
+	public ScraperDaemon(Season season, int port, long pollIntervalMinutes) {
+		_season = season;
+		_port = port;
+		_pollIntervalMinutes = pollIntervalMinutes;
+
+		DataParser offRebPercent = new OffensiveReboundingPercentageParser();
+		offRebPercent.setReportFileName("OffRebPercent_" + season.getName() + ".txt");
+		DataParser ptsPerOffReb = new PointsPerOffensiveReboundParser();
+		ptsPerOffReb.setReportFileName("AveragePointsAfterOffRebounds_" + season.getName() + ".txt");
+		DataParser breakdowns = new SecondChanceBreakdownParser();
+		breakdowns.setReportFileName("Breakdowns_" + season.getName() + ".txt");
+		_parser = new LiveParser();
+		_parser.addParser(offRebPercent);
+		_parser.addParser(ptsPerOffReb);
+		_parser.addParser(breakdowns);
+		_parser.setSeason(season);
+
+		_snapshot = new Snapshot(season, 0, null, Collections.<String, byte[]>emptyMap());
+	}
+
+	// starts serving requests, and starts updating the results straight away and then every poll interval
+	public void start() throws IOException {
+		_server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), _port), 0);
+		_serverThreads = Executors.newFixedThreadPool(SERVER_THREADS, new DaemonThreadFactory("daemon-http"));
+		_server.setExecutor(_serverThreads);
+		_server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange);
+			}
+		});
+		_server.start();
+
+		// a single thread updates the results, so updates never overlap
+		_poller = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("daemon-poller"));
+		_poller.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					update();
+				} catch (Throwable e) {
+					// a failed update is tried again at the next poll
+					e.printStackTrace();
+				}
+			}
+		}, 0, _pollIntervalMinutes, TimeUnit.MINUTES);
+	}
+
+	// stops polling and serving, waiting up to a second for requests being answered to finish
+	public void stop() {
+		if (_poller != null) {
+			_poller.shutdownNow();
+		}
+		if (_server != null) {
+			_server.stop(1);
+			_serverThreads.shutdownNow();
+		}
+		_parser.getFetcher().shutdown();
+	}
+
+	// returns the port requests are served on
+	public int getPort() {
+		return (_server == null) ? _port : _server.getAddress().getPort();
+	}
+
+	/*
+	 * Parses the games finished since the last update, rewrites the text reports, and publishes a new snapshot.
+	 * Games that aren't final yet are skipped, and their week is looked at again at the next update.
+	 * Called on the poller thread, which is the only thread that ever touches the parser.
+	 */
+	void update() throws IOException {
+		_parser.update();
+		_parser.interpretResults();
+
+		SnapshotExporter exporter = new SnapshotExporter();
+		_parser.exportResults(exporter);
+		exporter.close();
+
+		Map<String, byte[]> responses = new HashMap<String, byte[]>();
+		StringBuilder tableNames = new StringBuilder("[");
+		for (Map.Entry<String, StringWriter> table: exporter.getTables().entrySet()) {
+			responses.put("/results/" + table.getKey(), utf8(table.getValue().toString()));
+			tableNames.append(tableNames.length() == 1 ? "" : ",").append('"').append(table.getKey()).append('"');
+		}
+		responses.put("/results", utf8(tableNames.append("]\n").toString()));
+
+		StringWriter games = new StringWriter();
+		JsonResultsTable gameList = new JsonResultsTable(games, new String[] { "game_id", "away", "home" });
+		for (Map.Entry<Integer, Game> game: _parser.getGames().entrySet()) {
+			gameList.writeRow(game.getKey(), Names.get(game.getValue().awayTeam), Names.get(game.getValue().homeTeam));
+			responses.put("/games/" + game.getKey(), game.getValue().response);
+		}
+		gameList.close();
+		responses.put("/games", utf8(games.toString()));
+
+		_snapshot = new Snapshot(_season, _parser.getGames().size(), new DateTime(), responses);
+	}
+
+	// answers a request from the latest snapshot. Runs on the server's threads, and never waits on an update
+	private void respond(HttpExchange exchange) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath();
+			if (path.length() > 1 && path.endsWith("/")) {
+				path = path.substring(0, path.length() - 1);
+			}
+			if (!exchange.getRequestMethod().equals("GET")) {
+				this.send(exchange, 405, "text/plain", utf8("Only GET is supported\n"));
+				return;
+			}
+
+			Snapshot snapshot = _snapshot;
+			if (path.equals("/status")) {
+				this.send(exchange, 200, "application/json", utf8(snapshot.getStatus()));
+			}
+			else if (path.equals("/metrics")) {
+				this.send(exchange, 200, "text/plain", utf8(Metrics.report()));
+			}
+			else if (snapshot.responses.containsKey(path)) {
+				this.send(exchange, 200, "application/json", snapshot.responses.get(path));
+			}
+			else {
+				this.send(exchange, 404, "text/plain", utf8("Nothing at " + path + "\n"));
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	// helper method for respond
+	private void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	private static byte[] utf8(String text) {
+		try {
+			return text.getBytes("UTF-8");
+		} catch (java.io.UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// everything served between two updates. Never changed once it is published
+	private static class Snapshot {
+
+		public final Season season;
+		public final int numGames;
+		public final DateTime updated;
+		public final Map<String, byte[]> responses;
+
+		public Snapshot(Season season, int numGames, DateTime updated, Map<String, byte[]> responses) {
+			this.season = season;
+			this.numGames = numGames;
+			this.updated = updated;
+			this.responses = Collections.unmodifiableMap(responses);
+		}
+
+		public String getStatus() {
+			return "{\"season\":\"" + season.getName() + "\",\"games\":" + numGames + ",\"updated\":"
+					+ (updated == null ? "null" : "\"" + updated + "\"") + "}\n";
+		}
+	}
+
+	// a game's teams and its rendered /games/<game id> response
+	private static class Game {
+
+		public final int awayTeam;
+		public final int homeTeam;
+		public final byte[] response;
+
+		public Game(int awayTeam, int homeTeam, byte[] response) {
+			this.awayTeam = awayTeam;
+			this.homeTeam = homeTeam;
+			this.response = response;
+		}
+	}
+
+	/*
+	 * Runs its parsers over every game like a MultiAnalysisParser, and also breaks each game down on its own as it is parsed.
+	 * Each game's breakdown is rendered once, since a finished game never changes.
+	 */
+	private static class LiveParser extends MultiAnalysisParser {
+
+		private Map<Integer, Game> _games;
+		private SecondChanceBreakdownParser _currentGame;
+
+		public LiveParser() {
+			super();
+			_games = new LinkedHashMap<Integer, Game>();
+		}
+
+		public void parsePlayByPlay(PlayByPlay game) {
+			_currentGame = new SecondChanceBreakdownParser();
+			super.parsePlayByPlay(game);
+			if (game.getGameId() != 0) {
+				try {
+					_games.put(game.getGameId(), new Game(game.getAwayTeam(), game.getHomeTeam(), render(_currentGame)));
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			_currentGame = null;
+		}
+
+		public void recordReboundData(PlayByPlay game, int missRow, int reboundRow) {
+			super.recordReboundData(game, missRow, reboundRow);
+			_currentGame.recordReboundData(game, missRow, reboundRow);
+		}
+
+		// helper method for parsePlayByPlay. Renders each team's rebounding off its own misses in one game
+		private static byte[] render(SecondChanceBreakdownParser game) throws IOException {
+			StringWriter response = new StringWriter();
+			JsonResultsTable teams = new JsonResultsTable(response, new String[] { "team", "offensive_rebounds", "defensive_rebounds",
+					"offensive_rebounding_percentage", "second_chance_points", "points_per_offensive_rebound" });
+			int any = BreakdownTable.ANY;
+			for (BreakdownTable.Row row: game.getByShooter().rollup(any, any, any, false, true, false).getRows()) {
+				teams.writeRow(Names.get(row.getTeam()), row.getOffensiveRebounds(), row.getDefensiveRebounds(),
+						row.getOffensiveReboundingPercentage(), row.getSecondChancePoints(), row.getPointsPerOffensiveRebound());
+			}
+			teams.close();
+			return utf8(response.toString());
+		}
+
+		public DataParser newAccumulator() {
+			LiveParser accumulator = new LiveParser();
+			for (DataParser parser: this.getParsers()) {
+				accumulator.addParser(parser.newAccumulator());
+			}
+			return accumulator;
+		}
+
+		public void merge(DataParser other) {
+			super.merge(other);
+			_games.putAll(((LiveParser) other)._games);
+		}
+
+		// returns every game parsed so far, in the order they were parsed
+		public Map<Integer, Game> getGames() {
+			return _games;
+		}
+	}
+
+	// renders the results tables as JSON in memory instead of writing them to files
+	private static class SnapshotExporter extends ResultsExporter {
+
+		private Map<String, StringWriter> _tables;
+
+		public SnapshotExporter() {
+			super(null, Collections.<ResultsFormat>emptyList());
+			_tables = new LinkedHashMap<String, StringWriter>();
+		}
+
+		protected List<ResultsTable> open(String name, String[] columns) throws IOException {
+			StringWriter table = new StringWriter();
+			_tables.put(name, table);
+			List<ResultsTable> tables = new ArrayList<ResultsTable>();
+			tables.add(new JsonResultsTable(table, columns));
+			return tables;
+		}
+
+		// returns each table's JSON, once the exporter is closed
+		public Map<String, StringWriter> getTables() {
+			return _tables;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package nba;
+
+import org.joda.time.LocalDate;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+/*
+ * This class represents the stretch of the NBA schedule to scrape: a regular season, or any range of dates.
+ *
+ * A season is named either by the years it spans, like "2013-14", which covers that regular season from opening night
+ * to its last game, or by a range of dates in "week" format, like "20131029-20131231", which covers every game
+ * from the first date through the second.
+ */
+public class Season {
+
+	private static final DateTimeFormatter WEEK_FORMAT = DateTimeFormat.forPattern("yyyyMMdd");
+
+	// first and last day of every regular season that can be named by its years. Other stretches of the schedule can be named by dates
+	private static final String[][] REGULAR_SEASONS = {
+		{ "2007-08", "20071030", "20080416" },
+		{ "2008-09", "20081028", "20090416" },
+		{ "2009-10", "20091027", "20100414" },
+		{ "2010-11", "20101026", "20110413" },
+		{ "2011-12", "20111225", "20120426" },
+		{ "2012-13", "20121030", "20130417" },
+		{ "2013-14", "20131029", "20140416" },
+		{ "2014-15", "20141028", "20150415" },
+	};
+
+	private String _name;
+	private LocalDate _start;
+	private LocalDate _end;
+
+	public Season(String name, LocalDate start, LocalDate end) {
+		if (end.isBefore(start)) {
+			throw new IllegalArgumentException("Season " + name + " ends before it starts");
+		}
+		_name = name;
+		_start = start;
+		_end = end;
+	}
+
+	// returns the season named by the text it is passed, either "yyyy-yy" for a regular season or "yyyyMMdd-yyyyMMdd" for a range of dates
+	public static Season parse(String name) {
+		for (String[] season: REGULAR_SEASONS) {
+			if (season[0].equals(name)) {
+				return new Season(name, parseWeek(season[1]), parseWeek(season[2]));
+			}
+		}
+
+		int dash = name.indexOf('-');
+		if (dash == 8 && name.length() == 17) {
+			return new Season(name, parseWeek(name.substring(0, dash)), parseWeek(name.substring(dash + 1)));
+		}
+		throw new IllegalArgumentException("Unknown season " + name + ", expected one of the regular seasons like 2013-14 or a range like 20131029-20140416");
+	}
+
+	// returns the date written in "week" format
+	public static LocalDate parseWeek(String week) {
+		return WEEK_FORMAT.parseLocalDate(week);
+	}
+
+	// returns the date in "week" format, which can be added to the end of espn.com's schedule url
+	public static String formatWeek(LocalDate date) {
+		return WEEK_FORMAT.print(date);
+	}
+
+	public String getName() {
+		return _name;
+	}
+
+	// returns the first day of the season
+	public LocalDate getStart() {
+		return _start;
+	}
+
+	// returns the last day of the season. Games on later days aren't part of it
+	public LocalDate getEnd() {
+		return _end;
+	}
+
+	// returns true if the date falls after the last day of the season
+	public boolean isOver(LocalDate date) {
+		return date.isAfter(_end);
+	}
+
+	public String toString() {
+		return _name;
+	}
+}
@@ -0,0 +1,122 @@
+package nba;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+/*
+ * This class keeps track of how far the scrape of a season has got, so a scrape that stops part way can pick up where it left off.
+ *
+ * The games scraped so far are kept in the season's EventStore, which is rewritten after every week,
+ * and a small progress file next to it records the week to start from next time and whether the season is finished.
+ * Loading a checkpoint replays its games into a parser, which brings the parser's counters back to where they were,
+ * and remembers their game ids so no game is ever fetched or counted twice.
+ *
+ * The week to start from only moves past weeks that are over and had every game parsed,
+ * so running the scrape again during a season picks up just the games played since the last run.
+ */
+public class SeasonCheckpoint {
+
+	private File _eventStoreFile;
+	private File _progressFile;
+	private EventStoreWriter _writer;
+	private GameIdSet _processedGameIds;
+	private String _resumeWeek;
+	private boolean _seasonComplete;
+
+	public SeasonCheckpoint(File eventStoreFile) {
+		_eventStoreFile = eventStoreFile;
+		_progressFile = new File(eventStoreFile.getPath() + ".progress");
+		_writer = new EventStoreWriter();
+		_processedGameIds = new GameIdSet();
+	}
+
+	/*
+	 * Replays every game saved so far into the parser it is passed, and reads the week the scrape should start from.
+	 * Games are replayed across every core, or "nba.analysisThreads" threads.
+	 * A store without a progress file was left by a crash between writing the store and writing the progress file the first time,
+	 * so the season is not finished and the scrape starts again from the beginning of the season, skipping the games already stored.
+	 */
+	public void load(DataParser parser) throws IOException {
+		if (!_eventStoreFile.exists()) {
+			return;
+		}
+
+		EventStore store = new EventStore(_eventStoreFile);
+		for (int g = 0; g < store.getNumGames(); g++) {
+			this.addGame(store.getGame(g));
+		}
+		store.replay(parser, Integer.getInteger("nba.analysisThreads", Runtime.getRuntime().availableProcessors()));
+
+		if (!_progressFile.exists()) {
+			_seasonComplete = false;
+			_resumeWeek = null;
+			return;
+		}
+		DataInputStream in = new DataInputStream(new FileInputStream(_progressFile));
+		try {
+			_seasonComplete = in.readBoolean();
+			_resumeWeek = in.readUTF();
+			if (_resumeWeek.isEmpty()) {
+				_resumeWeek = null;
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	// records a game that has just been parsed. Called from the thread parsing play-by-plays
+	public void addGame(PlayByPlay game) {
+		_writer.addGame(game);
+		_processedGameIds.add(game.getGameId());
+	}
+
+	// returns true if the game with the id it is passed has already been parsed, in this run or an earlier one
+	public boolean isProcessed(int gameId) {
+		return _processedGameIds.contains(gameId);
+	}
+
+	// returns the ids of every game parsed, in this run or an earlier one
+	public GameIdSet getGameIds() {
+		return _processedGameIds;
+	}
+
+	/*
+	 * Saves every game parsed so far, along with the week the next run should start from.
+	 * The store is written before the progress file, so a crash in between leaves the old progress file, or none on the first save,
+	 * and only means weeks are looked at again. Their games are already in the store, so none of them is fetched or counted twice.
+	 */
+	public void save(String resumeWeek, boolean seasonComplete) throws IOException {
+		_writer.write(_eventStoreFile);
+
+		File temp = AtomicFile.tempFileFor(_progressFile);
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+		try {
+			out.writeBoolean(seasonComplete);
+			out.writeUTF(resumeWeek == null ? "" : resumeWeek);
+		} finally {
+			out.close();
+		}
+		AtomicFile.replace(temp, _progressFile);
+
+		_resumeWeek = resumeWeek;
+		_seasonComplete = seasonComplete;
+	}
+
+	// returns the week ("yyyyMMdd") the scrape should start from, or null to start from the beginning of the season
+	public String getResumeWeek() {
+		return _resumeWeek;
+	}
+
+	// returns true if every week of the season has been scraped and is over
+	public boolean isSeasonComplete() {
+		return _seasonComplete;
+	}
+
+	// returns the number of games saved so far
+	public int getNumGames() {
+		return _writer.getNumGames();
+	}
+}
@@ -0,0 +1,61 @@
+package nba;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+/*
+ * This class scrapes several seasons at the same time, each into its own parser.
+ *
+ * Every parser walks its own season's schedule on its own thread, but all of them download pages through one shared PageFetcher,
+ * so however many seasons are running, no more than the fetcher's threads and per-host connection limit are ever busy at once.
+ * Each parser keeps and writes out its own results, so the results of different seasons are never mixed.
+ */
+public class SeasonRunner {
+
+	private PageFetcher _fetcher;
+	private List<DataParser> _parsers;
+
+	public SeasonRunner() {
+		this(new PageFetcher());
+	}
+
+	public SeasonRunner(PageFetcher fetcher) {
+		_fetcher = fetcher;
+		_parsers = new ArrayList<DataParser>();
+	}
+
+	// adds a parser that will scrape the season set on it
+	public void addParser(DataParser parser) {
+		parser.setFetcher(_fetcher);
+		_parsers.add(parser);
+	}
+
+	// scrapes every season at once and interprets each one's results, returning when all of them are finished
+	public void run() {
+		ExecutorService seasons = Executors.newFixedThreadPool(Math.max(1, _parsers.size()));
+		List<Future<?>> running = new ArrayList<Future<?>>();
+		for (final DataParser parser: _parsers) {
+			running.add(seasons.submit(new Runnable() {
+				public void run() {
+					parser.parseData();
+				}
+			}));
+		}
+
+		for (Future<?> season: running) {
+			try {
+				season.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+		seasons.shutdown();
+		_fetcher.shutdown();
+	}
+}
@@ -0,0 +1,187 @@
+package nba;
+
+import java.io.*;
+import java.util.List;
+/*
+ * This class parses the NBA Schedule to break offensive rebounding percentage and second chance points down
+ * by the zone of the miss, the team and the player.
+ *
+ * Every rebound off a miss is counted three ways: for the shooter and his team, for the rebounder and his team,
+ * and for the defending team, so the report can say which teams and players get the most out of their misses,
+ * which players turn their offensive rebounds into the most points, and which defenses give up the most second chances.
+ * The counts are kept in BreakdownTables, which can be rolled up and queried for their top rows.
+ *
+ * It is a subclass of DataParser.
+ */
+public class SecondChanceBreakdownParser extends DataParser {
+
+	// how many rows each list in the report has, and how many rebounds a player needs to be ranked by a percentage or average
+	private static final int TOP = 25;
+	private static final int MIN_PLAYER_REBOUNDS = 50;
+
+	private BreakdownTable _byShooter;
+	private BreakdownTable _byRebounder;
+	private BreakdownTable _byDefense;
+
+	public SecondChanceBreakdownParser() {
+		super();
+		_byShooter = new BreakdownTable();
+		_byRebounder = new BreakdownTable();
+		_byDefense = new BreakdownTable();
+	}
+
+	/*
+	 * This method gets passed in a miss and a rebound and records the desired data from that miss.
+	 * The team that shot is the side the miss is written on, except for a block, which is written on the blocker's side.
+	 */
+	public void recordReboundData(PlayByPlay game, int missRow, int reboundRow) {
+		boolean offensive = game.has(reboundRow, PlayByPlay.OFFENSIVE);
+		if (!offensive && !game.has(reboundRow, PlayByPlay.DEFENSIVE)) {
+			return;
+		}
+
+		int zone = game.getZone(missRow);
+		byte shootingSide = game.getSide(missRow);
+		if (game.has(missRow, PlayByPlay.BLOCKS)) {
+			shootingSide = opposite(shootingSide);
+		}
+		int shootingTeam = game.getTeam(shootingSide);
+		int defendingTeam = game.getTeam(opposite(shootingSide));
+		int shooter = game.getPlayer(missRow);
+		int reboundingTeam = game.getTeam(game.getSide(reboundRow));
+		int rebounder = game.getPlayer(reboundRow);
+
+		if (offensive) {
+			int pointsScored = game.has(reboundRow, PlayByPlay.OFFENSIVE_REBOUND) ? game.getSecondChancePoints(reboundRow) : 0;
+			_byShooter.addOffensiveRebound(zone, shootingTeam, shooter, pointsScored);
+			_byRebounder.addOffensiveRebound(zone, reboundingTeam, rebounder, pointsScored);
+			_byDefense.addOffensiveRebound(zone, defendingTeam, Names.NONE, pointsScored);
+		}
+		else {
+			_byShooter.addDefensiveRebound(zone, shootingTeam, shooter);
+			_byRebounder.addDefensiveRebound(zone, reboundingTeam, rebounder);
+			_byDefense.addDefensiveRebound(zone, defendingTeam, Names.NONE);
+		}
+	}
+
+	// helper method for recordReboundData. Returns the other side, or NO_SIDE for NO_SIDE
+	private static byte opposite(byte side) {
+		if (side == PlayByPlay.HOME) return PlayByPlay.AWAY;
+		if (side == PlayByPlay.AWAY) return PlayByPlay.HOME;
+		return PlayByPlay.NO_SIDE;
+	}
+
+	// returns a new, empty parser that games can be parsed into on another thread
+	public DataParser newAccumulator() {
+		return new SecondChanceBreakdownParser();
+	}
+
+	// adds the rebounds counted by another SecondChanceBreakdownParser to these counts
+	public void merge(DataParser other) {
+		SecondChanceBreakdownParser otherParser = (SecondChanceBreakdownParser) other;
+		_byShooter.merge(otherParser._byShooter);
+		_byRebounder.merge(otherParser._byRebounder);
+		_byDefense.merge(otherParser._byDefense);
+	}
+
+	// returns the rebounds off every miss, keyed by the zone of the miss, the team that shot and the shooter
+	public BreakdownTable getByShooter() {
+		return _byShooter;
+	}
+
+	// returns the rebounds off every miss, keyed by the zone of the miss, the team that rebounded and the rebounder
+	public BreakdownTable getByRebounder() {
+		return _byRebounder;
+	}
+
+	// returns the rebounds off every miss, keyed by the zone of the miss and the team that was defending. The player is always Names.NONE
+	public BreakdownTable getByDefense() {
+		return _byDefense;
+	}
+
+	/*
+	 * This method prints out the breakdowns: each team's offensive rebounding on its own misses and its opponents' misses,
+	 * then the top players by offensive rebounds, by second chance points per offensive rebound, and by how often their own misses are rebounded by their team.
+	 */
+	public void interpretResults() {
+		PrintWriter writer = super.getWriter();
+		int any = BreakdownTable.ANY;
+
+		writer.println("Teams by offensive rebounding percentage off their own misses:");
+		this.printRows(writer, _byShooter.rollup(any, any, any, false, true, false).top(BreakdownTable.OFFENSIVE_REBOUNDING_PERCENTAGE, Integer.MAX_VALUE, 1));
+
+		writer.println("\nTeams by offensive rebounding percentage allowed off opponents' misses:");
+		this.printRows(writer, _byDefense.rollup(any, any, any, false, true, false).top(BreakdownTable.OFFENSIVE_REBOUNDING_PERCENTAGE, Integer.MAX_VALUE, 1));
+
+		writer.println("\nTeams by second chance points per offensive rebound:");
+		this.printRows(writer, _byShooter.rollup(any, any, any, false, true, false).top(BreakdownTable.POINTS_PER_OFFENSIVE_REBOUND, Integer.MAX_VALUE, 1));
+
+		writer.println("\nTop " + TOP + " offensive rebounders:");
+		this.printRows(writer, _byRebounder.rollup(any, any, any, false, true, true).top(BreakdownTable.OFFENSIVE_REBOUNDS, TOP, 1));
+
+		writer.println("\nTop " + TOP + " offensive rebounders by second chance points per offensive rebound (at least " + MIN_PLAYER_REBOUNDS + " offensive rebounds):");
+		this.printRows(writer, _byRebounder.rollup(any, any, any, false, true, true).top(BreakdownTable.POINTS_PER_OFFENSIVE_REBOUND, TOP, MIN_PLAYER_REBOUNDS));
+
+		writer.println("\nTop " + TOP + " shooters by offensive rebounding percentage off their misses (at least " + MIN_PLAYER_REBOUNDS + " rebounded misses):");
+		this.printRows(writer, _byShooter.rollup(any, any, any, false, true, true).top(BreakdownTable.OFFENSIVE_REBOUNDING_PERCENTAGE, TOP, MIN_PLAYER_REBOUNDS));
+
+		writer.close();
+	}
+
+	/*
+	 * Exports every team's rebounding off its own misses and off its opponents' misses, zone by zone and over all zones,
+	 * and every player's rebounding as a shooter and as a rebounder over all zones.
+	 */
+	public void exportResults(ResultsExporter exporter) throws IOException {
+		String season = this.getSeason().getName();
+		int any = BreakdownTable.ANY;
+
+		ResultsTable teams = exporter.table("rebounding_by_team", "season", "team", "zone", "offensive_rebounds", "defensive_rebounds",
+				"offensive_rebounding_percentage", "second_chance_points", "points_per_offensive_rebound");
+		this.exportTeams(teams, season, _byShooter.rollup(any, any, any, true, true, false));
+		this.exportTeams(teams, season, _byShooter.rollup(any, any, any, false, true, false));
+
+		ResultsTable opponents = exporter.table("rebounding_allowed_by_team", "season", "team", "zone", "offensive_rebounds", "defensive_rebounds",
+				"offensive_rebounding_percentage", "second_chance_points", "points_per_offensive_rebound");
+		this.exportTeams(opponents, season, _byDefense.rollup(any, any, any, true, true, false));
+		this.exportTeams(opponents, season, _byDefense.rollup(any, any, any, false, true, false));
+
+		ResultsTable players = exporter.table("rebounding_by_player", "season", "player", "team", "role", "offensive_rebounds", "defensive_rebounds",
+				"offensive_rebounding_percentage", "second_chance_points", "points_per_offensive_rebound");
+		this.exportPlayers(players, season, "shooter", _byShooter.rollup(any, any, any, false, true, true));
+		this.exportPlayers(players, season, "rebounder", _byRebounder.rollup(any, any, any, false, true, true));
+	}
+
+	// helper method for exportResults. Exports a row for each team, and zone if the table has them
+	private void exportTeams(ResultsTable table, String season, BreakdownTable teams) throws IOException {
+		for (BreakdownTable.Row row: teams.getRows()) {
+			String zone = (row.getZone() == BreakdownTable.ANY) ? "all" : CONSTANTS.ZONE_NAMES[row.getZone()];
+			table.writeRow(season, Names.get(row.getTeam()), zone, row.getOffensiveRebounds(), row.getDefensiveRebounds(),
+					row.getOffensiveReboundingPercentage(), row.getSecondChancePoints(), row.getPointsPerOffensiveRebound());
+		}
+	}
+
+	// helper method for exportResults. Exports a row for each player, leaving out rebounds that weren't credited to a player
+	private void exportPlayers(ResultsTable table, String season, String role, BreakdownTable players) throws IOException {
+		for (BreakdownTable.Row row: players.getRows()) {
+			if (row.getPlayer() == Names.NONE) {
+				continue;
+			}
+			table.writeRow(season, Names.get(row.getPlayer()), Names.get(row.getTeam()), role, row.getOffensiveRebounds(), row.getDefensiveRebounds(),
+					row.getOffensiveReboundingPercentage(), row.getSecondChancePoints(), row.getPointsPerOffensiveRebound());
+		}
+	}
+
+	// helper method for interpretResults. Prints one line for each row
+	private void printRows(PrintWriter writer, List<BreakdownTable.Row> rows) {
+		for (BreakdownTable.Row row: rows) {
+			String team = (row.getTeam() == Names.NONE) ? "unknown team" : Names.get(row.getTeam());
+			String name = team;
+			if (row.getPlayer() == Names.NONE) name = team + " (team)";
+			else if (row.getPlayer() != BreakdownTable.ANY) name = Names.get(row.getPlayer()) + " (" + team + ")";
+			writer.println(String.format("%-32s offensive rebounds: %5d  defensive rebounds: %5d  offensive rebounding percentage: %5.1f%%  second chance points: %5d  per offensive rebound: %.3f",
+					name, row.getOffensiveRebounds(), row.getDefensiveRebounds(), row.getOffensiveReboundingPercentage(), row.getSecondChancePoints(),
+					row.getPointsPerOffensiveRebound()));
+		}
+	}
+}
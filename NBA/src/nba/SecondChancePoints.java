@@ -0,0 +1,228 @@
+package nba;
+
+import java.util.Arrays;
+/*
+ * This class works out the second chance points of every offensive rebound of a play-by-play in one forward pass over the game:
+ * how many points the side that got the rebound goes on to score before it loses the ball or the period ends.
+ *
+ * Whether a row ends a possession, and how many points it adds, depends only on the row and on whether it is written on
+ * the side whose possession is being followed. So every possession being followed for the same side, from whatever row it started,
+ * moves through the same states on the same rows, and they can all be followed at once: each side keeps a running total of the points
+ * it has scored while its possessions are open, every open possession remembers the total when it started, and when the side loses
+ * the ball every one of them is closed at once with the difference. Each row is looked at no more than once for each side,
+ * and rows with no possession open are skipped, so a game takes O(rows) however many offensive rebounds it has.
+ *
+ * The free throws after a shooting foul or a missed free throw are counted by looking a few rows ahead. A row's effect is worked out
+ * once however many possessions it moves on, so each and-one or trip to the line is counted once, not once for every rebound before it.
+ *
+ * A play-by-play that is cut off before its last possession ends is handled: a possession still open at the last row
+ * keeps the points it scored so far, and free throws that run off the end count the ones that are there.
+ */
+public class SecondChancePoints {
+
+	// the states a row can put a possession in, and how many points it adds on the way
+	private static final int CONTINUES = 0;
+	private static final int ENDS = 1;
+
+	// rows that don't change who has the ball, whoever they are written for
+	private static final int STOPPAGES = PlayByPlay.ENTERS_GAME | PlayByPlay.TIMEOUT | PlayByPlay.VS | PlayByPlay.DELAY
+			| PlayByPlay.TECHNICAL_FOUL | PlayByPlay.EJECTED;
+	// rows on the side with the ball that end its possession without scoring
+	private static final int EMPTY_POSSESSION = PlayByPlay.MISSES | PlayByPlay.BLOCKS | PlayByPlay.TURNOVER | PlayByPlay.FOUL
+			| PlayByPlay.TRAVELING | PlayByPlay.BAD_PASS | PlayByPlay.VIOLATION | PlayByPlay.THREE_SECONDS;
+	// rows on the other side that show the other side has the ball
+	private static final int OTHER_SIDE_HAS_BALL = PlayByPlay.REBOUND | PlayByPlay.MISSES | PlayByPlay.MAKES | PlayByPlay.PASS
+			| PlayByPlay.BLOCKS | PlayByPlay.TURNOVER;
+
+	private PlayByPlay _game;
+	private int _numRows;
+
+	// the rows the possessions open on each side (NO_SIDE, HOME, AWAY) started at, and the side's running total when they did
+	private int[][] _openRows;
+	private long[][] _openScored;
+	private int[] _numOpen;
+
+	private SecondChancePoints(PlayByPlay game) {
+		_game = game;
+		_numRows = game.getNumRows();
+	}
+
+	/*
+	 * Returns the second chance points of each offensive rebound in the game, indexed by row. Other rows are 0.
+	 * A rebound written on neither side follows the possession of "neither side", like the walk this replaces did.
+	 */
+	public static int[] compute(PlayByPlay game) {
+		return new SecondChancePoints(game).walk();
+	}
+
+	/*
+	 * helper method for compute. The forward pass: at each row, every side with open possessions moves them on by the row,
+	 * closing them all if the row ends the side's possession, and then a possession is opened if the row is an offensive rebound.
+	 */
+	private int[] walk() {
+		int[] points = new int[_numRows];
+		long[] scored = new long[3];
+		_openRows = new int[3][4];
+		_openScored = new long[3][4];
+		_numOpen = new int[3];
+		int totalOpen = 0;
+
+		for (int row = 0; row < _numRows; row++) {
+			int rowSide = _game.getSide(row);
+			if (totalOpen > 0) {
+				// the row's effect on the side it is written on, and on the other sides, each worked out at most once
+				long withBall = -1;
+				long againstBall = -1;
+				for (int side = 0; side < 3; side++) {
+					if (_numOpen[side] == 0) {
+						continue;
+					}
+					long step;
+					if (side == rowSide) {
+						if (withBall == -1) withBall = this.stepWithBall(row);
+						step = withBall;
+					}
+					else {
+						if (againstBall == -1) againstBall = this.stepAgainstBall(row);
+						step = againstBall;
+					}
+					scored[side] += pointsOf(step);
+					if (stateOf(step) == ENDS) {
+						totalOpen -= this.close(side, scored[side], points);
+					}
+				}
+			}
+
+			if (_game.has(row, PlayByPlay.OFFENSIVE_REBOUND)) {
+				this.open(rowSide, row, scored[rowSide]);
+				totalOpen++;
+			}
+		}
+
+		// the table ran out before these possessions ended, so they keep what they scored so far
+		for (int side = 0; side < 3; side++) {
+			this.close(side, scored[side], points);
+		}
+		return points;
+	}
+
+	// helper method for walk. Opens a possession for the side, starting at the row
+	private void open(int side, int row, long scored) {
+		int n = _numOpen[side];
+		if (n == _openRows[side].length) {
+			_openRows[side] = Arrays.copyOf(_openRows[side], n * 2);
+			_openScored[side] = Arrays.copyOf(_openScored[side], n * 2);
+		}
+		_openRows[side][n] = row;
+		_openScored[side][n] = scored;
+		_numOpen[side] = n + 1;
+	}
+
+	// helper method for walk. Closes every possession open for the side with the points scored since it opened, and returns how many there were
+	private int close(int side, long scored, int[] points) {
+		int n = _numOpen[side];
+		for (int i = 0; i < n; i++) {
+			points[_openRows[side][i]] = (int) (scored - _openScored[side][i]);
+		}
+		_numOpen[side] = 0;
+		return n;
+	}
+
+	/*
+	 * helper method for walk. Returns what a row written on the side with the ball does to its possession.
+	 * A made technical free throw scores and keeps the ball, and a made basket can be followed by an and-one.
+	 */
+	private long stepWithBall(int row) {
+		if (_game.has(row, PlayByPlay.END_OF_PERIOD)) {
+			return step(ENDS, 0);
+		}
+		if (_game.hasAny(row, STOPPAGES)) {
+			return step(CONTINUES, 0);
+		}
+		if (_game.has(row, PlayByPlay.MAKES)) {
+			// the zone is only read off a row written on a side, like the walk this replaces
+			int shot = (_game.getSide(row) != PlayByPlay.NO_SIDE) ? _game.getZone(row) : 0;
+			int points = this.makesAndOne(row) ? 1 : 0;
+			if (_game.has(row, PlayByPlay.TECHNICAL)) {
+				return step(CONTINUES, points + 1);
+			}
+			if (shot == CONSTANTS.FREETHROW) points += this.freeThrowsMade(row);
+			else if (shot == CONSTANTS.ATRIM || shot == CONSTANTS.THREETONINE || shot == CONSTANTS.TENTOFIFTEEN || shot == CONSTANTS.SIXTEENTOTWENTYTHREE || shot == CONSTANTS.MISC) points += 2;
+			else if (shot == CONSTANTS.THREEPOINTER) points += 3;
+			return step(ENDS, points);
+		}
+		// a missed technical free throw keeps the ball, a missed free throw can still be followed by made ones
+		if (_game.has(row, PlayByPlay.MISSES | PlayByPlay.TECHNICAL)) {
+			return step(CONTINUES, 0);
+		}
+		if (_game.has(row, PlayByPlay.MISSES | PlayByPlay.FREE)) {
+			return step(ENDS, this.freeThrowsMade(row));
+		}
+		if (_game.hasAny(row, EMPTY_POSSESSION)) {
+			return step(ENDS, 0);
+		}
+		// anything else, like an offensive rebound credited twice, keeps the ball
+		return step(CONTINUES, 0);
+	}
+
+	// helper method for walk. Returns what a row written on the other side does to a possession: technical free throws and defensive fouls keep the ball
+	private long stepAgainstBall(int row) {
+		if (_game.has(row, PlayByPlay.END_OF_PERIOD)) {
+			return step(ENDS, 0);
+		}
+		if (_game.hasAny(row, STOPPAGES) || _game.has(row, PlayByPlay.TECHNICAL_FREE_THROW)) {
+			return step(CONTINUES, 0);
+		}
+		if (_game.hasAny(row, OTHER_SIDE_HAS_BALL)) {
+			return step(ENDS, 0);
+		}
+		return step(CONTINUES, 0);
+	}
+
+	// returns true if the basket in the row is followed by a shooting foul on the other side and the one free throw is made
+	private boolean makesAndOne(int basketRow) {
+		int foulRow = basketRow + 1;
+		if (foulRow >= _numRows || _game.getSide(foulRow) == _game.getSide(basketRow) || !_game.has(foulRow, PlayByPlay.SHOOTING_FOUL)) {
+			return false;
+		}
+		return this.freeThrowsMade(foulRow) == 1;
+	}
+
+	/*
+	 * Returns how many of the free throws awarded at or after the row are made: the first row that awards free throws says how many,
+	 * and that many made or missed shots from there on are counted, skipping the substitutions and timeouts in between.
+	 */
+	private int freeThrowsMade(int row) {
+		while (row < _numRows && _game.getFreeThrowsAwarded(row) == 0) {
+			row++;
+		}
+		if (row == _numRows) {
+			return 0;
+		}
+		int numFreeThrows = _game.getFreeThrowsAwarded(row);
+		int made = 0;
+		for (int counted = 0; counted < numFreeThrows && row < _numRows; row++) {
+			if (_game.has(row, PlayByPlay.MAKES)) {
+				made++;
+				counted++;
+			}
+			else if (_game.has(row, PlayByPlay.MISSES)) {
+				counted++;
+			}
+		}
+		return made;
+	}
+
+	// packs a state and the points scored on the way into one value, so a row's effect can be worked out once and applied to every side
+	private static long step(int state, int points) {
+		return ((long) points << 1) | state;
+	}
+
+	private static int stateOf(long step) {
+		return (int) (step & 1);
+	}
+
+	private static int pointsOf(long step) {
+		return (int) (step >> 1);
+	}
+}
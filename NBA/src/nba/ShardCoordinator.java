@@ -0,0 +1,429 @@
+package nba;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+/*
+ * This class splits the scrape of one or more seasons across worker processes, and merges what they send back into one set of results.
+ *
+ * It walks each season's schedule itself, which only downloads the schedule pages, and hands out the games of each week as a unit
+ * of work. A game that shows up in more than one week is only handed out the first time, so every game is in exactly one unit.
+ * Workers (ShardWorker) connect over a socket, are given units one at a time, download and parse the games of each unit into
+ * fresh parsers, and send back the parsers' results written with writeResults. Each result is added to the season's parser
+ * with readResults, so when every unit is done the season's parser holds the same counts a single process would have,
+ * and interprets and exports them the same way. Only a ShardableParser can be sent between processes.
+ *
+ * A worker that disconnects, or takes longer than "nba.shardTimeoutSeconds" (600 by default) over a unit, is given up
+ * and its unit is handed to the next worker that asks. Games a worker couldn't download come back as a new unit. Either way a unit
+ * is tried at most "nba.shardMaxAttempts" times (3 by default), after which its games are left out of the results and reported.
+ *
+ * The coordinator listens on the loopback address by default, or on "nba.shardAddress", at the port "nba.shardPort" (any free port by default).
+ * startLocalWorkers runs workers as child processes on this machine, with the same class path and "nba." system properties,
+ * except that the request rate and connections per host are split between them. Workers on other machines can be started with
+ * ShardWorker's main, and each of those gets the full limits of its own "nba." properties. Sharded scrapes don't use the event store.
+ *
+ * The protocol is DataInputStream and DataOutputStream messages. The coordinator starts with MAGIC and the ParserType to parse with.
+ * The worker sends REQUEST, or RESULT with the unit's id, the box score links of the games that failed and the results written
+ * by writeResults, to ask for the next unit. The coordinator answers UNIT with the unit's id, the longest a cached page can be kept,
+ * and its box score links, or DONE once every unit is finished.
+ */
+public class ShardCoordinator {
+
+	static final int MAGIC = 0x4E424153;
+	static final byte REQUEST = 1;
+	static final byte RESULT = 2;
+	static final byte UNIT = 3;
+	static final byte DONE = 4;
+
+	private ParserType _type;
+	private List<Season> _seasons;
+	private List<ShardableParser> _parsers;
+	private PageFetcher _fetcher;
+	private int _timeoutMillis;
+	private int _maxAttempts;
+
+	private ServerSocket _server;
+	private ExecutorService _connections;
+	private List<Process> _localWorkers;
+
+	/*
+	 * The units waiting for a worker, how many are handed out, whether every schedule has been walked, how many units there have been
+	 * and how many have ended, by being finished, lost or given up. A unit lost, or with games that failed, ends and is followed by a new one
+	 */
+	private final Object _lock = new Object();
+	private LinkedList<WorkUnit> _pending;
+	private int _assigned;
+	private boolean _planned;
+	private int _numUnits;
+	private int _unitsDone;
+	private int _numWorkers;
+	private List<String> _givenUp;
+
+	// parses with parsers of the type it is passed, one for each season added
+	public ShardCoordinator(ParserType type) {
+		this(type, new PageFetcher());
+	}
+
+	// walks the schedules through the fetcher it is passed
+	public ShardCoordinator(ParserType type, PageFetcher fetcher) {
+		_type = type;
+		_fetcher = fetcher;
+		_seasons = new ArrayList<Season>();
+		_parsers = new ArrayList<ShardableParser>();
+		_timeoutMillis = Integer.getInteger("nba.shardTimeoutSeconds", 600) * 1000;
+		_maxAttempts = Integer.getInteger("nba.shardMaxAttempts", 3);
+		_localWorkers = new ArrayList<Process>();
+		_pending = new LinkedList<WorkUnit>();
+		_givenUp = new ArrayList<String>();
+	}
+
+	// adds a season to scrape into the parser it is passed, made by App.createParser for sharding with this coordinator's type
+	public void addSeason(Season season, ShardableParser parser) {
+		parser.setSeason(season);
+		_seasons.add(season);
+		_parsers.add(parser);
+	}
+
+	// starts listening for workers
+	public void start() throws IOException {
+		String address = System.getProperty("nba.shardAddress");
+		InetAddress bindAddress = (address == null) ? InetAddress.getLoopbackAddress() : InetAddress.getByName(address);
+		_server = new ServerSocket();
+		_server.bind(new InetSocketAddress(bindAddress, Integer.getInteger("nba.shardPort", 0)));
+		_connections = Executors.newCachedThreadPool(new DaemonThreadFactory("shard-worker"));
+		Thread acceptor = new DaemonThreadFactory("shard-acceptor").newThread(new Runnable() {
+			public void run() {
+				accept();
+			}
+		});
+		acceptor.start();
+	}
+
+	// returns the host and port workers connect to, like "127.0.0.1:50123"
+	public String getAddress() {
+		return _server.getInetAddress().getHostAddress() + ":" + _server.getLocalPort();
+	}
+
+	/*
+	 * Starts numWorkers ShardWorker processes on this machine, connected to this coordinator, with the class path
+	 * and "nba." system properties of this process. Their output goes to this process's output. Returns the processes.
+	 * The rate and connection limits are per process, so "nba.requestsPerSecond" and "nba.maxConnectionsPerHost" are split
+	 * between the workers started, keeping the machine as a whole within the limits a single process would have.
+	 */
+	public List<Process> startLocalWorkers(int numWorkers) throws IOException {
+		if (numWorkers < 1) {
+			return new ArrayList<Process>();
+		}
+		double requestsPerSecond = Double.parseDouble(System.getProperty("nba.requestsPerSecond", "20")) / numWorkers;
+		int maxConnectionsPerHost = Math.max(1, Integer.getInteger("nba.maxConnectionsPerHost", 8) / numWorkers);
+
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		for (Map.Entry<Object, Object> property: System.getProperties().entrySet()) {
+			String key = property.getKey().toString();
+			if (key.startsWith("nba.") && !key.equals("nba.requestsPerSecond") && !key.equals("nba.maxConnectionsPerHost")) {
+				command.add("-D" + key + "=" + property.getValue());
+			}
+		}
+		command.add("-Dnba.requestsPerSecond=" + requestsPerSecond);
+		command.add("-Dnba.maxConnectionsPerHost=" + maxConnectionsPerHost);
+		command.add(ShardWorker.class.getName());
+		command.add(_server.getInetAddress().getHostAddress());
+		command.add(Integer.toString(_server.getLocalPort()));
+
+		List<Process> started = new ArrayList<Process>();
+		for (int i = 0; i < numWorkers; i++) {
+			started.add(new ProcessBuilder(command).inheritIO().start());
+		}
+		synchronized (_lock) {
+			_localWorkers.addAll(started);
+		}
+		return started;
+	}
+
+	/*
+	 * Walks every season's schedule, handing out each week's games as they are found, waits for every unit to be done,
+	 * and then has each season's parser interpret its results. Gives up early if every worker is gone and none started
+	 * here is still running. Returns the box score links of the games that were left out.
+	 * Whatever happens, it stops listening when it is done, and if walking a schedule fails it also kills the workers started here.
+	 */
+	public List<String> run() {
+		boolean finished = false;
+		try {
+			for (int s = 0; s < _seasons.size(); s++) {
+				this.plan(s);
+			}
+			synchronized (_lock) {
+				_planned = true;
+				_lock.notifyAll();
+				while (_unitsDone < _numUnits) {
+					if (_numWorkers == 0 && !_localWorkers.isEmpty() && !this.isLocalWorkerRunning()) {
+						System.err.println("Every worker is gone with " + _pending.size() + " units left");
+						for (WorkUnit unit: _pending) {
+							_givenUp.addAll(unit.boxScoreLinks);
+						}
+						break;
+					}
+					try {
+						_lock.wait(1000);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+				_planned = true;
+				_pending.clear();
+				_lock.notifyAll();
+			}
+			finished = true;
+		} finally {
+			this.stop();
+			// workers are only told they are done when the scrape finishes, so the ones started here would wait for a unit forever
+			if (!finished) {
+				synchronized (_lock) {
+					for (Process worker: _localWorkers) {
+						worker.destroy();
+					}
+				}
+			}
+		}
+
+		for (ShardableParser parser: _parsers) {
+			parser.interpretResults();
+		}
+		return _givenUp;
+	}
+
+	// returns how many units have ended so far, finished, lost or given up
+	public int getUnitsDone() {
+		synchronized (_lock) {
+			return _unitsDone;
+		}
+	}
+
+	// stops listening, disconnects the workers and shuts down the fetcher
+	public void stop() {
+		try {
+			_server.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		_connections.shutdownNow();
+		_fetcher.shutdown();
+	}
+
+	// helper method for run. Walks a season's schedule, queueing a unit of the games first seen in each week
+	private void plan(int season) {
+		GameIdSet seen = new GameIdSet();
+		Schedule schedule = new Schedule(_seasons.get(season), _fetcher);
+		while (!schedule.isEndOfRegularSeason()) {
+			List<String> boxScoreLinks = new ArrayList<String>();
+			for (String url: schedule.getBoxScoreLinks()) {
+				int gameId = GameId.parse(url);
+				if (gameId == GameId.NONE || seen.add(gameId)) {
+					boxScoreLinks.add(url);
+				}
+			}
+			if (!boxScoreLinks.isEmpty()) {
+				this.queue(new WorkUnit(season, schedule.getWeek(), schedule.getMaxAge(), boxScoreLinks, 1));
+			}
+			schedule.advanceToNextWeek();
+		}
+	}
+
+	// helper method for start. Hands every worker that connects to its own thread
+	private void accept() {
+		while (!_server.isClosed()) {
+			try {
+				final Socket socket = _server.accept();
+				_connections.execute(new Runnable() {
+					public void run() {
+						serve(socket);
+					}
+				});
+			} catch (IOException e) {
+				// closed by stop
+			}
+		}
+	}
+
+	/*
+	 * Talks to one worker until every unit is done or the worker is lost. A unit the worker was given and hasn't finished
+	 * goes back on the queue if it is lost.
+	 */
+	private void serve(Socket socket) {
+		synchronized (_lock) {
+			_numWorkers++;
+		}
+		WorkUnit unit = null;
+		try {
+			socket.setSoTimeout(_timeoutMillis);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeInt(MAGIC);
+			out.writeUTF(_type.name());
+			out.flush();
+
+			while (true) {
+				byte message = in.readByte();
+				if (message == RESULT) {
+					if (unit == null || in.readInt() != unit.id) {
+						throw new IOException("Result for a unit the worker wasn't given");
+					}
+					List<String> failed = new ArrayList<String>();
+					for (int i = in.readInt(); i > 0; i--) {
+						failed.add(in.readUTF());
+					}
+					byte[] results = new byte[in.readInt()];
+					in.readFully(results);
+					this.finish(unit, failed, results);
+					unit = null;
+				}
+				else if (message != REQUEST) {
+					throw new IOException("Unknown message " + message);
+				}
+
+				unit = this.take();
+				if (unit == null) {
+					out.writeByte(DONE);
+					out.flush();
+					return;
+				}
+				out.writeByte(UNIT);
+				out.writeInt(unit.id);
+				out.writeLong(unit.maxAge);
+				out.writeInt(unit.boxScoreLinks.size());
+				for (String url: unit.boxScoreLinks) {
+					out.writeUTF(url);
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			if (unit != null) {
+				System.err.println("Lost the worker at " + socket.getRemoteSocketAddress() + " (" + e + ") during " + unit);
+				this.end(unit, unit.boxScoreLinks);
+			}
+		} finally {
+			synchronized (_lock) {
+				_numWorkers--;
+				_lock.notifyAll();
+			}
+			try {
+				socket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// helper method for serve. Waits for a unit to hand out, and returns it, or null once every unit is done
+	private WorkUnit take() throws IOException {
+		synchronized (_lock) {
+			while (_pending.isEmpty()) {
+				if (_planned && _assigned == 0) {
+					return null;
+				}
+				try {
+					_lock.wait();
+				} catch (InterruptedException e) {
+					throw new IOException("Interrupted while waiting for a unit");
+				}
+			}
+			_assigned++;
+			return _pending.removeFirst();
+		}
+	}
+
+	/*
+	 * helper method for serve. Adds the results of a finished unit to its season's parser,
+	 * and queues the games that failed as a new unit
+	 */
+	private void finish(WorkUnit unit, List<String> failed, byte[] results) throws IOException {
+		ShardableParser parser = _parsers.get(unit.season);
+		synchronized (_lock) {
+			parser.readResults(new DataInputStream(new ByteArrayInputStream(results)));
+			this.end(unit, failed);
+		}
+	}
+
+	/*
+	 * helper method for serve and finish. Ends a unit that was handed out, queueing the games of it that weren't parsed
+	 * as a new unit, unless it has been tried too many times
+	 */
+	private void end(WorkUnit unit, List<String> notParsed) {
+		synchronized (_lock) {
+			_assigned--;
+			_unitsDone++;
+			if (!notParsed.isEmpty()) {
+				if (unit.attempts >= _maxAttempts) {
+					System.err.println("Giving up on " + notParsed.size() + " games of " + unit + " after " + unit.attempts + " attempts");
+					_givenUp.addAll(notParsed);
+				}
+				else {
+					this.queue(new WorkUnit(unit.season, unit.week, unit.maxAge, notParsed, unit.attempts + 1));
+				}
+			}
+			_lock.notifyAll();
+		}
+	}
+
+	// helper method for plan and end. Numbers a unit and puts it on the queue
+	private void queue(WorkUnit unit) {
+		synchronized (_lock) {
+			unit.id = ++_numUnits;
+			_pending.add(unit);
+			_lock.notifyAll();
+		}
+	}
+
+	// helper method for run
+	private boolean isLocalWorkerRunning() {
+		for (Process worker: _localWorkers) {
+			try {
+				worker.exitValue();
+			} catch (IllegalThreadStateException e) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// the games of one week of one season, handed to one worker at a time
+	private static class WorkUnit {
+
+		public int id;
+		public final int season;
+		public final String week;
+		public final long maxAge;
+		public final List<String> boxScoreLinks;
+		public final int attempts;
+
+		public WorkUnit(int season, String week, long maxAge, List<String> boxScoreLinks, int attempts) {
+			this.season = season;
+			this.week = week;
+			this.maxAge = maxAge;
+			this.boxScoreLinks = boxScoreLinks;
+			this.attempts = attempts;
+		}
+
+		public String toString() {
+			return "unit " + id + " (week " + week + ", " + boxScoreLinks.size() + " games, attempt " + attempts + ")";
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package nba;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+/*
+ * This class is a worker of a sharded scrape: it connects to a ShardCoordinator, and parses the units of games it is handed
+ * until the coordinator says every unit is done.
+ *
+ * Each unit's games are downloaded through one PageFetcher kept for the life of the worker, the same way a DataParser
+ * downloads a week's games, and parsed into new parsers made by App.createParser. The parsers' results are
+ * sent back with the box score links of any games that couldn't be downloaded.
+ *
+ * Run it with the coordinator's host and port: java nba.ShardWorker 127.0.0.1 50123. It takes the same "nba." system properties
+ * as any other run, so pages come from "nba.pageSource" and are cached in "nba.cacheDir".
+ */
+public class ShardWorker {
+
+	private String _host;
+	private int _port;
+	private PageFetcher _fetcher;
+
+	public ShardWorker(String host, int port) {
+		this(host, port, new PageFetcher());
+	}
+
+	public ShardWorker(String host, int port, PageFetcher fetcher) {
+		_host = host;
+		_port = port;
+		_fetcher = fetcher;
+	}
+
+	// parses units until the coordinator has none left, and returns how many it parsed
+	public int run() throws IOException {
+		Socket socket = new Socket(_host, _port);
+		int unitsParsed = 0;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			if (in.readInt() != ShardCoordinator.MAGIC) {
+				throw new IOException("Not a shard coordinator: " + _host + ":" + _port);
+			}
+			ParserType type = ParserType.valueOf(in.readUTF());
+			out.writeByte(ShardCoordinator.REQUEST);
+			out.flush();
+
+			while (in.readByte() == ShardCoordinator.UNIT) {
+				int unit = in.readInt();
+				long maxAge = in.readLong();
+				List<String> boxScoreLinks = new ArrayList<String>();
+				for (int i = in.readInt(); i > 0; i--) {
+					boxScoreLinks.add(in.readUTF());
+				}
+				System.out.println("Worker parsing unit " + unit + " of " + boxScoreLinks.size() + " games");
+
+				ShardableParser parser = (ShardableParser) App.createParser(type, "", true);
+				parser.setFetcher(_fetcher);
+				List<String> failed = parser.parseGames(boxScoreLinks, maxAge);
+				ByteArrayOutputStream results = new ByteArrayOutputStream();
+				DataOutputStream resultsOut = new DataOutputStream(results);
+				parser.writeResults(resultsOut);
+				resultsOut.close();
+
+				out.writeByte(ShardCoordinator.RESULT);
+				out.writeInt(unit);
+				out.writeInt(failed.size());
+				for (String url: failed) {
+					out.writeUTF(url);
+				}
+				out.writeInt(results.size());
+				results.writeTo(out);
+				out.flush();
+				unitsParsed++;
+			}
+		} finally {
+			socket.close();
+		}
+		return unitsParsed;
+	}
+
+	public static void main(String[] args) {
+		ShardWorker worker = new ShardWorker(args[0], Integer.parseInt(args[1]));
+		try {
+			int units = worker.run();
+			System.out.println("Worker parsed " + units + " units");
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		} finally {
+			worker._fetcher.shutdown();
+		}
+	}
+}
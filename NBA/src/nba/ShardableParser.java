@@ -0,0 +1,32 @@
+package nba;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+/*
+ * This interface is implemented by the parsers whose results can be sent between processes, so their scrapes can be sharded.
+ *
+ * A ShardWorker parses a unit of games into a fresh parser and sends what it recorded with writeResults, and the ShardCoordinator
+ * adds it to the season's parser with readResults. The rest are the methods of DataParser that a sharded scrape calls.
+ */
+public interface ShardableParser {
+
+	// sets the season the parser's reports are for
+	void setSeason(Season season);
+
+	// sets the fetcher the parser downloads its pages with
+	void setFetcher(PageFetcher fetcher);
+
+	// parses the games behind the box score links, like DataParser.parseGames, and returns the links of the ones that failed
+	List<String> parseGames(List<String> boxScoreLinks, long maxAge);
+
+	// writes everything the parser has recorded, for readResults to add to a parser of the same kind in another process
+	void writeResults(DataOutput out) throws IOException;
+
+	// adds the results written by writeResults of a parser of the same kind to what this parser has recorded, like merge
+	void readResults(DataInput in) throws IOException;
+
+	// interprets everything recorded and writes the reports
+	void interpretResults();
+}
@@ -0,0 +1,92 @@
+package nba;
+/*
+ * This class classifies the text of a shot in the play-by-play into the zone of the court it was taken from.
+ * 
+ * It never makes an intermediate string: the words that name a shot type are found with indexOf,
+ * and the shot's distance is read in a single pass over the digits in the text.
+ * A distance is turned into a zone by looking it up in a table indexed by feet, built from the zone bounds in CONSTANTS,
+ * or from the system property "nba.zoneBounds" if it is set.
+ */
+public final class ShotClassifier {
+	
+	// distances at or beyond the end of the table are always threes
+	private static final int TABLE_FEET = 100;
+	
+	private static final byte[] ZONE_BY_FEET = buildZoneTable(System.getProperty("nba.zoneBounds"));
+	
+	private ShotClassifier() {}
+	
+	/*
+	 * Returns the zone (a CONSTANTS index) of the shot whose text it is passed.
+	 * Layups, tips and dunks are at the rim, anything called a three is a three, and free throws are free throws.
+	 * Otherwise the shot is classified by its distance. The "2" in "2-pt" or "2-point" isn't a distance, and only the first
+	 * distance in the text counts, so other numbers in the text can't run into it.
+	 */
+	public static int classify(String shotText) {
+		if (shotText.indexOf("layup") != -1 || shotText.indexOf("tip") != -1 || shotText.indexOf("dunk") != -1) {
+			return CONSTANTS.ATRIM;
+		}
+		else if (shotText.indexOf("three") != -1 || shotText.indexOf("3-pt") != -1 || shotText.indexOf("3-point") != -1) {
+			return CONSTANTS.THREEPOINTER;
+		}
+		else if (shotText.indexOf("free") != -1) {
+			return CONSTANTS.FREETHROW;
+		}
+		
+		// find and return the zone of the distance the shot was taken from
+		int length = shotText.length();
+		for (int i = 0; i < length; i++) {
+			char c = shotText.charAt(i);
+			if (c >= '0' && c <= '9') {
+				int feet = 0;
+				int end = i;
+				while (end < length && (c = shotText.charAt(end)) >= '0' && c <= '9') {
+					if (feet < TABLE_FEET) {
+						feet = feet * 10 + (c - '0');
+					}
+					end++;
+				}
+				// skip the number if it is the point value of the shot rather than its distance
+				if (!shotText.startsWith("-pt", end) && !shotText.startsWith("-point", end)) {
+					return ZONE_BY_FEET[Math.min(feet, TABLE_FEET)];
+				}
+				i = end - 1;
+			}
+		}
+		// some shots in espn.com's play-by-play are known only as "jumper," "bank shot," "two point shot" or other shots worth two points
+		return CONSTANTS.MISC;
+	}
+	
+	/*
+	 * Builds the table of zones indexed by distance in feet.
+	 * bounds lists the furthest distance of the at rim, 3 to 9, 10 to 15 and 16 to 23 zones, separated by commas.
+	 * If it is null the bounds in CONSTANTS are used.
+	 * a few misses in play-by-play on espn.com are missing text saying three-pointer, so anything past the last bound is a three.
+	 */
+	static byte[] buildZoneTable(String bounds) {
+		int[] maxFeet = { CONSTANTS.ATRIM_MAX_FEET, CONSTANTS.THREETONINE_MAX_FEET, CONSTANTS.TENTOFIFTEEN_MAX_FEET, CONSTANTS.SIXTEENTOTWENTYTHREE_MAX_FEET };
+		if (bounds != null) {
+			String[] values = bounds.split(",");
+			if (values.length != maxFeet.length) {
+				throw new IllegalArgumentException("nba.zoneBounds needs " + maxFeet.length + " distances, but was: " + bounds);
+			}
+			for (int i = 0; i < values.length; i++) {
+				maxFeet[i] = Integer.parseInt(values[i].trim());
+				if (i > 0 && maxFeet[i] <= maxFeet[i - 1] || maxFeet[i] >= TABLE_FEET) {
+					throw new IllegalArgumentException("nba.zoneBounds must increase and stay under " + TABLE_FEET + " feet, but was: " + bounds);
+				}
+			}
+		}
+		int[] zones = { CONSTANTS.ATRIM, CONSTANTS.THREETONINE, CONSTANTS.TENTOFIFTEEN, CONSTANTS.SIXTEENTOTWENTYTHREE };
+		
+		byte[] table = new byte[TABLE_FEET + 1];
+		int zone = 0;
+		for (int feet = 0; feet <= TABLE_FEET; feet++) {
+			while (zone < maxFeet.length && feet > maxFeet[zone]) {
+				zone++;
+			}
+			table[feet] = (byte) (zone < zones.length ? zones[zone] : CONSTANTS.THREEPOINTER);
+		}
+		return table;
+	}
+}
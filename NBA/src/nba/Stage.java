@@ -0,0 +1,17 @@
+package nba;
+/*
+ * Simple enum for the stages of the scrape pipeline that Metrics keeps track of.
+ */
+public enum Stage {
+	SCHEDULE("schedule fetch"), BOX_SCORE("box score fetch"), PLAY_BY_PLAY("play-by-play fetch"), TOKENIZE("tokenize"), PARSE("parse rows");
+
+	private final String _description;
+
+	private Stage(String description) {
+		_description = description;
+	}
+
+	public String getDescription() {
+		return _description;
+	}
+}
@@ -0,0 +1,127 @@
+package nba;
+
+import java.io.IOException;
+import java.io.Reader;
+/*
+ * This class pulls the html of the tables with a given class out of a page, reading the page as a stream.
+ *
+ * espn.com's play-by-play pages are mostly navigation, ads and scripts around a single "mod-data" table.
+ * Instead of building a Document for the whole page, the page is read a block at a time and only the markup of the
+ * matching tables is kept, so the only thing ever parsed into a Document is the play-by-play table itself.
+ */
+public class TableExtractor {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private String _className;
+
+	// tables whose class attribute includes className will be extracted
+	public TableExtractor(String className) {
+		_className = className;
+	}
+
+	/*
+	 * Reads the page it is passed to the end and returns the html of every matching table in it, in page order.
+	 * Tables nested inside a matching table are kept as part of it.
+	 */
+	public String extract(Reader page) throws IOException {
+		StringBuilder tables = new StringBuilder();
+		StringBuilder tag = new StringBuilder();
+		char[] buffer = new char[BUFFER_SIZE];
+
+		boolean inTag = false;
+		int tableDepth = 0;
+		int read;
+		while ((read = page.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++) {
+				char c = buffer[i];
+				if (tableDepth > 0) {
+					tables.append(c);
+				}
+
+				if (c == '<') {
+					inTag = true;
+					tag.setLength(0);
+				}
+				else if (inTag && c == '>') {
+					inTag = false;
+					if (isTag(tag, "table")) {
+						if (tableDepth > 0) {
+							tableDepth++;
+						}
+						else if (this.hasClass(tag.toString())) {
+							// start keeping the table, including the tag that opened it
+							tables.append('<').append(tag).append('>');
+							tableDepth = 1;
+						}
+					}
+					else if (tableDepth > 0 && isTag(tag, "/table")) {
+						tableDepth--;
+					}
+				}
+				else if (inTag) {
+					tag.append(c);
+				}
+			}
+		}
+		return tables.toString();
+	}
+
+	// returns true if the inside of the tag it is passed (everything between < and >) opens or closes the element named name
+	private static boolean isTag(CharSequence tag, String name) {
+		if (tag.length() < name.length()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (Character.toLowerCase(tag.charAt(i)) != name.charAt(i)) {
+				return false;
+			}
+		}
+		if (tag.length() == name.length()) {
+			return true;
+		}
+		char next = tag.charAt(name.length());
+		return Character.isWhitespace(next) || next == '/';
+	}
+
+	// returns true if the class attribute inside the tag it is passed includes the class being extracted
+	private boolean hasClass(String tag) {
+		String lowerCaseTag = tag.toLowerCase();
+		int attribute = lowerCaseTag.indexOf("class");
+		while (attribute != -1) {
+			int equals = attribute + "class".length();
+			while (equals < tag.length() && Character.isWhitespace(tag.charAt(equals))) {
+				equals++;
+			}
+			if (equals < tag.length() && tag.charAt(equals) == '=') {
+				int start = equals + 1;
+				while (start < tag.length() && Character.isWhitespace(tag.charAt(start))) {
+					start++;
+				}
+				int end;
+				if (start < tag.length() && (tag.charAt(start) == '"' || tag.charAt(start) == '\'')) {
+					end = tag.indexOf(tag.charAt(start), start + 1);
+					start++;
+				}
+				else {
+					end = start;
+					while (end < tag.length() && !Character.isWhitespace(tag.charAt(end))) {
+						end++;
+					}
+				}
+				if (end == -1) {
+					end = tag.length();
+				}
+
+				for (String name: tag.substring(start, end).split("\\s+")) {
+					if (name.equals(_className)) {
+						return true;
+					}
+				}
+				return false;
+			}
+			attribute = lowerCaseTag.indexOf("class", attribute + 1);
+		}
+		return false;
+	}
+}
@@ -0,0 +1,48 @@
+package nba;
+
+import java.util.concurrent.TimeUnit;
+/*
+ * This class is a token bucket rate limiter.
+ *
+ * Tokens drip into the bucket at a steady rate, up to a maximum, and every request takes one out.
+ * A burst of requests can use up whatever has built up in the bucket, after which requests go through no faster than the rate.
+ */
+public class TokenBucket {
+
+	private double _tokensPerNano;
+	private double _capacity;
+	private double _tokens;
+	private long _lastRefill;
+
+	// allows requestsPerSecond requests a second on average, and bursts of up to burst requests at once
+	public TokenBucket(double requestsPerSecond, int burst) {
+		if (requestsPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("Rate and burst must be positive");
+		}
+		_tokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+		_capacity = burst;
+		_tokens = burst;
+		_lastRefill = System.nanoTime();
+	}
+
+	// takes a token out of the bucket, waiting for one to drip in if the bucket is empty
+	public void acquire() throws InterruptedException {
+		long waitNanos;
+		synchronized (this) {
+			this.refill();
+			// the token is taken now even if it hasn't dripped in yet, so callers queue up in the order they arrive
+			_tokens -= 1;
+			waitNanos = (_tokens >= 0) ? 0 : (long) (-_tokens / _tokensPerNano);
+		}
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+
+	// helper method for acquire. Adds the tokens that have dripped in since the last refill
+	private void refill() {
+		long now = System.nanoTime();
+		_tokens = Math.min(_capacity, _tokens + (now - _lastRefill) * _tokensPerNano);
+		_lastRefill = now;
+	}
+}